@@ -0,0 +1,132 @@
+package com.dinet.pedidos.importacion.bench;
+
+import com.dinet.pedidos.importacion.application.CargarPedidosHandler;
+import com.dinet.pedidos.importacion.application.ErroresCarga;
+import com.dinet.pedidos.importacion.application.EscrituraLotes;
+import com.dinet.pedidos.importacion.application.MetricasCarga;
+import com.dinet.pedidos.importacion.application.PoliticaDuplicados;
+import com.dinet.pedidos.importacion.application.TamanioLote;
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import com.dinet.pedidos.importacion.domain.port.IdempotenciaAlmacen;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import com.dinet.pedidos.importacion.domain.service.ModoValidacion;
+import com.dinet.pedidos.importacion.domain.service.ValidacionPedidoService;
+import com.dinet.pedidos.importacion.domain.service.reglas.CadenaFrioSoportada;
+import com.dinet.pedidos.importacion.domain.service.reglas.ClienteActivo;
+import com.dinet.pedidos.importacion.domain.service.reglas.FechaEntregaNoPasada;
+import com.dinet.pedidos.importacion.domain.service.reglas.ZonaExistente;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash + parseo + validación del handler con catálogos en memoria y un repositorio que descarta
+ * las filas: mide el costo de CPU del pipeline sin la base de datos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CargaPipelineBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int filas;
+
+    @Param({ "0.05" })
+    public double proporcionErrores;
+
+    @Param({ "2" })
+    public int validadores;
+
+    private byte[] csv;
+    private Path directorioErrores;
+    private CargarPedidosHandler handler;
+
+    @Setup
+    public void preparar() throws IOException {
+        csv = DatosSinteticos.csv(filas, proporcionErrores, 42);
+        var validacion = new ValidacionPedidoService(new CatalogosEnMemoria(),
+                Clock.system(ZoneId.of("America/Lima")),
+                List.of(new FechaEntregaNoPasada(), new ClienteActivo(), new ZonaExistente(), new CadenaFrioSoportada()),
+                ModoValidacion.PRIMER_ERROR);
+        var metricas = new MetricasCarga(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+        var escritura = new EscrituraLotes(new RepositorioDescarte(), TransactionOperations.withoutTransaction(),
+                metricas, 3, Duration.ofMillis(50));
+        directorioErrores = Files.createTempDirectory("bench-errores");
+        var errores = new ErroresCarga(directorioErrores, Duration.ofDays(1));
+        handler = new CargarPedidosHandler(escritura, new IdempotenciaSiempreNueva(), errores, validacion,
+                metricas, new ObjectMapper(), TamanioLote.fijo(500), validadores, 2, 8, PoliticaDuplicados.ULTIMA, 100,
+                Duration.ofMinutes(1));
+    }
+
+    // el directorio de errores sobrevive al fork, y con -f 0 los pools de cada trial seguirían vivos
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        handler.detener();
+        FileSystemUtils.deleteRecursively(directorioErrores);
+    }
+
+    @Benchmark
+    public ResumenCarga ejecutar(FilasContador contador) {
+        contador.filas += filas;
+        return handler.ejecutar(new ByteArrayResource(csv), "bench");
+    }
+
+    static final class CatalogosEnMemoria implements CatalogosConsulta {
+        private final Set<String> clientes = new HashSet<>();
+        private final Map<String, Boolean> zonas = new HashMap<>();
+
+        CatalogosEnMemoria() {
+            for (int i = 0; i < DatosSinteticos.CLIENTES; i++) clientes.add("CLI-" + i);
+            for (int i = 0; i < DatosSinteticos.ZONAS; i++) zonas.put("ZONA" + i, i % 2 == 1);
+        }
+
+        @Override public boolean existeCliente(String clienteId) { return clientes.contains(clienteId); }
+        @Override public Optional<Boolean> zonaSoportaRefrigeracion(String zonaId) { return Optional.ofNullable(zonas.get(zonaId)); }
+
+        @Override
+        public Set<String> clientesActivos(Collection<String> clienteIds) {
+            Set<String> r = new HashSet<>();
+            for (String id : clienteIds) if (clientes.contains(id)) r.add(id);
+            return r;
+        }
+
+        @Override
+        public Map<String, Boolean> soporteRefrigeracionPorZona(Collection<String> zonaIds) {
+            Map<String, Boolean> r = new HashMap<>();
+            for (String id : zonaIds) if (zonas.containsKey(id)) r.put(id, zonas.get(id));
+            return r;
+        }
+    }
+
+    static final class RepositorioDescarte implements PedidosRepositorio {
+        @Override public ResultadoLote upsertPorLote(LotePedidos lote) { return new ResultadoLote(lote.tamanio(), 0, 0); }
+    }
+
+    static final class IdempotenciaSiempreNueva implements IdempotenciaAlmacen {
+        @Override public Optional<Registro> reclamar(String claveIdempotencia, String archivoHash) { return Optional.empty(); }
+        @Override public void renovar(String claveIdempotencia, String archivoHash) {}
+        @Override public void liberar(String claveIdempotencia, String archivoHash) {}
+        @Override public void marcarCompletado(String claveIdempotencia, String archivoHash, String resultadoJson) {}
+        @Override public void marcarFallido(String claveIdempotencia, String archivoHash) {}
+        @Override public void guardarAvance(String claveIdempotencia, String archivoHash, Avance avance) {}
+        @Override public Optional<Avance> avance(String claveIdempotencia, String archivoHash) { return Optional.empty(); }
+    }
+}
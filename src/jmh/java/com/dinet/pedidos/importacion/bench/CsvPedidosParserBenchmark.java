@@ -0,0 +1,41 @@
+package com.dinet.pedidos.importacion.bench;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.shared.csv.CsvPedidosParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CsvPedidosParserBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int filas;
+
+    @Param({ "0.05" })
+    public double proporcionErrores;
+
+    private byte[] csv;
+
+    @Setup
+    public void generar() {
+        csv = DatosSinteticos.csv(filas, proporcionErrores, 42);
+    }
+
+    @Benchmark
+    public void parse(FilasContador contador, Blackhole bh) throws IOException {
+        CsvPedidosParser.parse(new ByteArrayInputStream(csv), new CsvPedidosParser.Destino() {
+            @Override public void filaValida(int linea, CsvPedidosParser.Fila fila) { bh.consume(fila.fechaEntregaEpochDia()); }
+            @Override public void error(ErrorFila error) { bh.consume(error); }
+        });
+        contador.filas += filas;
+    }
+}
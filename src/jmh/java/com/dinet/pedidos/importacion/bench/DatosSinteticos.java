@@ -0,0 +1,46 @@
+package com.dinet.pedidos.importacion.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * CSV sintéticos con la cabecera real. Las filas malas rotan entre los errores de formato de
+ * {@code samples/pedidos_malos.csv} y clientes/zonas inexistentes.
+ */
+final class DatosSinteticos {
+
+    static final String CABECERA = "numero_pedido,cliente_id,fecha_entrega,estado,zona_id,requiere_refrigeracion\n";
+    static final int CLIENTES = 2_000;
+    static final int ZONAS = 8;
+
+    private static final String[] ESTADOS = { "PENDIENTE", "CONFIRMADO", "ENTREGADO" };
+    private static final String[] MALAS = {
+            ",CLI-1,2030-08-10,PENDIENTE,ZONA1,true",
+            "X%d,CLI-1,2030-08-10,OTRO,ZONA1,true",
+            "X%d,CLI-1,fecha,PENDIENTE,ZONA1,true",
+            "X%d,CLI-1,2030-08-10,PENDIENTE,ZONA1,maybe",
+            "X_%d,CLI-1,2030-08-10,PENDIENTE,ZONA1,true",
+            "X%d,CLI-NO,2030-08-10,PENDIENTE,ZONA1,false",
+            "X%d,CLI-1,2030-08-10,PENDIENTE,ZONA-NO,false",
+    };
+
+    private DatosSinteticos() {}
+
+    static byte[] csv(int filas, double proporcionErrores, long semilla) {
+        var rnd = new SplittableRandom(semilla);
+        var sb = new StringBuilder(CABECERA.length() + filas * 56).append(CABECERA);
+        for (int i = 0; i < filas; i++) {
+            if (rnd.nextDouble() < proporcionErrores) {
+                sb.append(MALAS[rnd.nextInt(MALAS.length)].formatted(i)).append('\n');
+                continue;
+            }
+            sb.append('P').append(i).append(',')
+              .append("CLI-").append(rnd.nextInt(CLIENTES)).append(',')
+              .append(2030).append('-').append(String.format("%02d", 1 + rnd.nextInt(12))).append("-15,")
+              .append(ESTADOS[rnd.nextInt(ESTADOS.length)]).append(',')
+              .append("ZONA").append(rnd.nextInt(ZONAS)).append(',')
+              .append(rnd.nextInt(4) == 0).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
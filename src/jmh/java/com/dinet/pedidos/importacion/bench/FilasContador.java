@@ -0,0 +1,19 @@
+package com.dinet.pedidos.importacion.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// JMH informa este contador como filas/s junto al throughput de operaciones.
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class FilasContador {
+    public long filas;
+
+    @Setup(Level.Iteration)
+    public void reiniciar() {
+        filas = 0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dinet.pedidos.importacion.bench;
+
+import com.dinet.pedidos.importacion.shared.crypto.Hashes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HashesBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    public int filas;
+
+    private byte[] csv;
+
+    @Setup
+    public void generar() {
+        csv = DatosSinteticos.csv(filas, 0.05, 42);
+    }
+
+    @Benchmark
+    public String sha256Bytes(FilasContador contador) {
+        contador.filas += filas;
+        return Hashes.sha256Hex(csv);
+    }
+
+    @Benchmark
+    public String sha256Stream(FilasContador contador) throws IOException {
+        contador.filas += filas;
+        return Hashes.sha256Hex(new ByteArrayInputStream(csv));
+    }
+}
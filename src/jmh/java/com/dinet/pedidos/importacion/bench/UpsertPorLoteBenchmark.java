@@ -0,0 +1,63 @@
+package com.dinet.pedidos.importacion.bench;
+
+import com.dinet.pedidos.importacion.adapters.out.jpa.PedidosRepositorioJdbc;
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PedidosRepositorioJdbc#upsertPorLote} contra un PostgreSQL embebido (mismas migraciones
+ * Flyway que producción). La mitad de cada lote son números nuevos y la otra mitad actualizaciones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UpsertPorLoteBenchmark {
+
+    private static final int FECHA = (int) LocalDate.of(2030, 1, 15).toEpochDay();
+
+    @Param({ "500", "1000" })
+    public int lote;
+
+    private EmbeddedPostgres pg;
+    private JdbcTemplate jdbc;
+    private PedidosRepositorioJdbc repo;
+    private long secuencia;
+
+    @Setup
+    public void arrancar() throws IOException {
+        pg = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(pg.getPostgresDatabase()).load().migrate();
+        jdbc = new JdbcTemplate(pg.getPostgresDatabase());
+        repo = new PedidosRepositorioJdbc(jdbc);
+    }
+
+    @TearDown
+    public void detener() throws IOException {
+        pg.close();
+    }
+
+    @Benchmark
+    public void upsert(FilasContador contador) {
+        var pedidos = new LotePedidos(lote);
+        long base = secuencia;
+        for (int i = 0; i < lote; i++) {
+            long n = i % 2 == 0 ? base + i : Math.max(0, base - lote + i);
+            pedidos.agregar(i + 2, "P" + n, "CLI-" + (n % DatosSinteticos.CLIENTES), "ZONA" + (n % DatosSinteticos.ZONAS),
+                    FECHA, Estado.values()[(int) (n % 3)], n % 4 == 0);
+        }
+        secuencia += lote;
+        repo.upsertPorLote(pedidos);
+        contador.filas += lote;
+    }
+}
@@ -0,0 +1,245 @@
+package com.dinet.pedidos.importacion.adapters.in.carpeta;
+
+import com.dinet.pedidos.importacion.application.CargaEnProcesoException;
+import com.dinet.pedidos.importacion.application.CargarPedidosHandler;
+import com.dinet.pedidos.importacion.application.ProgresoCarga;
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.shared.io.ArchivoMapeado;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Importa los CSV que se dejan en {@code app.carpetas.directorios}. Cada archivo se reclama
+ * moviéndolo (de forma atómica) a {@code procesando/<app.instancia>/}, así dos instancias que
+ * vigilan el mismo volumen no lo importan dos veces; se lee mapeado en memoria ({@link ArchivoMapeado}) con el
+ * mismo {@link CargarPedidosHandler} que la API, con el hash del contenido como clave de
+ * idempotencia, y termina en la subcarpeta de procesados o de fallidos junto a su resumen.
+ * <p>
+ * El {@link WatchService} solo despierta al vigía, que siempre relee las carpetas completas: así
+ * no importa perder eventos ({@code OVERFLOW}) y los volúmenes de red, que no los emiten, se
+ * revisan cada {@code app.carpetas.intervalo}. Un archivo modificado hace menos de
+ * {@code app.carpetas.quietud} se da por incompleto y se deja para la siguiente vuelta; lo más
+ * seguro sigue siendo escribirlo con otro nombre ({@code .tmp}, {@code .part} u oculto) y
+ * renombrarlo al terminar.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.carpetas", name = "enabled", havingValue = "true")
+public class CarpetaEntradaPedidos {
+
+    static final String PROCESANDO = "procesando";
+
+    private final CargarPedidosHandler handler;
+    private final ObjectMapper json;
+    private final List<Path> directorios;
+    private final Path procesando;
+    private final String procesados;
+    private final String fallidos;
+    private final Duration intervalo;
+    private final Duration quietud;
+    private final Semaphore libres;
+    private final ExecutorService pool;
+    private WatchService eventos;
+    private Thread vigia;
+
+    public CarpetaEntradaPedidos(CargarPedidosHandler handler,
+                                 ObjectMapper json,
+                                 @Value("${app.carpetas.directorios:}") List<String> directorios,
+                                 @Value("${app.carpetas.hilos:2}") int hilos,
+                                 @Value("${app.carpetas.procesados:procesados}") String procesados,
+                                 @Value("${app.carpetas.fallidos:fallidos}") String fallidos,
+                                 @Value("${app.carpetas.intervalo:PT30S}") Duration intervalo,
+                                 @Value("${app.carpetas.quietud:5s}") Duration quietud,
+                                 @Value("${app.instancia:${HOSTNAME:local}}") String instancia) {
+        this.handler = handler;
+        this.json = json;
+        this.directorios = directorios.stream().map(String::strip).filter(d -> !d.isEmpty()).map(Path::of).toList();
+        this.procesando = Path.of(PROCESANDO, instancia);
+        this.procesados = procesados;
+        this.fallidos = fallidos;
+        this.intervalo = intervalo;
+        this.quietud = quietud;
+        this.libres = new Semaphore(hilos);
+        var secuencia = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(hilos, r -> {
+            var t = new Thread(r, "carpeta-entrada-" + secuencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Lo que quedó en procesando/<instancia>/ lo reclamó esta instancia y se cortó con el reinicio:
+    // se suelta su reclamo de idempotencia (si no, seguiría IN_PROGRESS hasta el abandono) y vuelve
+    // a la carpeta, y la carga se reanuda desde su último punto de control. Las subcarpetas de las
+    // demás instancias no se tocan.
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() throws IOException {
+        eventos = FileSystems.getDefault().newWatchService();
+        for (Path dir : directorios) {
+            Files.createDirectories(dir.resolve(procesando));
+            Files.createDirectories(dir.resolve(procesados));
+            Files.createDirectories(dir.resolve(fallidos));
+            try (var cortados = Files.newDirectoryStream(dir.resolve(procesando))) {
+                for (Path p : cortados) {
+                    liberar(p);
+                    devolver(dir, p);
+                }
+            }
+            dir.register(eventos, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        vigia = new Thread(this::vigilar, "carpeta-vigia");
+        vigia.setDaemon(true);
+        vigia.start();
+        log.info("Vigilando {} con {} hilos", directorios, libres.availablePermits());
+    }
+
+    private void vigilar() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean recientes = escanear();
+                var espera = recientes ? quietud : intervalo;
+                var clave = eventos.poll(espera.toMillis(), TimeUnit.MILLISECONDS);
+                // los eventos solo despiertan; el siguiente escaneo recorre todo
+                while (clave != null) {
+                    clave.pollEvents();
+                    clave.reset();
+                    clave = eventos.poll();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // reclama lo que esté listo, esperando un hilo libre por archivo; true si quedaron archivos recientes
+    private boolean escanear() throws InterruptedException {
+        boolean recientes = false;
+        long limite = System.currentTimeMillis() - quietud.toMillis();
+        for (Path dir : directorios) {
+            try (var archivos = Files.newDirectoryStream(dir, CarpetaEntradaPedidos::candidato)) {
+                for (Path p : archivos) {
+                    if (modificado(p) > limite) {
+                        recientes = true;
+                        continue;
+                    }
+                    libres.acquire();
+                    if (!reclamar(dir, p)) libres.release();
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                log.warn("No se pudo recorrer {}", dir, e);
+            }
+        }
+        return recientes;
+    }
+
+    private static boolean candidato(Path p) {
+        String nombre = p.getFileName().toString();
+        return Files.isRegularFile(p) && !nombre.startsWith(".") && !nombre.endsWith(".tmp") && !nombre.endsWith(".part");
+    }
+
+    // un archivo que desaparece entre el listado y aquí lo reclamó otra instancia: cuenta como viejo
+    // y el move de reclamar lo descarta
+    private static long modificado(Path p) throws IOException {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (NoSuchFileException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private boolean reclamar(Path dir, Path archivo) {
+        Path reclamado = dir.resolve(procesando).resolve(System.currentTimeMillis() + "-" + archivo.getFileName());
+        try {
+            Files.move(archivo, reclamado, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false; // lo reclamó otra instancia
+        } catch (IOException e) {
+            log.warn("No se pudo reclamar {}", archivo, e);
+            return false;
+        }
+        pool.execute(() -> procesar(dir, reclamado));
+        return true;
+    }
+
+    private void procesar(Path dir, Path archivo) {
+        MDC.put("correlationId", UUID.randomUUID().toString());
+        try {
+            ResumenCarga r;
+            try (var mapeado = new ArchivoMapeado(archivo)) {
+                r = handler.ejecutar(mapeado, null, null, ProgresoCarga.NINGUNO);
+            }
+            log.info("{}: {} procesados, {} guardados, {} con error",
+                    archivo.getFileName(), r.totalProcesados(), r.guardados(), r.conError());
+            // sin cargaId no llegó a importarse (CSV ilegible)
+            archivar(archivo, dir.resolve(r.cargaId() != null ? procesados : fallidos),
+                    ".resumen.json", json.writeValueAsBytes(r));
+        } catch (CargaEnProcesoException e) {
+            // el mismo contenido se está importando por otra vía: se reintenta pasada la quietud
+            log.info("{} ya está en curso; se reintentará", archivo.getFileName());
+            devolver(dir, archivo);
+        } catch (IOException | RuntimeException e) {
+            log.error("No se pudo importar {}", archivo.getFileName(), e);
+            archivar(archivo, dir.resolve(fallidos), ".error.txt", String.valueOf(e).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            libres.release();
+            MDC.remove("correlationId");
+        }
+    }
+
+    private static void archivar(Path archivo, Path destino, String sufijo, byte[] detalle) {
+        Path movido = destino.resolve(archivo.getFileName());
+        try {
+            Files.move(archivo, movido, StandardCopyOption.ATOMIC_MOVE);
+            Files.write(destino.resolve(archivo.getFileName() + sufijo), detalle);
+        } catch (IOException e) {
+            log.error("No se pudo archivar {} en {}", archivo, destino, e);
+        }
+    }
+
+    private void liberar(Path archivo) {
+        try (var mapeado = new ArchivoMapeado(archivo)) {
+            handler.liberar(mapeado, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo liberar la carga de {}; se retomará pasado el abandono", archivo, e);
+        }
+    }
+
+    // quita el prefijo del reclamo; la fecha de modificación nueva lo hace esperar la quietud
+    private static void devolver(Path dir, Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        Path original = dir.resolve(nombre.substring(nombre.indexOf('-') + 1));
+        try {
+            Files.setLastModifiedTime(archivo, FileTime.fromMillis(System.currentTimeMillis()));
+            Files.move(archivo, Files.exists(original) ? dir.resolve(nombre) : original, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("No se pudo devolver {} a {}", archivo, dir, e);
+        }
+    }
+
+    @PreDestroy
+    void detener() throws IOException {
+        if (vigia != null) vigia.interrupt();
+        if (eventos != null) eventos.close();
+        pool.shutdownNow();
+    }
+}
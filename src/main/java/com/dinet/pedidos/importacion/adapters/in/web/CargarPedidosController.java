@@ -1,7 +1,17 @@
 package com.dinet.pedidos.importacion.adapters.in.web;
 
+import com.dinet.pedidos.importacion.application.AdmisionCargas;
 import com.dinet.pedidos.importacion.application.CargarPedidosHandler;
+import com.dinet.pedidos.importacion.application.CargasAsincronas;
+import com.dinet.pedidos.importacion.application.CargasMultiples;
+import com.dinet.pedidos.importacion.application.ErroresCarga;
+import com.dinet.pedidos.importacion.application.SubidasPorPartes;
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
 import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.application.dto.ResumenCargaMultiple;
+import com.dinet.pedidos.importacion.domain.port.TrabajosCargaAlmacen;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -10,12 +20,23 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Tag(name = "Pedidos")
 @RestController
@@ -23,28 +44,210 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class CargarPedidosController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int MAX_ERRORES_POR_PAGINA = 100_000;
+
     private final CargarPedidosHandler handler;
+    private final CargasAsincronas asincronas;
+    private final CargasMultiples multiples;
+    private final SubidasPorPartes subidas;
+    private final AdmisionCargas admision;
+    private final ErroresCarga erroresCarga;
+    private final ObjectMapper json;
 
     @Operation(
             summary = "Cargar pedidos desde CSV",
             security = { @SecurityRequirement(name = "bearerAuth") }
     )
     @PostMapping(value = "/cargar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ResumenDto> cargar(
+    public ResponseEntity<?> cargar(
             @Parameter(name = "Idempotency-Key", in = ParameterIn.HEADER, required = true)
             @RequestHeader("Idempotency-Key") String claveIdempotencia,
-            @RequestPart("file") MultipartFile archivo
-    ) throws IOException {
+            @RequestPart("file") MultipartFile archivo,
+            @Parameter(description = "Si es true responde 202 y procesa en segundo plano")
+            @RequestParam(name = "async", defaultValue = "false") boolean async,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        if (async) {
+            UUID id = asincronas.encolar(archivo, claveIdempotencia, principal(jwt));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/pedidos/cargas/" + id))
+                    .body(new TrabajoAceptadoDto(id, TrabajosCargaAlmacen.Estado.EN_COLA));
+        }
+
+        return ResponseEntity.ok(aDto(admision.ejecutar(principal(jwt), archivo.getSize(),
+                () -> handler.ejecutar(archivo, claveIdempotencia))));
+    }
+
+    @Operation(
+            summary = "Cargar varios CSV en una petición (varias partes file y/o un ZIP); idempotencia por contenido de cada archivo",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @PostMapping(value = "/cargar/multiple", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResumenMultipleDto> cargarMultiple(
+            @RequestPart("file") List<MultipartFile> archivos,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        long bytes = archivos.stream().mapToLong(MultipartFile::getSize).sum();
+        var entradas = archivos.stream()
+                .map(a -> new CargasMultiples.Entrada(a.getOriginalFilename(), a))
+                .toList();
+        var r = multiples.ejecutar(principal(jwt), bytes, entradas);
+        return ResponseEntity.ok(new ResumenMultipleDto(
+                r.archivos().stream().map(CargarPedidosController::aDto).toList(), aDto(r.total())));
+    }
+
+    private static ArchivoDto aDto(ResumenCargaMultiple.Archivo a) {
+        return new ArchivoDto(a.nombre(), a.resumen() == null ? null : aDto(a.resumen()), a.error());
+    }
 
-        ResumenCarga r = handler.ejecutar(archivo.getBytes(), claveIdempotencia);
-        ResumenDto respuesta = new ResumenDto(
-                r.totalProcesados(), r.guardados(), r.conError(),
+    private static String principal(Jwt jwt) {
+        return jwt == null ? "anonimo" : jwt.getSubject();
+    }
+
+    private static ResumenDto aDto(ResumenCarga r) {
+        return new ResumenDto(
+                r.cargaId(), r.totalProcesados(), r.guardados(),
+                r.insertados(), r.actualizados(), r.sinCambios(),
+                r.duplicadosDescartados(), r.conError(),
                 r.erroresPorFila(), r.erroresAgrupados()
         );
-        return ResponseEntity.ok(respuesta);
     }
 
-    public record ResumenDto(int totalProcesados, int guardados, int conError,
+    @Operation(
+            summary = "Consultar el estado de una carga asíncrona",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @GetMapping("/cargas/{id}")
+    public ResponseEntity<TrabajoDto> consultar(@PathVariable UUID id) {
+        return asincronas.consultar(id)
+                .map(t -> ResponseEntity.ok(new TrabajoDto(
+                        t.id(), t.estado(), t.filasProcesadas(), t.filasGuardadas(), t.filasConError(),
+                        t.resultadoJson(), t.error(), t.creadoEn(), t.actualizadoEn())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Errores por fila de una carga (por cargaId o ID de trabajo asíncrono), en orden de línea (NDJSON, o CSV con Accept: text/csv)",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @GetMapping(value = "/cargas/{id}/errores", produces = { NDJSON, CSV })
+    public ResponseEntity<StreamingResponseBody> errores(
+            @PathVariable UUID id,
+            @Parameter(description = "Primera línea a incluir; la página siguiente parte de la última línea + 1")
+            @RequestParam(name = "desdeLinea", defaultValue = "1") int desdeLinea,
+            @RequestParam(name = "limite", defaultValue = "1000") int limite,
+            @RequestHeader(name = "Accept", defaultValue = NDJSON) String accept
+    ) {
+        // acepta tanto el cargaId del resumen como el ID del trabajo asíncrono
+        UUID cargaId = erroresCarga.existe(id) ? id : asincronas.cargaId(id).orElse(null);
+        if (cargaId == null || !erroresCarga.existe(cargaId)) return ResponseEntity.notFound().build();
+        boolean csv = accept.contains(CSV);
+        int tope = Math.max(1, Math.min(limite, MAX_ERRORES_POR_PAGINA));
+        StreamingResponseBody cuerpo = out -> {
+            var w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) w.write("linea,codigo,detalle\n");
+            try {
+                erroresCarga.leer(cargaId, desdeLinea, tope, e -> escribir(w, e, csv));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            w.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? CSV : NDJSON))
+                .body(cuerpo);
+    }
+
+    private void escribir(BufferedWriter w, ErrorFila e, boolean csv) {
+        try {
+            if (csv) {
+                w.write(e.linea() + "," + e.codigo().codigo() + "," + campoCsv(e.detalle()) + "\n");
+            } else {
+                w.write(json.writeValueAsString(e));
+                w.write('\n');
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor == null) return "";
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+
+    @Operation(
+            summary = "Iniciar una subida por partes",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @PostMapping("/subidas")
+    public ResponseEntity<SubidaDto> iniciarSubida(
+            @Parameter(name = "Idempotency-Key", in = ParameterIn.HEADER, required = true)
+            @RequestHeader("Idempotency-Key") String claveIdempotencia
+    ) {
+        var s = subidas.iniciar(claveIdempotencia);
+        return ResponseEntity.created(URI.create("/pedidos/subidas/" + s.id())).body(aDto(s));
+    }
+
+    @Operation(
+            summary = "Subir (o reemplazar) la parte número {numero} de una subida",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @PutMapping(value = "/subidas/{id}/partes/{numero}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> subirParte(@PathVariable UUID id, @PathVariable int numero, InputStream cuerpo) {
+        subidas.guardarParte(id, numero, cuerpo);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Consultar las partes recibidas de una subida",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @GetMapping("/subidas/{id}")
+    public ResponseEntity<SubidaDto> consultarSubida(@PathVariable UUID id) {
+        return subidas.consultar(id)
+                .map(s -> ResponseEntity.ok(aDto(s)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(
+            summary = "Confirmar la subida e importar; si se interrumpió, reanuda desde el último lote",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @PostMapping("/subidas/{id}/confirmar")
+    public ResponseEntity<ResumenDto> confirmarSubida(
+            @PathVariable UUID id,
+            @Parameter(description = "Cantidad total de partes (0..partes-1)")
+            @RequestParam("partes") int partes,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(aDto(admision.ejecutar(principal(jwt), subidas.bytes(id),
+                () -> subidas.confirmar(id, partes))));
+    }
+
+    private static SubidaDto aDto(SubidasPorPartes.Subida s) {
+        return new SubidaDto(s.id(), s.partesRecibidas(), s.ensamblada());
+    }
+
+    public record ResumenMultipleDto(List<ArchivoDto> archivos, ResumenDto total) {}
+
+    public record ArchivoDto(String nombre, ResumenDto resumen, String error) {}
+
+    public record SubidaDto(UUID id, List<Integer> partesRecibidas, boolean ensamblada) {}
+
+    public record TrabajoAceptadoDto(UUID id, TrabajosCargaAlmacen.Estado estado) {}
+
+    public record TrabajoDto(UUID id, TrabajosCargaAlmacen.Estado estado,
+                             int filasProcesadas, int filasGuardadas, int filasConError,
+                             @JsonRawValue String resumen,
+                             String error,
+                             LocalDateTime creadoEn, LocalDateTime actualizadoEn) {}
+
+    public record ResumenDto(UUID cargaId, int totalProcesados, int guardados,
+                             int insertados, int actualizados, int sinCambios,
+                             int duplicadosDescartados, int conError,
                              List<?> erroresPorFila,
                              Map<String, Integer> erroresAgrupados) {}
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.dinet.pedidos.importacion.adapters.in.web;
+
+import com.dinet.pedidos.importacion.application.ConsultaPedidos;
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.port.PedidosConsulta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+@Tag(name = "Pedidos")
+@RestController
+@RequestMapping("/pedidos")
+@RequiredArgsConstructor
+public class ConsultarPedidosController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int MAX_PEDIDOS_POR_PAGINA = 1000;
+
+    private final ConsultaPedidos consulta;
+    private final ObjectMapper json;
+
+    @Operation(
+            summary = "Consultar pedidos por estado, rango de fecha de entrega, cliente y zona (paginado por cursor)",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public PaginaDto listar(
+            @RequestParam(name = "estado", required = false) Estado estado,
+            @RequestParam(name = "fechaDesde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam(name = "fechaHasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(name = "clienteId", required = false) String clienteId,
+            @RequestParam(name = "zonaId", required = false) String zonaId,
+            @Parameter(description = "Valor de 'siguiente' de la página anterior")
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limite", defaultValue = "100") int limite
+    ) {
+        var filtro = new PedidosConsulta.Filtro(estado, fechaDesde, fechaHasta, clienteId, zonaId);
+        var p = consulta.pagina(filtro, cursor, Math.max(1, Math.min(limite, MAX_PEDIDOS_POR_PAGINA)));
+        return new PaginaDto(p.pedidos(), p.siguiente());
+    }
+
+    @Operation(
+            summary = "Exportar todos los pedidos del filtro (NDJSON, o CSV con Accept: text/csv)",
+            security = { @SecurityRequirement(name = "bearerAuth") }
+    )
+    @GetMapping(value = "/exportar", produces = { NDJSON, CSV })
+    public ResponseEntity<StreamingResponseBody> exportar(
+            @RequestParam(name = "estado", required = false) Estado estado,
+            @RequestParam(name = "fechaDesde", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+            @RequestParam(name = "fechaHasta", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+            @RequestParam(name = "clienteId", required = false) String clienteId,
+            @RequestParam(name = "zonaId", required = false) String zonaId,
+            @RequestHeader(name = "Accept", defaultValue = NDJSON) String accept
+    ) {
+        var filtro = new PedidosConsulta.Filtro(estado, fechaDesde, fechaHasta, clienteId, zonaId);
+        ConsultaPedidos.validar(filtro);
+        boolean csv = accept.contains(CSV);
+        StreamingResponseBody cuerpo = out -> {
+            var w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            // misma cabecera que la carga: el CSV exportado se puede volver a importar
+            if (csv) w.write("numero_pedido,cliente_id,fecha_entrega,estado,zona_id,requiere_refrigeracion\n");
+            try {
+                consulta.exportar(filtro, p -> escribir(w, p, csv));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            w.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? CSV : NDJSON))
+                .body(cuerpo);
+    }
+
+    private void escribir(BufferedWriter w, Pedido p, boolean csv) {
+        try {
+            if (csv) {
+                w.write(campoCsv(p.numeroPedido()) + "," + campoCsv(p.clienteId()) + "," + p.fechaEntrega() + ","
+                        + p.estado() + "," + campoCsv(p.zonaId()) + "," + p.requiereRefrigeracion() + "\n");
+            } else {
+                w.write(json.writeValueAsString(p));
+                w.write('\n');
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0) return valor;
+        return "\"" + valor.replace("\"", "\"\"") + "\"";
+    }
+
+    public record PaginaDto(List<Pedido> pedidos, String siguiente) {}
+}
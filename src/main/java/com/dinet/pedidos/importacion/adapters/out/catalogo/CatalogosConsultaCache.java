@@ -0,0 +1,163 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Decorador en memoria de {@link CatalogosConsultaJdbc}. Los negativos (cliente inexistente o
+ * inactivo, zona inexistente) viven en cachés aparte con un TTL más corto. Un sondeo periódico de
+ * {@code max(actualizado_en)} invalida solo las entradas que cambiaron en BD; los borrados físicos
+ * no se detectan y caducan por TTL.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(prefix = "app.catalogos.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(prefix = "app.catalogos.instantanea", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class CatalogosConsultaCache implements CatalogosConsulta {
+
+    private final CatalogosConsultaJdbc origen;
+    private final boolean precargaHabilitada;
+
+    private final Cache<String, Boolean> clientes;
+    private final Cache<String, Boolean> clientesAusentes;
+    private final Cache<String, Boolean> zonas;
+    private final Cache<String, Boolean> zonasAusentes;
+
+    private LocalDateTime marcaClientes;
+    private LocalDateTime marcaZonas;
+
+    public CatalogosConsultaCache(CatalogosConsultaJdbc origen,
+                                  MeterRegistry registry,
+                                  @Value("${app.catalogos.cache.max-size:100000}") long maxSize,
+                                  @Value("${app.catalogos.cache.ttl:10m}") Duration ttl,
+                                  @Value("${app.catalogos.cache.ttl-negativo:1m}") Duration ttlNegativo,
+                                  @Value("${app.catalogos.cache.precargar:false}") boolean precargar) {
+        this.origen = origen;
+        this.precargaHabilitada = precargar;
+        this.clientes = crear(maxSize, ttl);
+        this.clientesAusentes = crear(maxSize, ttlNegativo);
+        this.zonas = crear(maxSize, ttl);
+        this.zonasAusentes = crear(maxSize, ttlNegativo);
+
+        CaffeineCacheMetrics.monitor(registry, clientes, "catalogo.clientes");
+        CaffeineCacheMetrics.monitor(registry, clientesAusentes, "catalogo.clientes.ausentes");
+        CaffeineCacheMetrics.monitor(registry, zonas, "catalogo.zonas");
+        CaffeineCacheMetrics.monitor(registry, zonasAusentes, "catalogo.zonas.ausentes");
+    }
+
+    private static Cache<String, Boolean> crear(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public boolean existeCliente(String clienteId) {
+        return clientesActivos(List.of(clienteId)).contains(clienteId);
+    }
+
+    @Override
+    public Optional<Boolean> zonaSoportaRefrigeracion(String zonaId) {
+        return Optional.ofNullable(soporteRefrigeracionPorZona(List.of(zonaId)).get(zonaId));
+    }
+
+    @Override
+    public Set<String> clientesActivos(Collection<String> clienteIds) {
+        Set<String> activos = new HashSet<>();
+        Set<String> faltantes = new HashSet<>();
+        for (String id : clienteIds) {
+            if (clientes.getIfPresent(id) != null) activos.add(id);
+            else if (clientesAusentes.getIfPresent(id) == null) faltantes.add(id);
+        }
+        if (faltantes.isEmpty()) return activos;
+
+        var encontrados = origen.clientesActivos(faltantes);
+        for (String id : faltantes) {
+            if (encontrados.contains(id)) {
+                clientes.put(id, Boolean.TRUE);
+                activos.add(id);
+            } else {
+                clientesAusentes.put(id, Boolean.TRUE);
+            }
+        }
+        return activos;
+    }
+
+    @Override
+    public Map<String, Boolean> soporteRefrigeracionPorZona(Collection<String> zonaIds) {
+        Map<String, Boolean> soporte = new HashMap<>();
+        Set<String> faltantes = new HashSet<>();
+        for (String id : zonaIds) {
+            var s = zonas.getIfPresent(id);
+            if (s != null) soporte.put(id, s);
+            else if (zonasAusentes.getIfPresent(id) == null) faltantes.add(id);
+        }
+        if (faltantes.isEmpty()) return soporte;
+
+        var encontradas = origen.soporteRefrigeracionPorZona(faltantes);
+        for (String id : faltantes) {
+            var s = encontradas.get(id);
+            if (s != null) {
+                zonas.put(id, s);
+                soporte.put(id, s);
+            } else {
+                zonasAusentes.put(id, Boolean.TRUE);
+            }
+        }
+        return soporte;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void precargar() {
+        marcaClientes = origen.ultimaActualizacionClientes().orElse(null);
+        marcaZonas = origen.ultimaActualizacionZonas().orElse(null);
+        if (!precargaHabilitada) return;
+
+        origen.clientesActualizadosDesde(null, (id, activo) -> {
+            if (activo) clientes.put(id, Boolean.TRUE);
+        });
+        origen.zonasActualizadasDesde(null, zonas::put);
+        log.info("Catálogos precargados: {} clientes, {} zonas",
+                clientes.estimatedSize(), zonas.estimatedSize());
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalogos.cache.intervalo-refresco:PT30S}",
+               initialDelayString = "${app.catalogos.cache.intervalo-refresco:PT30S}")
+    public void refrescarCambios() {
+        var maxClientes = origen.ultimaActualizacionClientes().orElse(null);
+        if (maxClientes != null && (marcaClientes == null || maxClientes.isAfter(marcaClientes))) {
+            origen.clientesActualizadosDesde(marcaClientes, (id, activo) -> {
+                clientes.invalidate(id);
+                clientesAusentes.invalidate(id);
+            });
+            marcaClientes = maxClientes;
+        }
+
+        var maxZonas = origen.ultimaActualizacionZonas().orElse(null);
+        if (maxZonas != null && (marcaZonas == null || maxZonas.isAfter(marcaZonas))) {
+            origen.zonasActualizadasDesde(marcaZonas, (id, soporte) -> {
+                zonas.invalidate(id);
+                zonasAusentes.invalidate(id);
+            });
+            marcaZonas = maxZonas;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Catálogos servidos desde una {@link InstantaneaCatalogo} mapeada en memoria, para catálogos de
+ * clientes demasiado grandes para {@link CatalogosConsultaCache}: el heap no crece con la cantidad
+ * de clientes y una consulta es un filtro de Bloom más una bisección, sin ir a la BD.
+ * <p>
+ * Cada {@code app.catalogos.instantanea.intervalo}, si cambió {@code max(actualizado_en)}, se
+ * escribe una instantánea nueva fusionando la actual con las filas cambiadas desde su marca, y se
+ * reemplaza de forma atómica (archivo y referencia); las consultas en curso terminan sobre la
+ * anterior. Los borrados físicos solo se ven en la reconstrucción completa de cada
+ * {@code completa-cada}. Al arrancar se reutiliza el archivo que haya y se pone al día; mientras
+ * no hay ninguno se consulta la BD.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(prefix = "app.catalogos.instantanea", name = "enabled", havingValue = "true")
+public class CatalogosConsultaInstantanea implements CatalogosConsulta {
+
+    private static final String ARCHIVO = "catalogo.snap";
+
+    private final CatalogosConsultaJdbc origen;
+    private final TransactionTemplate soloLectura;
+    private final Path directorio;
+    private final int bitsPorClave;
+    private final int fetchSize;
+    private final Duration completaCada;
+
+    private volatile InstantaneaCatalogo actual;
+
+    public CatalogosConsultaInstantanea(CatalogosConsultaJdbc origen,
+                                        PlatformTransactionManager transacciones,
+                                        MeterRegistry registry,
+                                        @Value("${app.catalogos.instantanea.directorio:${java.io.tmpdir}/importador-pedidos-catalogo}") Path directorio,
+                                        @Value("${app.catalogos.instantanea.bits-por-clave:10}") int bitsPorClave,
+                                        @Value("${app.catalogos.instantanea.fetch-size:10000}") int fetchSize,
+                                        @Value("${app.catalogos.instantanea.completa-cada:P1D}") Duration completaCada) {
+        this.origen = origen;
+        this.soloLectura = new TransactionTemplate(transacciones);
+        this.soloLectura.setReadOnly(true);
+        this.directorio = directorio;
+        this.bitsPorClave = bitsPorClave;
+        this.fetchSize = fetchSize;
+        this.completaCada = completaCada;
+
+        Gauge.builder("catalogo.instantanea.clientes", this, c -> c.actual == null ? 0 : c.actual.clientes())
+                .description("Clientes activos en la instantánea vigente")
+                .register(registry);
+    }
+
+    @Override
+    public boolean existeCliente(String clienteId) {
+        var i = actual;
+        return i != null ? i.clienteActivo(clienteId) : origen.existeCliente(clienteId);
+    }
+
+    @Override
+    public Optional<Boolean> zonaSoportaRefrigeracion(String zonaId) {
+        var i = actual;
+        return i != null ? Optional.ofNullable(i.zonas().get(zonaId)) : origen.zonaSoportaRefrigeracion(zonaId);
+    }
+
+    @Override
+    public Set<String> clientesActivos(Collection<String> clienteIds) {
+        var i = actual;
+        if (i == null) return origen.clientesActivos(clienteIds);
+        Set<String> activos = new HashSet<>();
+        for (String id : clienteIds) {
+            if (i.clienteActivo(id)) activos.add(id);
+        }
+        return activos;
+    }
+
+    @Override
+    public Map<String, Boolean> soporteRefrigeracionPorZona(Collection<String> zonaIds) {
+        var i = actual;
+        if (i == null) return origen.soporteRefrigeracionPorZona(zonaIds);
+        Map<String, Boolean> soporte = new HashMap<>();
+        for (String id : zonaIds) {
+            var s = i.zonas().get(id);
+            if (s != null) soporte.put(id, s);
+        }
+        return soporte;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() throws IOException {
+        Files.createDirectories(directorio);
+        Path archivo = directorio.resolve(ARCHIVO);
+        if (Files.exists(archivo)) {
+            try {
+                actual = InstantaneaCatalogo.abrir(archivo);
+                log.info("Instantánea de catálogos reutilizada: {} clientes, {} zonas",
+                        actual.clientes(), actual.zonas().size());
+            } catch (IOException e) {
+                log.warn("Instantánea de catálogos ilegible, se reconstruye", e);
+            }
+        }
+        actualizar();
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalogos.instantanea.intervalo:PT1M}",
+               initialDelayString = "${app.catalogos.instantanea.intervalo:PT1M}")
+    public synchronized void actualizar() {
+        var anterior = actual;
+        var ahora = Instant.now();
+        boolean completa = anterior == null || ahora.isAfter(anterior.completa().plus(completaCada));
+        var maxClientes = origen.ultimaActualizacionClientes().orElse(null);
+        var maxZonas = origen.ultimaActualizacionZonas().orElse(null);
+        if (!completa && Objects.equals(maxClientes, anterior.marcaClientes())
+                && Objects.equals(maxZonas, anterior.marcaZonas())) {
+            return;
+        }
+
+        var base = completa ? null : anterior;
+        long inicio = System.nanoTime();
+        try (var escritura = new InstantaneaCatalogo.Escritura(directorio)) {
+            fusionarClientes(base, escritura);
+            SortedMap<String, Boolean> zonas = new TreeMap<>(base == null ? Map.of() : base.zonas());
+            origen.zonasActualizadasDesde(base == null ? null : base.marcaZonas(), zonas::put);
+            var archivo = escritura.terminar(directorio.resolve(ARCHIVO), maxClientes, zonas, maxZonas,
+                    completa ? ahora : base.completa(), bitsPorClave);
+            actual = InstantaneaCatalogo.abrir(archivo);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("No se pudo actualizar la instantánea de catálogos", e);
+            return;
+        }
+        log.info("Instantánea de catálogos {}: {} clientes, {} zonas en {} ms", completa ? "reconstruida" : "actualizada",
+                actual.clientes(), actual.zonas().size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // fusión de dos secuencias ordenadas: la instantánea base y los clientes cambiados desde su marca
+    private void fusionarClientes(InstantaneaCatalogo base, InstantaneaCatalogo.Escritura escritura) throws IOException {
+        int n = base == null ? 0 : base.clientes();
+        int[] i = { 0 };
+        soloLectura.executeWithoutResult(status ->
+                origen.clientesOrdenadosDesde(base == null ? null : base.marcaClientes(), fetchSize, (id, activo) -> {
+                    byte[] clave = id.getBytes(StandardCharsets.UTF_8);
+                    try {
+                        while (i[0] < n && base.comparar(i[0], clave) < 0) base.copiarCliente(i[0]++, escritura);
+                        if (i[0] < n && base.comparar(i[0], clave) == 0) i[0]++;
+                        if (activo) escritura.cliente(clave);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+        while (i[0] < n) base.copiarCliente(i[0]++, escritura);
+    }
+}
@@ -1,18 +1,28 @@
 package com.dinet.pedidos.importacion.adapters.out.catalogo;
 
 import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiConsumer;
 
 @Repository
-@RequiredArgsConstructor
 public class CatalogosConsultaJdbc implements CatalogosConsulta {
 
+    private static final int MAX_IDS_POR_CONSULTA = 10_000;
+
     private final JdbcTemplate jdbc;
+    private final long desfaseMs;
+
+    public CatalogosConsultaJdbc(JdbcTemplate jdbc, @Value("${app.catalogos.desfase:30s}") Duration desfase) {
+        this.jdbc = jdbc;
+        this.desfaseMs = desfase.toMillis();
+    }
 
     @Override
     public boolean existeCliente(String clienteId) {
@@ -32,4 +42,83 @@ public class CatalogosConsultaJdbc implements CatalogosConsulta {
         );
         return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
     }
+
+    @Override
+    public Set<String> clientesActivos(Collection<String> clienteIds) {
+        Set<String> activos = new HashSet<>();
+        porTramos(clienteIds, "select id from clientes where activo = true and id = any(?)",
+                rs -> activos.add(rs.getString(1)));
+        return activos;
+    }
+
+    @Override
+    public Map<String, Boolean> soporteRefrigeracionPorZona(Collection<String> zonaIds) {
+        Map<String, Boolean> soporte = new HashMap<>();
+        porTramos(zonaIds, "select id, soporte_refrigeracion from zonas where id = any(?)",
+                rs -> soporte.put(rs.getString(1), rs.getBoolean(2)));
+        return soporte;
+    }
+
+    public Optional<LocalDateTime> ultimaActualizacionClientes() {
+        return marca("clientes");
+    }
+
+    public Optional<LocalDateTime> ultimaActualizacionZonas() {
+        return marca("zonas");
+    }
+
+    // actualizado_en es el inicio de la transacción, no su commit: una que confirma después de leer
+    // max() quedaría por debajo de la marca. La marca no pasa de ahora - desfase, así la siguiente
+    // pasada vuelve a leer ese tramo y ve las que tardaron en confirmar menos que el desfase
+    private Optional<LocalDateTime> marca(String tabla) {
+        return Optional.ofNullable(jdbc.queryForObject(
+                "select case when max(actualizado_en) is not null then least(max(actualizado_en), "
+                        + "localtimestamp - ? * interval '1 millisecond') end from " + tabla,
+                LocalDateTime.class, desfaseMs));
+    }
+
+    // desde == null recorre el catálogo completo
+    public void clientesActualizadosDesde(LocalDateTime desde, BiConsumer<String, Boolean> porCliente) {
+        RowCallbackHandler fila = rs -> porCliente.accept(rs.getString(1), rs.getBoolean(2));
+        if (desde == null) {
+            jdbc.query("select id, activo from clientes", fila);
+        } else {
+            jdbc.query("select id, activo from clientes where actualizado_en >= ?", fila, desde);
+        }
+    }
+
+    // en orden de bytes (collate "C", el de InstantaneaCatalogo); dentro de una transacción el
+    // driver trae fetchSize filas por viaje en lugar de todo el resultado
+    public void clientesOrdenadosDesde(LocalDateTime desde, int fetchSize, BiConsumer<String, Boolean> porCliente) {
+        jdbc.query(con -> {
+            var ps = con.prepareStatement(desde == null
+                    ? "select id, activo from clientes order by id collate \"C\""
+                    : "select id, activo from clientes where actualizado_en >= ? order by id collate \"C\"");
+            ps.setFetchSize(fetchSize);
+            if (desde != null) ps.setObject(1, desde);
+            return ps;
+        }, (RowCallbackHandler) rs -> porCliente.accept(rs.getString(1), rs.getBoolean(2)));
+    }
+
+    public void zonasActualizadasDesde(LocalDateTime desde, BiConsumer<String, Boolean> porZona) {
+        RowCallbackHandler fila = rs -> porZona.accept(rs.getString(1), rs.getBoolean(2));
+        if (desde == null) {
+            jdbc.query("select id, soporte_refrigeracion from zonas", fila);
+        } else {
+            jdbc.query("select id, soporte_refrigeracion from zonas where actualizado_en >= ?", fila, desde);
+        }
+    }
+
+    private void porTramos(Collection<String> ids, String sql, RowCallbackHandler fila) {
+        if (ids == null || ids.isEmpty()) return;
+        var todos = List.copyOf(new LinkedHashSet<>(ids));
+        for (int i = 0; i < todos.size(); i += MAX_IDS_POR_CONSULTA) {
+            var tramo = todos.subList(i, Math.min(i + MAX_IDS_POR_CONSULTA, todos.size())).toArray(String[]::new);
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(sql);
+                ps.setArray(1, con.createArrayOf("varchar", tramo));
+                return ps;
+            }, fila);
+        }
+    }
 }
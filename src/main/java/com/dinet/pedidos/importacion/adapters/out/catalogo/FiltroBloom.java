@@ -0,0 +1,70 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Filtro de Bloom sobre un buffer (típicamente una región mapeada de la instantánea). El tamaño
+ * en bits es potencia de dos; las {@link #HASHES} posiciones salen de dos hashes de 64 bits
+ * (h1 + i·h2), calculados sobre los bytes UTF-8 de la clave sin copiarla.
+ */
+final class FiltroBloom {
+
+    static final int HASHES = 7;
+    private static final long MAX_BITS = 1L << 33;
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+    private static final long DORADA = 0x9E3779B97F4A7C15L;
+
+    private final ByteBuffer bits;
+    private final long mascara;
+
+    FiltroBloom(ByteBuffer bits) {
+        this.bits = bits;
+        this.mascara = bits.capacity() * 8L - 1;
+    }
+
+    /** Bytes del filtro para {@code claves} claves: con 10 bits por clave, ~1 % de falsos positivos. */
+    static int bytesPara(long claves, int bitsPorClave) {
+        long m = Math.max(Long.SIZE, Math.min(MAX_BITS, claves * bitsPorClave));
+        return (int) (Long.highestOneBit(m - 1) << 1 >>> 3);
+    }
+
+    void agregar(ByteBuffer origen, int desde, int hasta) {
+        long h = fnv(origen, desde, hasta);
+        long h1 = mezclar(h);
+        long h2 = mezclar(h ^ DORADA) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mascara;
+            int pos = (int) (bit >>> 3);
+            bits.put(pos, (byte) (bits.get(pos) | 1 << (bit & 7)));
+        }
+    }
+
+    boolean puedeContener(byte[] clave) {
+        long h = FNV_BASE;
+        for (byte b : clave) h = (h ^ (b & 0xFF)) * FNV_PRIMO;
+        long h1 = mezclar(h);
+        long h2 = mezclar(h ^ DORADA) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = (h1 + i * h2) & mascara;
+            if ((bits.get((int) (bit >>> 3)) & 1 << (bit & 7)) == 0) return false;
+        }
+        return true;
+    }
+
+    private static long fnv(ByteBuffer origen, int desde, int hasta) {
+        long h = FNV_BASE;
+        for (int i = desde; i < hasta; i++) h = (h ^ (origen.get(i) & 0xFF)) * FNV_PRIMO;
+        return h;
+    }
+
+    // finalizador de MurmurHash3: FNV solo dispersa mal los bits altos
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,244 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Archivo inmutable con los IDs de clientes activos y el soporte de refrigeración de cada zona,
+ * leído mapeado en memoria. Los clientes son una tabla ordenada por bytes UTF-8 (desplazamientos
+ * {@code int} + claves concatenadas) que se busca por bisección detrás de un {@link FiltroBloom};
+ * nada de eso vive en el heap. Las zonas, pocas, se cargan en un mapa al abrir.
+ * <p>
+ * Formato: cabecera de {@value #CABECERA} bytes (mágico, versión, marcas de {@code actualizado_en},
+ * tamaños, última reconstrucción completa), filtro, zonas, desplazamientos de clientes
+ * ({@code n + 1}) y claves de clientes.
+ */
+final class InstantaneaCatalogo {
+
+    private static final int MAGICO = 0x50434154; // "PCAT"
+    private static final int VERSION = 1;
+    static final int CABECERA = 64;
+
+    private final LocalDateTime marcaClientes;
+    private final LocalDateTime marcaZonas;
+    private final Instant completa;
+    private final FiltroBloom filtro;
+    private final ByteBuffer desplazamientos;
+    private final ByteBuffer claves;
+    private final int clientes;
+    private final Map<String, Boolean> zonas;
+
+    private InstantaneaCatalogo(LocalDateTime marcaClientes, LocalDateTime marcaZonas, Instant completa,
+                                FiltroBloom filtro, ByteBuffer desplazamientos, ByteBuffer claves, int clientes,
+                                Map<String, Boolean> zonas) {
+        this.marcaClientes = marcaClientes;
+        this.marcaZonas = marcaZonas;
+        this.completa = completa;
+        this.filtro = filtro;
+        this.desplazamientos = desplazamientos;
+        this.claves = claves;
+        this.clientes = clientes;
+        this.zonas = zonas;
+    }
+
+    static InstantaneaCatalogo abrir(Path archivo) throws IOException {
+        try (var canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            var cab = canal.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA);
+            if (cab.getInt(0) != MAGICO || cab.getInt(4) != VERSION) {
+                throw new IOException("Instantánea de catálogo con formato desconocido: " + archivo);
+            }
+            int bytesFiltro = cab.getInt(24);
+            int bytesZonas = cab.getInt(28);
+            int clientes = cab.getInt(32);
+            int bytesClaves = cab.getInt(36);
+
+            long pos = CABECERA;
+            var filtro = canal.map(FileChannel.MapMode.READ_ONLY, pos, bytesFiltro);
+            pos += bytesFiltro;
+            var zonas = leerZonas(canal.map(FileChannel.MapMode.READ_ONLY, pos, bytesZonas));
+            pos += bytesZonas;
+            var desplazamientos = canal.map(FileChannel.MapMode.READ_ONLY, pos, 4L * (clientes + 1));
+            pos += 4L * (clientes + 1);
+            var claves = canal.map(FileChannel.MapMode.READ_ONLY, pos, bytesClaves);
+            // las regiones mapeadas siguen válidas al cerrar el canal (y al reemplazar el archivo)
+            return new InstantaneaCatalogo(marca(cab.getLong(8)), marca(cab.getLong(16)),
+                    Instant.ofEpochMilli(cab.getLong(40)), new FiltroBloom(filtro),
+                    desplazamientos, claves, clientes, zonas);
+        }
+    }
+
+    LocalDateTime marcaClientes() { return marcaClientes; }
+    LocalDateTime marcaZonas() { return marcaZonas; }
+    /** Cuándo empezó la última reconstrucción completa, la única que ve los borrados físicos. */
+    Instant completa() { return completa; }
+    int clientes() { return clientes; }
+    Map<String, Boolean> zonas() { return zonas; }
+
+    boolean clienteActivo(String clienteId) {
+        byte[] clave = clienteId.getBytes(StandardCharsets.UTF_8);
+        if (!filtro.puedeContener(clave)) return false;
+        int lo = 0;
+        int hi = clientes - 1;
+        while (lo <= hi) {
+            int medio = (lo + hi) >>> 1;
+            int c = comparar(medio, clave);
+            if (c < 0) lo = medio + 1;
+            else if (c > 0) hi = medio - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    /** Compara el cliente {@code i} con {@code clave}, byte a byte sin signo (el orden de {@code collate "C"}). */
+    int comparar(int i, byte[] clave) {
+        int desde = desplazamientos.getInt(4 * i);
+        int largo = desplazamientos.getInt(4 * i + 4) - desde;
+        int n = Math.min(largo, clave.length);
+        for (int j = 0; j < n; j++) {
+            int d = (claves.get(desde + j) & 0xFF) - (clave[j] & 0xFF);
+            if (d != 0) return d;
+        }
+        return largo - clave.length;
+    }
+
+    /** Copia el cliente {@code i}; solo para fusionar al reconstruir. */
+    void copiarCliente(int i, Escritura destino) throws IOException {
+        int desde = desplazamientos.getInt(4 * i);
+        int hasta = desplazamientos.getInt(4 * i + 4);
+        byte[] clave = new byte[hasta - desde];
+        claves.get(desde, clave);
+        destino.cliente(clave);
+    }
+
+    private static Map<String, Boolean> leerZonas(MappedByteBuffer region) throws IOException {
+        byte[] bytes = new byte[region.capacity()];
+        region.get(0, bytes);
+        var in = new DataInputStream(new ByteArrayInputStream(bytes));
+        int n = in.readInt();
+        Map<String, Boolean> zonas = new LinkedHashMap<>(n * 2);
+        for (int i = 0; i < n; i++) zonas.put(in.readUTF(), in.readBoolean());
+        return Collections.unmodifiableMap(zonas);
+    }
+
+    private static long micros(LocalDateTime marca) {
+        if (marca == null) return Long.MIN_VALUE;
+        return marca.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + marca.getNano() / 1_000;
+    }
+
+    private static LocalDateTime marca(long micros) {
+        if (micros == Long.MIN_VALUE) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Escribe una instantánea nueva. Los clientes llegan ya ordenados y se vuelcan a archivos
+     * temporales; al terminar se arma el archivo final (el filtro se llena recorriendo las claves
+     * mapeadas y el resto se copia con {@link FileChannel#transferFrom}) y se renombra de forma
+     * atómica sobre {@code destino}. La memoria no depende de la cantidad de clientes.
+     */
+    static final class Escritura implements Closeable {
+        private final Path directorio;
+        private final Path archivoDesplazamientos;
+        private final Path archivoClaves;
+        private final DataOutputStream desplazamientos;
+        private final OutputStream claves;
+        private long posicion;
+        private int clientes;
+
+        Escritura(Path directorio) throws IOException {
+            this.directorio = directorio;
+            this.archivoDesplazamientos = Files.createTempFile(directorio, "desplazamientos", ".tmp");
+            this.archivoClaves = Files.createTempFile(directorio, "claves", ".tmp");
+            this.desplazamientos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivoDesplazamientos), 1 << 16));
+            this.claves = new BufferedOutputStream(Files.newOutputStream(archivoClaves), 1 << 16);
+        }
+
+        /** Agrega un cliente activo; las claves deben llegar en orden estrictamente creciente. */
+        void cliente(byte[] clave) throws IOException {
+            if (posicion + clave.length > Integer.MAX_VALUE) {
+                throw new IOException("Instantánea de catálogo demasiado grande (más de 2 GB de claves)");
+            }
+            desplazamientos.writeInt((int) posicion);
+            claves.write(clave);
+            posicion += clave.length;
+            clientes++;
+        }
+
+        Path terminar(Path destino, LocalDateTime marcaClientes, SortedMap<String, Boolean> zonas,
+                      LocalDateTime marcaZonas, Instant completa, int bitsPorClave) throws IOException {
+            desplazamientos.writeInt((int) posicion);
+            desplazamientos.close();
+            claves.close();
+
+            var bufZonas = new ByteArrayOutputStream();
+            try (var out = new DataOutputStream(bufZonas)) {
+                out.writeInt(zonas.size());
+                for (var z : zonas.entrySet()) {
+                    out.writeUTF(z.getKey());
+                    out.writeBoolean(z.getValue());
+                }
+            }
+            int bytesFiltro = FiltroBloom.bytesPara(clientes, bitsPorClave);
+
+            Path temporal = Files.createTempFile(directorio, "catalogo", ".tmp");
+            try (var canal = FileChannel.open(temporal, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 var origenDesp = FileChannel.open(archivoDesplazamientos, StandardOpenOption.READ);
+                 var origenClaves = FileChannel.open(archivoClaves, StandardOpenOption.READ)) {
+                var cab = ByteBuffer.allocate(CABECERA)
+                        .putInt(MAGICO).putInt(VERSION)
+                        .putLong(micros(marcaClientes)).putLong(micros(marcaZonas))
+                        .putInt(bytesFiltro).putInt(bufZonas.size()).putInt(clientes).putInt((int) posicion)
+                        .putLong(completa.toEpochMilli())
+                        .position(0);
+                canal.write(cab, 0);
+
+                var filtro = canal.map(FileChannel.MapMode.READ_WRITE, CABECERA, bytesFiltro);
+                var bloom = new FiltroBloom(filtro);
+                var desp = origenDesp.map(FileChannel.MapMode.READ_ONLY, 0, origenDesp.size());
+                var cl = origenClaves.map(FileChannel.MapMode.READ_ONLY, 0, origenClaves.size());
+                for (int i = 0; i < clientes; i++) bloom.agregar(cl, desp.getInt(4 * i), desp.getInt(4 * i + 4));
+                filtro.force();
+
+                long pos = CABECERA + (long) bytesFiltro;
+                pos += canal.write(ByteBuffer.wrap(bufZonas.toByteArray()), pos);
+                pos = copiar(origenDesp, canal, pos);
+                copiar(origenClaves, canal, pos);
+                canal.force(true);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+            return Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private static long copiar(FileChannel origen, FileChannel destino, long pos) throws IOException {
+            long total = origen.size();
+            for (long hecho = 0; hecho < total; ) {
+                hecho += destino.transferFrom(origen.position(hecho), pos + hecho, total - hecho);
+            }
+            return pos + total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            desplazamientos.close();
+            claves.close();
+            Files.deleteIfExists(archivoDesplazamientos);
+            Files.deleteIfExists(archivoClaves);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dinet.pedidos.importacion.adapters.out.idempotencia;
+
+import com.dinet.pedidos.importacion.domain.port.IdempotenciaAlmacen;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Guarda en memoria los resultados COMPLETED (inmutables) para que los reintentos de una carga
+ * ya terminada se respondan sin ir a la base de datos.
+ */
+@Primary
+@Repository
+public class IdempotenciaAlmacenCache implements IdempotenciaAlmacen {
+
+    private final IdempotenciaAlmacenJdbc origen;
+    private final Cache<String, String> completadas;
+
+    public IdempotenciaAlmacenCache(IdempotenciaAlmacenJdbc origen,
+                                    MeterRegistry registry,
+                                    @Value("${app.idempotencia.cache.max-size:1000}") long maxSize) {
+        this.origen = origen;
+        this.completadas = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, completadas, "idempotencia.completadas");
+    }
+
+    private static String llave(String claveIdempotencia, String archivoHash) {
+        return claveIdempotencia + '\n' + archivoHash;
+    }
+
+    @Override
+    public Optional<Registro> reclamar(String claveIdempotencia, String archivoHash) {
+        var llave = llave(claveIdempotencia, archivoHash);
+        var json = completadas.getIfPresent(llave);
+        if (json != null) return Optional.of(new Registro(Estado.COMPLETED, json));
+
+        var registro = origen.reclamar(claveIdempotencia, archivoHash);
+        registro.filter(r -> r.estado() == Estado.COMPLETED && r.resultadoJson() != null)
+                .ifPresent(r -> completadas.put(llave, r.resultadoJson()));
+        return registro;
+    }
+
+    @Override
+    public void renovar(String claveIdempotencia, String archivoHash) {
+        origen.renovar(claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void liberar(String claveIdempotencia, String archivoHash) {
+        origen.liberar(claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void marcarCompletado(String claveIdempotencia, String archivoHash, String resultadoJson) {
+        origen.marcarCompletado(claveIdempotencia, archivoHash, resultadoJson);
+        completadas.put(llave(claveIdempotencia, archivoHash), resultadoJson);
+    }
+
+    @Override
+    public void marcarFallido(String claveIdempotencia, String archivoHash) {
+        origen.marcarFallido(claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void guardarAvance(String claveIdempotencia, String archivoHash, Avance avance) {
+        origen.guardarAvance(claveIdempotencia, archivoHash, avance);
+    }
+
+    @Override
+    public Optional<Avance> avance(String claveIdempotencia, String archivoHash) {
+        return origen.avance(claveIdempotencia, archivoHash);
+    }
+}
@@ -1,35 +1,103 @@
 package com.dinet.pedidos.importacion.adapters.out.idempotencia;
 
 import com.dinet.pedidos.importacion.domain.port.IdempotenciaAlmacen;
-import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.Optional;
 
 @Repository
-@RequiredArgsConstructor
 public class IdempotenciaAlmacenJdbc implements IdempotenciaAlmacen {
 
+    // El CTE inserta o re-reclama (FAILED, o IN_PROGRESS abandonado); el select externo ve la
+    // fila previa al insert, así que solo devuelve estado cuando otro ya la tenía.
+    private static final String RECLAMAR = """
+      with reclamo as (
+        insert into cargas_idempotencia(clave_idempotencia, archivo_hash, estado)
+        values (?, ?, 'IN_PROGRESS')
+        on conflict (clave_idempotencia, archivo_hash) do update
+           set estado = 'IN_PROGRESS', resultado = null
+         where cargas_idempotencia.estado = 'FAILED'
+            or (cargas_idempotencia.estado = 'IN_PROGRESS'
+                and cargas_idempotencia.actualizado_en < now() - ? * interval '1 second')
+        returning 1
+      )
+      select exists (select 1 from reclamo), c.estado, c.resultado::text
+        from (select 1) x
+        left join cargas_idempotencia c on c.clave_idempotencia = ? and c.archivo_hash = ?
+      """;
+
     private final JdbcTemplate jdbc;
+    private final long abandonoSegundos;
+
+    public IdempotenciaAlmacenJdbc(JdbcTemplate jdbc,
+                                   @Value("${app.idempotencia.abandono:1h}") Duration abandono) {
+        this.jdbc = jdbc;
+        this.abandonoSegundos = abandono.toSeconds();
+    }
+
+    @Override
+    public Optional<Registro> reclamar(String claveIdempotencia, String archivoHash) {
+        return jdbc.queryForObject(RECLAMAR, (rs, i) -> {
+            if (rs.getBoolean(1)) return Optional.<Registro>empty();
+            String estado = rs.getString(2);
+            // sin fila visible: otra transacción la reclamó justo antes que nosotros
+            return Optional.of(estado == null
+                    ? new Registro(Estado.IN_PROGRESS, null)
+                    : new Registro(Estado.valueOf(estado), rs.getString(3)));
+        }, claveIdempotencia, archivoHash, abandonoSegundos, claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void renovar(String claveIdempotencia, String archivoHash) {
+        jdbc.update("""
+            update cargas_idempotencia set actualizado_en = now()
+             where clave_idempotencia = ? and archivo_hash = ? and estado = 'IN_PROGRESS'
+            """, claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void liberar(String claveIdempotencia, String archivoHash) {
+        jdbc.update("""
+            update cargas_idempotencia set estado = 'FAILED'
+             where clave_idempotencia = ? and archivo_hash = ? and estado = 'IN_PROGRESS'
+            """, claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void marcarCompletado(String claveIdempotencia, String archivoHash, String resultadoJson) {
+        jdbc.update("""
+            update cargas_idempotencia set estado = 'COMPLETED', resultado = cast(? as jsonb)
+             where clave_idempotencia = ? and archivo_hash = ?
+            """, resultadoJson, claveIdempotencia, archivoHash);
+    }
+
+    @Override
+    public void marcarFallido(String claveIdempotencia, String archivoHash) {
+        jdbc.update("""
+            update cargas_idempotencia set estado = 'FAILED'
+             where clave_idempotencia = ? and archivo_hash = ?
+            """, claveIdempotencia, archivoHash);
+    }
 
     @Override
-    public boolean registrarInicio(String claveIdempotencia, String archivoHash) {
-        try {
-            jdbc.update("insert into cargas_idempotencia(clave_idempotencia, archivo_hash) values (?,?)",
-                    claveIdempotencia, archivoHash);
-            return true;
-        } catch (DuplicateKeyException e) {
-            return false;
-        }
+    public void guardarAvance(String claveIdempotencia, String archivoHash, Avance avance) {
+        jdbc.update("""
+            update cargas_idempotencia
+               set linea_confirmada = ?, caracter_confirmado = ?, avance = cast(? as jsonb)
+             where clave_idempotencia = ? and archivo_hash = ?
+            """, avance.linea(), avance.caracter(), avance.resumenJson(), claveIdempotencia, archivoHash);
     }
 
     @Override
-    public Optional<Estado> estadoDe(String claveIdempotencia, String archivoHash) {
-        Boolean exists = jdbc.queryForObject(
-                "select exists (select 1 from cargas_idempotencia where clave_idempotencia=? and archivo_hash=?)",
-                Boolean.class, claveIdempotencia, archivoHash);
-        return Boolean.TRUE.equals(exists) ? Optional.of(Estado.COMPLETED) : Optional.empty();
+    public Optional<Avance> avance(String claveIdempotencia, String archivoHash) {
+        return jdbc.query("""
+            select linea_confirmada, caracter_confirmado, avance::text
+              from cargas_idempotencia
+             where clave_idempotencia = ? and archivo_hash = ? and linea_confirmada is not null
+            """, (rs, i) -> new Avance(rs.getInt(1), rs.getLong(2), rs.getString(3)),
+                claveIdempotencia, archivoHash).stream().findFirst();
     }
 }
@@ -0,0 +1,137 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import org.postgresql.PGConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Unicidad de {@code numero_pedido} entre particiones. {@code pedidos} solo puede tener índices
+ * únicos que incluyan {@code fecha_entrega}, así que {@code pedidos_claves} registra la fecha (la
+ * partición) de cada número. Antes del upsert se registran los números nuevos y se bloquean
+ * todos los del lote; a los que cambian de fecha se les actualiza la fila existente (en su lugar
+ * si sigue en el mismo mes; si no, PostgreSQL la mueve de partición conservando {@code id} y
+ * {@code creado_en}), así el {@code on conflict (numero_pedido, fecha_entrega)} siguiente la
+ * encuentra como con cualquier otro cambio.
+ * <p>
+ * Debe correr en la misma transacción que el upsert: el bloqueo sobre la clave es lo que impide
+ * que dos cargas concurrentes dejen el mismo número en dos particiones.
+ */
+final class ClavesPedidos {
+
+    private static final String REGISTRAR = """
+      insert into pedidos_claves(numero_pedido, fecha_entrega)
+      select t.numero, date '1970-01-01' + t.dia
+        from unnest(?::varchar[], ?::int[]) as t(numero, dia)
+      on conflict (numero_pedido) do nothing
+      returning 1
+      """;
+
+    private static final String MOVIDOS = """
+      with bloqueadas as (
+        select k.numero_pedido, k.fecha_entrega, date '1970-01-01' + t.dia as nueva
+          from pedidos_claves k
+          join unnest(?::varchar[], ?::int[]) as t(numero, dia) on k.numero_pedido = t.numero
+           for no key update of k
+      )
+      select numero_pedido, fecha_entrega - date '1970-01-01', nueva - date '1970-01-01'
+        from bloqueadas
+       where fecha_entrega <> nueva
+      """;
+
+    private static final String MOVER = """
+      update pedidos p
+         set fecha_entrega = date '1970-01-01' + m.nueva,
+             actualizado_en = now()
+        from unnest(?::varchar[], ?::int[], ?::int[]) as m(numero, anterior, nueva)
+       where p.numero_pedido = m.numero and p.fecha_entrega = date '1970-01-01' + m.anterior
+      """;
+
+    private static final String ACTUALIZAR = """
+      update pedidos_claves k
+         set fecha_entrega = date '1970-01-01' + m.dia
+        from unnest(?::varchar[], ?::int[]) as m(numero, dia)
+       where k.numero_pedido = m.numero
+      """;
+
+    private ClavesPedidos() {}
+
+    /** Última fila de cada número del lote, en orden de primera aparición. */
+    static Map<String, Integer> ultimas(LotePedidos lote) {
+        Map<String, Integer> unicos = new LinkedHashMap<>(lote.tamanio() * 2);
+        for (int f = 0; f < lote.tamanio(); f++) unicos.put(lote.numeroPedido(f), f);
+        return unicos;
+    }
+
+    /**
+     * Números nuevos (el upsert no puede distinguirlos con {@code xmax}, que una tabla particionada
+     * no expone en {@code returning}) y números cuya fila ya cambió de fecha antes del upsert.
+     */
+    record Registro(int nuevos, Set<String> movidos) {}
+
+    /**
+     * Deja {@code pedidos_claves} apuntando a la fecha de cada fila (números sin repetir) y pasa
+     * a la fecha nueva las filas de los pedidos que la cambian.
+     */
+    static Registro registrar(Connection con, String[] numeros, int[] dias) throws SQLException {
+        var pg = con.unwrap(PGConnection.class);
+        int nuevos = 0;
+        try (var ps = con.prepareStatement(REGISTRAR)) {
+            ps.setArray(1, pg.createArrayOf("varchar", numeros));
+            ps.setArray(2, pg.createArrayOf("int4", dias));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) nuevos++;
+            }
+        }
+        if (nuevos == numeros.length) return new Registro(nuevos, Set.of());
+
+        List<String> movidos = new ArrayList<>();
+        List<Integer> anteriores = new ArrayList<>();
+        List<Integer> nuevas = new ArrayList<>();
+        try (var ps = con.prepareStatement(MOVIDOS)) {
+            ps.setArray(1, pg.createArrayOf("varchar", numeros));
+            ps.setArray(2, pg.createArrayOf("int4", dias));
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    movidos.add(rs.getString(1));
+                    anteriores.add(rs.getInt(2));
+                    nuevas.add(rs.getInt(3));
+                }
+            }
+        }
+        if (movidos.isEmpty()) return new Registro(nuevos, Set.of());
+
+        String[] numerosMovidos = movidos.toArray(String[]::new);
+        try (var ps = con.prepareStatement(MOVER)) {
+            ps.setArray(1, pg.createArrayOf("varchar", numerosMovidos));
+            ps.setArray(2, pg.createArrayOf("int4", enteros(anteriores)));
+            ps.setArray(3, pg.createArrayOf("int4", enteros(nuevas)));
+            ps.executeUpdate();
+        }
+        try (var ps = con.prepareStatement(ACTUALIZAR)) {
+            ps.setArray(1, pg.createArrayOf("varchar", numerosMovidos));
+            ps.setArray(2, pg.createArrayOf("int4", enteros(nuevas)));
+            ps.executeUpdate();
+        }
+        return new Registro(nuevos, new HashSet<>(movidos));
+    }
+
+    /**
+     * Filas escritas por el upsert ({@code returning numero_pedido}) más las que solo cambiaron
+     * de fecha: ambas cuentan como tocadas, una sola vez.
+     */
+    static int tocadas(ResultSet rs, Set<String> movidos) throws SQLException {
+        int n = movidos.size();
+        while (rs.next()) {
+            if (!movidos.contains(rs.getString(1))) n++;
+        }
+        return n;
+    }
+
+    private static int[] enteros(List<Integer> valores) {
+        return valores.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+/**
+ * Mantenimiento de las particiones mensuales de {@code pedidos}: crea las de los próximos
+ * {@code app.pedidos.particiones.meses-adelante} meses y, con {@code retencion-meses} > 0, retira
+ * las de meses más viejos. Retirar una partición es desacoplarla de {@code pedidos} (queda como
+ * tabla suelta, p. ej. para archivarla) o, con {@code al-vencer=BORRAR}, eliminarla; en ambos casos
+ * sus números se quitan de {@code pedidos_claves}.
+ */
+@Slf4j
+@Component
+public class ParticionesPedidos {
+
+    public enum AlVencer { DESACOPLAR, BORRAR }
+
+    private static final Pattern MENSUAL = Pattern.compile("pedidos_p(\\d{6})");
+    private static final DateTimeFormatter AAAAMM = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String MENSUALES = """
+      select c.relname
+        from pg_inherits i
+        join pg_class c on c.oid = i.inhrelid
+       where i.inhparent = 'pedidos'::regclass
+       order by c.relname
+      """;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionOperations tx;
+    private final Clock clock;
+    private final int mesesAdelante;
+    private final int retencionMeses;
+    private final AlVencer alVencer;
+
+    public ParticionesPedidos(JdbcTemplate jdbc,
+                              TransactionOperations tx,
+                              Clock clock,
+                              @Value("${app.pedidos.particiones.meses-adelante:3}") int mesesAdelante,
+                              @Value("${app.pedidos.particiones.retencion-meses:0}") int retencionMeses,
+                              @Value("${app.pedidos.particiones.al-vencer:DESACOPLAR}") AlVencer alVencer) {
+        this.jdbc = jdbc;
+        this.tx = tx;
+        this.clock = clock;
+        this.mesesAdelante = mesesAdelante;
+        this.retencionMeses = retencionMeses;
+        this.alVencer = alVencer;
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedidos.particiones.intervalo:PT6H}")
+    public void mantener() {
+        var actual = YearMonth.now(clock);
+        for (int m = 0; m <= mesesAdelante; m++) {
+            LocalDate mes = actual.plusMonths(m).atDay(1);
+            if (Boolean.TRUE.equals(jdbc.queryForObject("select crear_particion_pedidos(?)", Boolean.class, Date.valueOf(mes)))) {
+                log.info("Partición de pedidos creada para {}", YearMonth.from(mes));
+            }
+        }
+        if (retencionMeses <= 0) return;
+
+        var limite = actual.minusMonths(retencionMeses);
+        for (String particion : jdbc.queryForList(MENSUALES, String.class)) {
+            var m = MENSUAL.matcher(particion);
+            if (m.matches() && YearMonth.parse(m.group(1), AAAAMM).isBefore(limite)) retirar(particion);
+        }
+    }
+
+    private void retirar(String particion) {
+        tx.executeWithoutResult(status -> {
+            jdbc.update("delete from pedidos_claves k using " + particion + " p "
+                    + "where k.numero_pedido = p.numero_pedido and k.fecha_entrega = p.fecha_entrega");
+            jdbc.execute("alter table pedidos detach partition " + particion);
+            if (alVencer == AlVencer.BORRAR) jdbc.execute("drop table " + particion);
+        });
+        log.info("Partición {} retirada ({})", particion, alVencer);
+    }
+}
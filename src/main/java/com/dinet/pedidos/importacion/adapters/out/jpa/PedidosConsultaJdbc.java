@@ -0,0 +1,119 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.port.PedidosConsulta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cada filtro es una igualdad o un rango sobre columnas indexadas ({@code idx_pedidos_estado_fecha},
+ * {@code idx_pedidos_cliente_id}, {@code idx_pedidos_zona_id}). La paginación es por keyset: la
+ * página siguiente se busca con {@code fecha_entrega >= ?} más el desempate por
+ * {@code numero_pedido}, así el costo no crece con la profundidad como con {@code OFFSET}. Sin
+ * filtro de estado el orden lo da {@code idx_pedidos_fecha_numero}.
+ * <p>
+ * El recorrido completo usa un cursor del servidor: PostgreSQL solo lo abre con autocommit
+ * desactivado, por eso corre en una transacción de solo lectura, y trae
+ * {@code app.pedidos.consulta.fetch-size} filas por viaje.
+ */
+@Repository
+public class PedidosConsultaJdbc implements PedidosConsulta {
+
+    private static final String COLUMNAS = """
+      select numero_pedido, cliente_id, fecha_entrega, estado, zona_id, requiere_refrigeracion
+        from pedidos
+      """;
+    private static final String ORDEN = " order by fecha_entrega, numero_pedido";
+
+    private static final RowMapper<Pedido> PEDIDO = (rs, i) -> pedido(rs);
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate soloLectura;
+    private final int fetchSize;
+
+    public PedidosConsultaJdbc(JdbcTemplate jdbc,
+                               PlatformTransactionManager transacciones,
+                               @Value("${app.pedidos.consulta.fetch-size:1000}") int fetchSize) {
+        this.jdbc = jdbc;
+        this.soloLectura = new TransactionTemplate(transacciones);
+        this.soloLectura.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public List<Pedido> pagina(Filtro filtro, Posicion despuesDe, int limite) {
+        List<Object> args = new ArrayList<>();
+        var sql = new StringBuilder(COLUMNAS).append(where(filtro, args));
+        if (despuesDe != null) {
+            sql.append(args.isEmpty() ? " where " : " and ")
+               .append("fecha_entrega >= ? and (fecha_entrega > ? or numero_pedido > ?)");
+            var fecha = Date.valueOf(despuesDe.fechaEntrega());
+            args.add(fecha);
+            args.add(fecha);
+            args.add(despuesDe.numeroPedido());
+        }
+        sql.append(ORDEN).append(" limit ?");
+        args.add(limite);
+        return jdbc.query(sql.toString(), PEDIDO, args.toArray());
+    }
+
+    @Override
+    public void recorrer(Filtro filtro, Consumer<Pedido> destino) {
+        List<Object> args = new ArrayList<>();
+        String sql = COLUMNAS + where(filtro, args) + ORDEN;
+        soloLectura.executeWithoutResult(status -> jdbc.query(con -> {
+            var ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            return ps;
+        }, (RowCallbackHandler) rs -> destino.accept(pedido(rs))));
+    }
+
+    private static String where(Filtro f, List<Object> args) {
+        List<String> condiciones = new ArrayList<>(5);
+        if (f.estado() != null) {
+            condiciones.add("estado = ?");
+            args.add(f.estado().name());
+        }
+        if (f.fechaDesde() != null) {
+            condiciones.add("fecha_entrega >= ?");
+            args.add(Date.valueOf(f.fechaDesde()));
+        }
+        if (f.fechaHasta() != null) {
+            condiciones.add("fecha_entrega <= ?");
+            args.add(Date.valueOf(f.fechaHasta()));
+        }
+        if (f.clienteId() != null) {
+            condiciones.add("cliente_id = ?");
+            args.add(f.clienteId());
+        }
+        if (f.zonaId() != null) {
+            condiciones.add("zona_id = ?");
+            args.add(f.zonaId());
+        }
+        return condiciones.isEmpty() ? "" : " where " + String.join(" and ", condiciones);
+    }
+
+    private static Pedido pedido(ResultSet rs) throws SQLException {
+        return new Pedido(
+                rs.getString("numero_pedido"),
+                rs.getString("cliente_id"),
+                rs.getDate("fecha_entrega").toLocalDate(),
+                Estado.valueOf(rs.getString("estado")),
+                rs.getString("zona_id"),
+                rs.getBoolean("requiere_refrigeracion"));
+    }
+}
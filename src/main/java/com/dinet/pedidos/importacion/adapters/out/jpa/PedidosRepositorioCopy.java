@@ -0,0 +1,124 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Carga vía {@code COPY ... FROM STDIN} a una tabla temporal y un único merge
+ * {@code insert ... select ... on conflict}. Ante números de pedido repetidos en el lote gana
+ * la última fila, igual que {@link PedidosRepositorioJdbc}, y tampoco se reescriben las filas sin
+ * cambios. Los números se registran antes en {@link ClavesPedidos}, como en el modo {@code insert}.
+ */
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.batch", name = "modo", havingValue = "copy")
+public class PedidosRepositorioCopy implements PedidosRepositorio {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    private static final String STAGING = """
+      create temp table if not exists pedidos_staging (
+        orden                  int,
+        numero_pedido          varchar(64),
+        cliente_id             varchar(64),
+        zona_id                varchar(64),
+        fecha_dia              int,
+        estado                 varchar(16),
+        requiere_refrigeracion boolean
+      ) on commit delete rows
+      """;
+
+    private static final String COPY = """
+      copy pedidos_staging(orden, numero_pedido, cliente_id, zona_id, fecha_dia, estado, requiere_refrigeracion)
+      from stdin with (format csv)
+      """;
+
+    private static final String MERGE = """
+      insert into pedidos(numero_pedido, cliente_id, zona_id, fecha_entrega, estado, requiere_refrigeracion)
+      select distinct on (numero_pedido)
+             numero_pedido, cliente_id, zona_id, date '1970-01-01' + fecha_dia, estado, requiere_refrigeracion
+        from pedidos_staging
+       order by numero_pedido, orden desc
+      on conflict (numero_pedido, fecha_entrega) do update
+         set cliente_id = excluded.cliente_id,
+             zona_id = excluded.zona_id,
+             estado = excluded.estado,
+             requiere_refrigeracion = excluded.requiere_refrigeracion,
+             actualizado_en = now()
+       where (pedidos.cliente_id, pedidos.zona_id, pedidos.estado, pedidos.requiere_refrigeracion)
+             is distinct from
+             (excluded.cliente_id, excluded.zona_id, excluded.estado, excluded.requiere_refrigeracion)
+      returning numero_pedido
+      """;
+
+    @Override
+    public ResultadoLote upsertPorLote(LotePedidos lote) {
+        if (lote == null || lote.vacio()) return ResultadoLote.VACIO;
+
+        return tx.execute(status -> {
+            jdbc.execute(STAGING);
+            jdbc.execute((ConnectionCallback<Void>) con -> {
+                var pg = con.unwrap(PGConnection.class);
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new PGCopyOutputStream(pg, COPY), StandardCharsets.UTF_8), 64 * 1024)) {
+                    for (int i = 0; i < lote.tamanio(); i++) {
+                        out.write(Integer.toString(i));
+                        out.write(',');
+                        campo(out, lote.numeroPedido(i));
+                        out.write(',');
+                        campo(out, lote.clienteId(i));
+                        out.write(',');
+                        campo(out, lote.zonaId(i));
+                        out.write(',');
+                        out.write(Integer.toString(lote.fechaEntregaEpochDia(i)));
+                        out.write(',');
+                        out.write(lote.estado(i).name());
+                        out.write(',');
+                        out.write(lote.requiereRefrigeracion(i) ? "t" : "f");
+                        out.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+            var unicos = ClavesPedidos.ultimas(lote);
+            String[] numeros = unicos.keySet().toArray(String[]::new);
+            int[] dias = unicos.values().stream().mapToInt(lote::fechaEntregaEpochDia).toArray();
+            var registro = jdbc.execute((ConnectionCallback<ClavesPedidos.Registro>) con ->
+                    ClavesPedidos.registrar(con, numeros, dias));
+            int escritas = jdbc.query(MERGE, (ResultSetExtractor<Integer>) rs -> ClavesPedidos.tocadas(rs, registro.movidos()));
+            int nuevos = registro.nuevos();
+            int distintos = numeros.length;
+            int repetidos = lote.tamanio() - distintos;
+            return new ResultadoLote(nuevos, escritas - nuevos + repetidos, distintos - escritas);
+        });
+    }
+
+    private static void campo(Writer out, String valor) throws IOException {
+        out.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') out.write('"');
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -1,42 +1,95 @@
 package com.dinet.pedidos.importacion.adapters.out.jpa;
 
-import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
 import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
 import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Map;
 
+/**
+ * Upsert del lote en una sola sentencia: las columnas viajan como arrays y se expanden con
+ * {@code unnest}. El {@code where ... is distinct from} evita reescribir filas sin cambios (sin
+ * tuplas muertas, WAL ni disparar {@code trg_pedidos_touch}).
+ * <p>
+ * El lote viaja igual que está en memoria: cliente y zona como índices a su diccionario (que se
+ * envía una vez) y la fecha como día epoch.
+ * <p>
+ * {@code pedidos} está particionada por mes de {@code fecha_entrega}: el conflicto se detecta
+ * por {@code (numero_pedido, fecha_entrega)} dentro de la partición y {@link ClavesPedidos}
+ * mantiene la unicidad del número entre particiones.
+ */
 @Repository
 @RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.batch", name = "modo", havingValue = "insert", matchIfMissing = true)
 public class PedidosRepositorioJdbc implements PedidosRepositorio {
 
     private final JdbcTemplate jdbc;
 
-    @Override
-    public void upsertPorLote(List<Pedido> pedidos) {
-        if (pedidos == null || pedidos.isEmpty()) return;
-
-        String sql = """
+    private static final String UPSERT = """
       insert into pedidos(numero_pedido, cliente_id, zona_id, fecha_entrega, estado, requiere_refrigeracion)
-      values (?, ?, ?, ?, ?, ?)
-      on conflict (numero_pedido) do update
+      select t.numero, d.clientes[t.cliente], d.zonas[t.zona], date '1970-01-01' + t.dia, t.estado, t.frio
+        from unnest(?::varchar[], ?::int[], ?::int[], ?::int[], ?::varchar[], ?::boolean[])
+               as t(numero, cliente, zona, dia, estado, frio),
+             (select ?::varchar[] as clientes, ?::varchar[] as zonas) d
+      on conflict (numero_pedido, fecha_entrega) do update
          set cliente_id = excluded.cliente_id,
              zona_id = excluded.zona_id,
-             fecha_entrega = excluded.fecha_entrega,
              estado = excluded.estado,
              requiere_refrigeracion = excluded.requiere_refrigeracion,
              actualizado_en = now()
+       where (pedidos.cliente_id, pedidos.zona_id, pedidos.estado, pedidos.requiere_refrigeracion)
+             is distinct from
+             (excluded.cliente_id, excluded.zona_id, excluded.estado, excluded.requiere_refrigeracion)
+      returning numero_pedido
       """;
 
-        jdbc.batchUpdate(sql, pedidos, pedidos.size(), (ps, p) -> {
-            ps.setString(1, p.numeroPedido());
-            ps.setString(2, p.clienteId());
-            ps.setString(3, p.zonaId());
-            ps.setObject(4, p.fechaEntrega());
-            ps.setString(5, p.estado().name());
-            ps.setBoolean(6, p.requiereRefrigeracion());
+    @Override
+    public ResultadoLote upsertPorLote(LotePedidos lote) {
+        if (lote == null || lote.vacio()) return ResultadoLote.VACIO;
+
+        // on conflict no admite tocar dos veces la misma fila en una sentencia: gana la última
+        Map<String, Integer> unicos = ClavesPedidos.ultimas(lote);
+        int repetidos = lote.tamanio() - unicos.size();
+
+        int n = unicos.size(), i = 0;
+        String[] numeros = new String[n], estados = new String[n];
+        int[] clientes = new int[n], zonas = new int[n], dias = new int[n];
+        boolean[] refrigeracion = new boolean[n];
+        for (int f : unicos.values()) {
+            numeros[i] = lote.numeroPedido(f);
+            clientes[i] = lote.cliente(f) + 1; // los arrays de PostgreSQL empiezan en 1
+            zonas[i] = lote.zona(f) + 1;
+            dias[i] = lote.fechaEntregaEpochDia(f);
+            estados[i] = lote.estado(f).name();
+            refrigeracion[i] = lote.requiereRefrigeracion(f);
+            i++;
+        }
+        String[] diccionarioClientes = lote.clientesDistintos().toArray(String[]::new);
+        String[] diccionarioZonas = lote.zonasDistintas().toArray(String[]::new);
+
+        int[] escritas = jdbc.execute((ConnectionCallback<int[]>) con -> {
+            var registro = ClavesPedidos.registrar(con, numeros, dias);
+            var pg = con.unwrap(PGConnection.class);
+            try (var ps = con.prepareStatement(UPSERT)) {
+                ps.setArray(1, pg.createArrayOf("varchar", numeros));
+                ps.setArray(2, pg.createArrayOf("int4", clientes));
+                ps.setArray(3, pg.createArrayOf("int4", zonas));
+                ps.setArray(4, pg.createArrayOf("int4", dias));
+                ps.setArray(5, pg.createArrayOf("varchar", estados));
+                ps.setArray(6, pg.createArrayOf("bool", refrigeracion));
+                ps.setArray(7, pg.createArrayOf("varchar", diccionarioClientes));
+                ps.setArray(8, pg.createArrayOf("varchar", diccionarioZonas));
+                try (var rs = ps.executeQuery()) {
+                    return new int[] { registro.nuevos(), ClavesPedidos.tocadas(rs, registro.movidos()) };
+                }
+            }
         });
+        // escritas[1] cuenta las filas insertadas o modificadas, incluidas las que solo cambiaron de fecha
+        return new ResultadoLote(escritas[0], escritas[1] - escritas[0] + repetidos, n - escritas[1]);
     }
 }
@@ -0,0 +1,89 @@
+package com.dinet.pedidos.importacion.adapters.out.trabajos;
+
+import com.dinet.pedidos.importacion.domain.port.TrabajosCargaAlmacen;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class TrabajosCargaAlmacenJdbc implements TrabajosCargaAlmacen {
+
+    private static final String SELECT = """
+        select id, clave_idempotencia, principal, estado, filas_procesadas, filas_guardadas, filas_con_error,
+               resultado::text, error, creado_en, actualizado_en
+          from cargas_trabajos
+        """;
+
+    private static final RowMapper<Trabajo> TRABAJO = (rs, i) -> new Trabajo(
+            rs.getObject(1, UUID.class),
+            rs.getString(2),
+            rs.getString(3),
+            Estado.valueOf(rs.getString(4)),
+            rs.getInt(5),
+            rs.getInt(6),
+            rs.getInt(7),
+            rs.getString(8),
+            rs.getString(9),
+            rs.getTimestamp(10).toLocalDateTime(),
+            rs.getTimestamp(11).toLocalDateTime());
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void crear(UUID id, String claveIdempotencia, String principal, String instancia) {
+        jdbc.update("""
+            insert into cargas_trabajos(id, clave_idempotencia, principal, estado, instancia)
+            values (?,?,?,'EN_COLA',?)
+            """, id, claveIdempotencia, principal, instancia);
+    }
+
+    @Override
+    public void marcarEnProceso(UUID id) {
+        jdbc.update("update cargas_trabajos set estado='EN_PROCESO' where id=?", id);
+    }
+
+    @Override
+    public void actualizarProgreso(UUID id, int filasProcesadas, int filasGuardadas, int filasConError) {
+        jdbc.update("""
+            update cargas_trabajos
+               set filas_procesadas=?, filas_guardadas=?, filas_con_error=?
+             where id=?
+            """, filasProcesadas, filasGuardadas, filasConError, id);
+    }
+
+    @Override
+    public void marcarCompletado(UUID id, int filasProcesadas, int filasGuardadas, int filasConError,
+                                 String resultadoJson) {
+        jdbc.update("""
+            update cargas_trabajos
+               set estado='COMPLETADO', filas_procesadas=?, filas_guardadas=?, filas_con_error=?,
+                   resultado=cast(? as jsonb)
+             where id=?
+            """, filasProcesadas, filasGuardadas, filasConError, resultadoJson, id);
+    }
+
+    @Override
+    public void marcarFallido(UUID id, String error) {
+        jdbc.update("update cargas_trabajos set estado='FALLIDO', error=? where id=?", error, id);
+    }
+
+    @Override
+    public Optional<Trabajo> buscar(UUID id) {
+        List<Trabajo> list = jdbc.query(SELECT + " where id=?", TRABAJO, id);
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+
+    @Override
+    public List<Trabajo> pendientes(String instancia) {
+        return jdbc.query(SELECT + """
+             where estado in ('EN_COLA','EN_PROCESO') and (instancia = ? or instancia is null)
+             order by creado_en
+            """, TRABAJO, instancia);
+    }
+}
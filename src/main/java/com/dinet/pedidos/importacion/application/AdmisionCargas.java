@@ -0,0 +1,311 @@
+package com.dinet.pedidos.importacion.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Control de admisión de las cargas, delante de {@link CargarPedidosHandler}; las asíncronas pasan
+ * al sacarlas de la cola ({@link CargasAsincronas}).
+ * <ul>
+ *   <li>Límite global de cargas en curso que se ajusta cada {@code app.admision.intervalo} según
+ *   la latencia de escritura por fila que mide {@link TamanioLote}: se compara la del último
+ *   intervalo con una media de largo plazo y el límite baja en proporción cuando la BD se pone
+ *   lenta (como mucho a la mitad por paso) y sube de a poco mientras no empeora y se está usando.
+ *   Queda entre {@code min} y {@code max}.</li>
+ *   <li>Cada principal (el {@code sub} del JWT) tiene como mucho {@code por-cliente} cargas en
+ *   curso y {@code cola-por-cliente} esperando.</li>
+ *   <li>Al liberarse un lugar pasa primero quien tiene menos cargas en curso y, entre ellos, el
+ *   archivo más chico, con envejecimiento ({@code bytes / (1 + segundos esperando)}) para que uno
+ *   grande no espere para siempre. Además hay {@code pequenos.reserva} lugares por encima del
+ *   límite solo para archivos de hasta {@code pequenos.umbral}, así un archivo chico no queda
+ *   detrás de cargas de varios minutos.</li>
+ * </ul>
+ * Una carga que procesa varios archivos a la vez ocupa un lugar por hilo (como mucho
+ * {@code por-cliente}). Si la cola está llena o la espera supera {@code espera-max} se rechaza con
+ * {@link CapacidadExcedidaException}, estimando el reintento con la duración media de las cargas.
+ */
+@Slf4j
+@Component
+public class AdmisionCargas implements MeterBinder {
+
+    private static final double ALFA_BASE = 0.05;
+    private static final double ALFA_LIMITE = 0.2;
+    private static final double ALFA_DURACION = 0.2;
+    private static final long MAX_REINTENTO_SEGUNDOS = 300;
+
+    private final TamanioLote tamanioLote;
+    private final boolean habilitada;
+    private final int min;
+    private final int max;
+    private final int porCliente;
+    private final int maxCola;
+    private final int maxColaPorCliente;
+    private final long esperaMaxNanos;
+    private final long umbralPequeno;
+    private final int reservaPequenos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Espera> cola = new ArrayList<>();
+    private final Map<String, Integer> enCursoPorPrincipal = new HashMap<>();
+    private int enCurso;
+    private int enReserva;
+    private double limite;
+    private double duracionSegundos;
+
+    // solo desde ajustar()
+    private TamanioLote.Totales previos;
+    private double baseNanosPorFila;
+
+    private Counter rechazos;
+
+    public AdmisionCargas(TamanioLote tamanioLote,
+                          @Value("${app.admision.enabled:true}") boolean habilitada,
+                          @Value("${app.admision.inicial:4}") int inicial,
+                          @Value("${app.admision.min:1}") int min,
+                          @Value("${app.admision.max:8}") int max,
+                          @Value("${app.admision.por-cliente:2}") int porCliente,
+                          @Value("${app.admision.cola:32}") int maxCola,
+                          @Value("${app.admision.cola-por-cliente:4}") int maxColaPorCliente,
+                          @Value("${app.admision.espera-max:10s}") Duration esperaMax,
+                          @Value("${app.admision.pequenos.umbral:1MB}") DataSize umbralPequeno,
+                          @Value("${app.admision.pequenos.reserva:2}") int reservaPequenos) {
+        if (min < 1 || max < min) throw new IllegalArgumentException("Se requiere 1 <= min <= max");
+        this.tamanioLote = tamanioLote;
+        this.habilitada = habilitada;
+        this.min = min;
+        this.max = max;
+        this.porCliente = porCliente;
+        this.maxCola = maxCola;
+        this.maxColaPorCliente = maxColaPorCliente;
+        this.esperaMaxNanos = esperaMax.toNanos();
+        this.umbralPequeno = umbralPequeno.toBytes();
+        this.reservaPequenos = reservaPequenos;
+        this.limite = Math.max(min, Math.min(max, inicial));
+        this.previos = tamanioLote.totales();
+    }
+
+    private static final class Espera {
+        final String principal;
+        final long bytes;
+        final int peso;
+        final long desde = System.nanoTime();
+        final Condition turno;
+        boolean admitida;
+        boolean reserva;
+        long inicio;
+
+        Espera(String principal, long bytes, int peso, Condition turno) {
+            this.principal = principal;
+            this.bytes = bytes;
+            this.peso = peso;
+            this.turno = turno;
+        }
+    }
+
+    /**
+     * Ejecuta {@code carga} cuando hay lugar para una carga de {@code bytes} bytes del principal
+     * {@code principal}; el hilo que llama espera como mucho {@code espera-max}.
+     */
+    public <T> T ejecutar(String principal, long bytes, Supplier<T> carga) {
+        return ejecutar(principal, bytes, 1, lugares -> carga.get());
+    }
+
+    /**
+     * Para una carga que usa hasta {@code paralelos} hilos a la vez: ocupa un lugar por hilo, como
+     * mucho {@code por-cliente}, y le pasa a {@code carga} cuántos obtuvo.
+     */
+    public <T> T ejecutar(String principal, long bytes, int paralelos, IntFunction<T> carga) {
+        int peso = Math.max(1, Math.min(paralelos, porCliente));
+        if (!habilitada) return carga.apply(peso);
+        var e = admitir(principal, bytes, peso);
+        try {
+            return carga.apply(peso);
+        } finally {
+            liberar(e);
+        }
+    }
+
+    private Espera admitir(String principal, long bytes, int peso) {
+        lock.lock();
+        try {
+            var e = new Espera(principal, bytes, peso, lock.newCondition());
+            if (cola.isEmpty() && puedeEntrar(e)) {
+                ocupar(e);
+                return e;
+            }
+            if (cola.size() >= maxCola) throw rechazo("Demasiadas cargas en espera");
+            if (cola.stream().filter(o -> o.principal.equals(principal)).count() >= maxColaPorCliente) {
+                throw rechazo("Demasiadas cargas en espera para " + principal);
+            }
+            cola.add(e);
+            despachar();
+            long restante = esperaMaxNanos;
+            try {
+                while (!e.admitida && restante > 0) restante = e.turno.awaitNanos(restante);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (!e.admitida) {
+                cola.remove(e);
+                throw rechazo("Sin capacidad para nuevas cargas");
+            }
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void liberar(Espera e) {
+        double segundos = (System.nanoTime() - e.inicio) / 1e9;
+        lock.lock();
+        try {
+            if (e.reserva) enReserva--;
+            else enCurso -= e.peso;
+            enCursoPorPrincipal.computeIfPresent(e.principal, (p, n) -> n == e.peso ? null : n - e.peso);
+            duracionSegundos = duracionSegundos == 0 ? segundos : duracionSegundos + ALFA_DURACION * (segundos - duracionSegundos);
+            despachar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean puedeEntrar(Espera e) {
+        if (enCursoPorPrincipal.getOrDefault(e.principal, 0) + e.peso > porCliente) return false;
+        return cabe(e) || (e.peso == 1 && e.bytes <= umbralPequeno && enReserva < reservaPequenos);
+    }
+
+    // sin nada en curso entra aunque pese más que el límite, si no esperaría para siempre
+    private boolean cabe(Espera e) {
+        return enCurso == 0 || enCurso + e.peso <= (int) limite;
+    }
+
+    private void ocupar(Espera e) {
+        e.reserva = !cabe(e);
+        if (e.reserva) enReserva++;
+        else enCurso += e.peso;
+        enCursoPorPrincipal.merge(e.principal, e.peso, Integer::sum);
+        e.admitida = true;
+        e.inicio = System.nanoTime();
+    }
+
+    private void despachar() {
+        long ahora = System.nanoTime();
+        while (true) {
+            Espera elegida = null;
+            for (var e : cola) {
+                if (puedeEntrar(e) && (elegida == null || antes(e, elegida, ahora))) elegida = e;
+            }
+            if (elegida == null) return;
+            cola.remove(elegida);
+            ocupar(elegida);
+            elegida.turno.signal();
+        }
+    }
+
+    private boolean antes(Espera a, Espera b, long ahora) {
+        int c = Integer.compare(enCursoPorPrincipal.getOrDefault(a.principal, 0),
+                enCursoPorPrincipal.getOrDefault(b.principal, 0));
+        if (c != 0) return c < 0;
+        return costo(a, ahora) < costo(b, ahora);
+    }
+
+    private static double costo(Espera e, long ahora) {
+        return e.bytes / (1 + (ahora - e.desde) / 1e9);
+    }
+
+    private CapacidadExcedidaException rechazo(String mensaje) {
+        if (rechazos != null) rechazos.increment();
+        long espera = (long) Math.ceil(duracionSegundos * (cola.size() + 1) / Math.max(1, (int) limite));
+        return new CapacidadExcedidaException(mensaje, Math.max(1, Math.min(MAX_REINTENTO_SEGUNDOS, espera)));
+    }
+
+    /** Recalcula el límite global con la latencia por fila escrita desde la llamada anterior. */
+    @Scheduled(fixedDelayString = "${app.admision.intervalo:1s}")
+    public void ajustar() {
+        var totales = tamanioLote.totales();
+        long filas = totales.filas() - previos.filas();
+        long nanos = totales.nanos() - previos.nanos();
+        previos = totales;
+        if (filas <= 0) return;
+
+        double reciente = (double) nanos / filas;
+        // la base baja rápido y sube despacio: una racha lenta no se vuelve "lo normal"
+        if (baseNanosPorFila == 0) baseNanosPorFila = reciente;
+        else if (reciente < baseNanosPorFila) baseNanosPorFila += (reciente - baseNanosPorFila) / 2;
+        else baseNanosPorFila += ALFA_BASE * (reciente - baseNanosPorFila);
+        double gradiente = Math.max(0.5, Math.min(1.0, baseNanosPorFila / reciente));
+
+        lock.lock();
+        try {
+            double nuevo = limite * gradiente;
+            // solo crece si se está usando: sin cargas la latencia no dice nada del límite
+            if (gradiente == 1.0 && enCurso * 2 >= (int) limite) nuevo += Math.sqrt(limite);
+            double anterior = limite;
+            limite = Math.max(min, Math.min(max, limite + ALFA_LIMITE * (nuevo - limite)));
+            if ((int) anterior != (int) limite) {
+                log.info("Límite de cargas concurrentes: {} -> {} ({} µs/fila, base {} µs/fila)", (int) anterior,
+                        (int) limite, Math.round(reciente / 1e3), Math.round(baseNanosPorFila / 1e3));
+            }
+            despachar();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limite() {
+        lock.lock();
+        try {
+            return (int) limite;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int enCola() {
+        lock.lock();
+        try {
+            return cola.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int enCursoTotal() {
+        lock.lock();
+        try {
+            return enCurso + enReserva;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("importacion.admision.limite", this, AdmisionCargas::limite)
+                .description("Cargas síncronas concurrentes admitidas (sin contar la reserva para archivos chicos)")
+                .register(registry);
+        Gauge.builder("importacion.admision.en_curso", this, AdmisionCargas::enCursoTotal)
+                .description("Lugares ocupados por cargas síncronas en curso")
+                .register(registry);
+        Gauge.builder("importacion.admision.en_cola", this, AdmisionCargas::enCola)
+                .description("Cargas síncronas esperando lugar")
+                .register(registry);
+        rechazos = Counter.builder("importacion.admision.rechazos")
+                .description("Cargas rechazadas con 429 por falta de capacidad")
+                .register(registry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.dinet.pedidos.importacion.application;
+
+import lombok.Getter;
+
+@Getter
+public class CapacidadExcedidaException extends RuntimeException {
+    private final long reintentarEnSegundos;
+
+    public CapacidadExcedidaException(String mensaje, long reintentarEnSegundos) {
+        super(mensaje);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+}
@@ -0,0 +1,7 @@
+package com.dinet.pedidos.importacion.application;
+
+public class CargaEnProcesoException extends RuntimeException {
+    public CargaEnProcesoException() {
+        super("La carga con esta Idempotency-Key y archivo sigue en proceso");
+    }
+}
@@ -2,100 +2,579 @@ package com.dinet.pedidos.importacion.application;
 
 import com.dinet.pedidos.importacion.application.dto.ErrorFila;
 import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
-import com.dinet.pedidos.importacion.domain.model.Pedido;
-import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
 import com.dinet.pedidos.importacion.domain.port.IdempotenciaAlmacen;
 import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
 import com.dinet.pedidos.importacion.domain.service.ValidacionPedidoService;
+import com.dinet.pedidos.importacion.shared.compresion.Compresion;
 import com.dinet.pedidos.importacion.shared.csv.CsvPedidosParser;
+import com.dinet.pedidos.importacion.shared.csv.IndiceClaves;
 import com.dinet.pedidos.importacion.shared.crypto.Hashes;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CargarPedidosHandler {
 
-    private final CatalogosConsulta catalogos;
-    private final PedidosRepositorio pedidosRepo;
+    private final EscrituraLotes escrituraLotes;
     private final IdempotenciaAlmacen idem;
+    private final ErroresCarga erroresCarga;
     private final ValidacionPedidoService validacion;
+    private final MetricasCarga metricas;
+    private final ObjectMapper json;
 
-    @Value("${app.batch.size:500}")
-    private int batchSize;
+    private final TamanioLote tamanioLote;
+    private final int bloquesEnVuelo;
+    private final PoliticaDuplicados duplicados;
+    private final int muestraErrores;
+    private final ExecutorService validadores;
+    private final ExecutorService escritores;
+    private final long latidoMillis;
+    private final ScheduledExecutorService latidos;
+
+    public CargarPedidosHandler(EscrituraLotes escrituraLotes,
+                                IdempotenciaAlmacen idem,
+                                ErroresCarga erroresCarga,
+                                ValidacionPedidoService validacion,
+                                MetricasCarga metricas,
+                                ObjectMapper json,
+                                TamanioLote tamanioLote,
+                                @Value("${app.batch.validadores:2}") int validadores,
+                                @Value("${app.batch.escritores:2}") int escritores,
+                                @Value("${app.batch.en-vuelo:8}") int bloquesEnVuelo,
+                                @Value("${app.batch.duplicados:ULTIMA}") PoliticaDuplicados duplicados,
+                                @Value("${app.cargas.errores.muestra:100}") int muestraErrores,
+                                @Value("${app.idempotencia.latido:1m}") Duration latido) {
+        this.escrituraLotes = escrituraLotes;
+        this.idem = idem;
+        this.erroresCarga = erroresCarga;
+        this.validacion = validacion;
+        this.metricas = metricas;
+        this.json = json;
+        this.tamanioLote = tamanioLote;
+        this.bloquesEnVuelo = bloquesEnVuelo;
+        this.duplicados = duplicados;
+        this.muestraErrores = muestraErrores;
+        this.validadores = Executors.newFixedThreadPool(validadores, hilos("carga-validacion-"));
+        this.escritores = Executors.newFixedThreadPool(escritores, hilos("carga-escritura-"));
+        this.latidoMillis = latido.toMillis();
+        this.latidos = Executors.newSingleThreadScheduledExecutor(hilos("carga-latido-"));
+    }
+
+    private static ThreadFactory hilos(String prefijo) {
+        var secuencia = new AtomicInteger();
+        return r -> {
+            var t = new Thread(r, prefijo + secuencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @PreDestroy
+    public void detener() {
+        validadores.shutdownNow();
+        escritores.shutdownNow();
+        latidos.shutdownNow();
+    }
 
     public ResumenCarga ejecutar(byte[] csvBytes, String claveIdempotencia) {
-        String hash = Hashes.sha256Hex(csvBytes);
+        return ejecutar(new ByteArrayResource(csvBytes), claveIdempotencia);
+    }
+
+    public ResumenCarga ejecutar(InputStreamSource archivo, String claveIdempotencia) {
+        return ejecutar(archivo, claveIdempotencia, ProgresoCarga.NINGUNO);
+    }
+
+    /**
+     * El archivo se lee dos veces en streaming: una para el hash de idempotencia y otra para
+     * parsear, validar y persistir por lotes, de modo que la memoria no crece con su tamaño
+     * (salvo el índice de números de pedido para detectar duplicados).
+     * Un reintento de una carga ya completada devuelve el resumen guardado; si la original sigue
+     * en curso se rechaza con {@link CargaEnProcesoException}. Tras cada lote persistido se guarda
+     * un punto de control, y el reintento de una carga interrumpida continúa desde ahí.
+     * La respuesta trae hasta {@code app.cargas.errores.muestra} errores; la lista completa queda
+     * en {@link ErroresCarga} bajo el {@code cargaId} del resumen.
+     * <p>
+     * Un archivo gzip, zlib/deflate o zstd se descomprime al vuelo en cada pasada; el hash es el
+     * del contenido descomprimido, así el mismo CSV da la misma carga se envíe como se envíe.
+     */
+    public ResumenCarga ejecutar(InputStreamSource archivo, String claveIdempotencia, ProgresoCarga progreso) {
+        return ejecutar(archivo, claveIdempotencia, null, progreso);
+    }
+
+    /**
+     * Con {@code hash} ya conocido (p. ej. calculado al recibir el archivo) se omite esa pasada.
+     * Sin {@code claveIdempotencia} la clave es el propio hash ({@code sha256:<hash>}).
+     */
+    public ResumenCarga ejecutar(InputStreamSource archivo, String claveIdempotencia, String hash,
+                                 ProgresoCarga progreso) {
+        return ejecutar(archivo, claveIdempotencia, hash, progreso, null);
+    }
+
+    /** Con {@code catalogo} los lotes resuelven clientes y zonas contra ese catálogo compartido. */
+    public ResumenCarga ejecutar(InputStreamSource archivo, String claveIdempotencia, String hash,
+                                 ProgresoCarga progreso, CatalogoCompartido catalogo) {
+        var observacion = metricas.carga(MDC.get("correlationId"));
+        var csv = Compresion.descomprimida(archivo);
+        return observacion.observe(() -> procesar(csv, claveIdempotencia, hash, progreso, catalogo, observacion));
+    }
+
+    /**
+     * Suelta el reclamo de una carga de este archivo que quedó a medias (p. ej. cortada por un
+     * reinicio), así el próximo intento la retoma desde su punto de control sin esperar
+     * {@code app.idempotencia.abandono}. Solo si nadie más la está procesando.
+     */
+    public void liberar(InputStreamSource archivo, String claveIdempotencia) throws IOException {
+        String hash;
+        try (var in = Compresion.descomprimida(archivo).getInputStream()) {
+            hash = Hashes.sha256Hex(in);
+        }
+        idem.liberar(claveIdempotencia != null ? claveIdempotencia : "sha256:" + hash, hash);
+    }
+
+    private ResumenCarga procesar(InputStreamSource archivo, String claveIdempotencia, String hashConocido,
+                                  ProgresoCarga progreso, CatalogoCompartido catalogo, Observation observacion) {
+        // con ULTIMA la pasada del hash también anota la última línea de cada número de pedido
+        var claves = new IndiceClaves();
+        boolean clavesLeidas = false;
+        String hash = hashConocido;
+        if (hash == null) {
+            try {
+                hash = metricas.etapa("hash", observacion).observeChecked(() -> {
+                    try (var in = archivo.getInputStream()) {
+                        if (duplicados != PoliticaDuplicados.ULTIMA) return Hashes.sha256Hex(in);
+                        return Hashes.sha256Hex(in, s -> leerClaves(s, claves, Integer.MAX_VALUE));
+                    }
+                });
+            } catch (IOException e) {
+                return csvIlegible();
+            }
+            clavesLeidas = duplicados == PoliticaDuplicados.ULTIMA;
+        }
+        String clave = claveIdempotencia != null ? claveIdempotencia : "sha256:" + hash;
+
+        var previo = idem.reclamar(clave, hash);
+        if (previo.isPresent()) {
+            return repetida(previo.get());
+        }
+
+        // la carga se da por abandonada según actualizado_en; un bloque lento o un archivo todo
+        // inválido pueden pasar mucho sin punto de control, así que se renueva aparte
+        var latido = latir(clave, hash);
+        try {
+            return importar(archivo, clave, hash, clavesLeidas, claves, progreso, catalogo, observacion);
+        } finally {
+            latido.cancel(false);
+        }
+    }
 
-        if (idem.estadoDe(claveIdempotencia, hash).isPresent()) {
-            return ResumenCarga.vacio();
+    private ResumenCarga importar(InputStreamSource archivo, String clave, String hash, boolean clavesLeidas,
+                                  IndiceClaves claves, ProgresoCarga progreso, CatalogoCompartido catalogo,
+                                  Observation observacion) {
+        var avance = idem.avance(clave, hash).orElse(null);
+        if (avance != null) {
+            log.info("Reanudando carga {} desde la línea {}", clave, avance.linea());
+        }
+        // al reanudar con PRIMERA/RECHAZAR basta con las claves ya confirmadas
+        if (!clavesLeidas && (duplicados == PoliticaDuplicados.ULTIMA || avance != null)) {
+            int hasta = duplicados == PoliticaDuplicados.ULTIMA ? Integer.MAX_VALUE : avance.linea();
+            try (var in = archivo.getInputStream()) {
+                leerClaves(in, claves, hasta);
+            } catch (IOException e) {
+                idem.marcarFallido(clave, hash);
+                return csvIlegible();
+            }
         }
 
-        if (!idem.registrarInicio(claveIdempotencia, hash)) {
-            return ResumenCarga.vacio();
+        var carga = new Carga(progreso, observacion, catalogo, claves, clave, hash, avance);
+        ResumenCarga resumen;
+        try (carga; var in = archivo.getInputStream()) {
+            long inicio = System.nanoTime();
+            CsvPedidosParser.parse(in, carga, carga.desde());
+            metricas.parseo(System.nanoTime() - inicio - carga.esperaNanos);
+            carga.finalizar();
+            resumen = carga.resumen();
+        } catch (IOException e) {
+            // puede ser un fallo de lectura transitorio: se deja reintentar
+            carga.abortar();
+            idem.marcarFallido(clave, hash);
+            return csvIlegible();
+        } catch (RuntimeException e) {
+            carga.abortar();
+            idem.marcarFallido(clave, hash);
+            throw e;
         }
+        idem.marcarCompletado(clave, hash, aJson(resumen));
+        return resumen;
+    }
+
+    private ScheduledFuture<?> latir(String clave, String hash) {
+        return latidos.scheduleWithFixedDelay(() -> {
+            try {
+                idem.renovar(clave, hash);
+            } catch (RuntimeException e) {
+                // un fallo suelto no corta los latidos siguientes
+                log.warn("No se pudo renovar la carga {}", clave, e);
+            }
+        }, latidoMillis, latidoMillis, TimeUnit.MILLISECONDS);
+    }
 
+    // ULTIMA anota la última línea de cada número; PRIMERA/RECHAZAR, la primera hasta {@code hasta}
+    private void leerClaves(InputStream in, IndiceClaves claves, int hasta) {
         try {
-            var parsed = CsvPedidosParser.parse(csvBytes);
+            CsvPedidosParser.numerosPedido(in, (linea, numero) -> {
+                if (duplicados == PoliticaDuplicados.ULTIMA) claves.poner(numero, linea);
+                else if (linea <= hasta) claves.agregar(numero, linea);
+            });
+        } catch (IOException e) {
+            // CSV mal formado: la pasada principal lo reporta como CSV_ILEGIBLE
+        }
+    }
+
+    private ResumenCarga repetida(IdempotenciaAlmacen.Registro registro) {
+        if (registro.estado() != IdempotenciaAlmacen.Estado.COMPLETED) {
+            throw new CargaEnProcesoException();
+        }
+        // registros anteriores a V3 no guardaban resultado
+        if (registro.resultadoJson() == null) return ResumenCarga.vacio();
+        return leer(registro.resultadoJson());
+    }
 
-            var errores = new ArrayList<>(parsed.errores());
-            var hoyLima = LocalDate.now(ZoneId.of("America/Lima"));
+    private ResumenCarga leer(String resumenJson) {
+        try {
+            return json.readValue(resumenJson, ResumenCarga.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            List<Pedido> aGuardar = new ArrayList<>();
-            for (var fv : parsed.filasValidas()) {
-                var p = fv.pedido();
-                int linea = fv.linea();
+    private String aJson(ResumenCarga resumen) {
+        try {
+            return json.writeValueAsString(resumen);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    private ResumenCarga csvIlegible() {
+        metricas.rechazada(CodigoError.CSV_ILEGIBLE);
+        var err = new ErrorFila(1, CodigoError.CSV_ILEGIBLE);
+        return new ResumenCarga(null, 0, 0, 0, 0, 0, 0, 1, List.of(err),
+                Map.of(CodigoError.CSV_ILEGIBLE.codigo(), 1));
+    }
 
-                if (!catalogos.existeCliente(p.clienteId())) {
-                    errores.add(new ErrorFila(linea, "CLIENTE_NO_ENCONTRADO")); continue;
+    // estable entre reintentos y reanudaciones de la misma carga
+    private static UUID cargaId(String claveIdempotencia, String hash) {
+        return UUID.nameUUIDFromBytes((claveIdempotencia + ':' + hash).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hasta {@code asignacion.filas()} filas consecutivas ({@link TamanioLote}), en columnas, junto con los errores de parseo de
+     * su tramo de líneas; una vez validado, sus errores quedan ordenados por línea.
+     */
+    private static final class Bloque {
+        final TamanioLote.Asignacion asignacion;
+        final LotePedidos filas;
+        final List<ErrorFila> errores = new ArrayList<>();
+        LotePedidos validos;
+        int procesadas;
+        int guardados;
+        int duplicados;
+        int ultimaLinea;
+        long finCaracter;
+        PedidosRepositorio.ResultadoLote escritura = PedidosRepositorio.ResultadoLote.VACIO;
+
+        Bloque(TamanioLote.Asignacion asignacion) {
+            this.asignacion = asignacion;
+            this.filas = new LotePedidos(asignacion.filas());
+            this.validos = filas;
+        }
+
+        boolean vacio() { return procesadas == 0; }
+    }
+
+    /**
+     * Pipeline parseo → validación ({@code app.batch.validadores} hilos) → persistencia
+     * ({@code app.batch.escritores} hilos). Como mucho hay {@code app.batch.en-vuelo} bloques en
+     * curso; el hilo que parsea recoge los resultados en el orden de los bloques, así los errores
+     * salen ordenados por línea sin importar qué hilo terminó antes, y tras recogerlos todo lo
+     * anterior está persistido: ahí se guarda el punto de control.
+     * <p>
+     * Cada error recogido se agrega al archivo de la carga y, mientras quepa, a la muestra; al
+     * reanudar, contadores y muestra parten del punto de control.
+     */
+    private final class Carga implements CsvPedidosParser.Destino, AutoCloseable {
+        private final ProgresoCarga progreso;
+        private final Observation observacion;
+        private final CatalogoCompartido catalogo;
+        private final IndiceClaves claves;
+        private final String claveIdempotencia;
+        private final String hash;
+        private final IdempotenciaAlmacen.Avance reanudacion;
+        private final UUID cargaId;
+        private final ErroresCarga.Escritor archivoErrores;
+        private final String correlationId = MDC.get("correlationId");
+        private final Semaphore enVuelo = new Semaphore(bloquesEnVuelo);
+        private final Deque<CompletableFuture<Bloque>> enCurso = new ArrayDeque<>();
+        private volatile boolean abortada;
+
+        private Bloque actual = new Bloque(tamanioLote.asignar());
+        private final List<ErrorFila> muestra = new ArrayList<>();
+        private final int[] porCodigo = new int[CodigoError.cantidad()];
+        private int totalProcesados;
+        private int confirmadas;
+        private int guardados;
+        private int descartadas;
+        private int conError;
+        private PedidosRepositorio.ResultadoLote escrituras = PedidosRepositorio.ResultadoLote.VACIO;
+        long esperaNanos;
+
+        Carga(ProgresoCarga progreso, Observation observacion, CatalogoCompartido catalogo, IndiceClaves claves,
+              String claveIdempotencia, String hash, IdempotenciaAlmacen.Avance reanudacion) {
+            this.progreso = progreso;
+            this.observacion = observacion;
+            this.catalogo = catalogo;
+            this.claves = claves;
+            this.claveIdempotencia = claveIdempotencia;
+            this.hash = hash;
+            this.reanudacion = reanudacion;
+            this.cargaId = cargaId(claveIdempotencia, hash);
+            this.archivoErrores = erroresCarga.abrir(cargaId, reanudacion == null ? 0 : reanudacion.linea());
+            progreso.iniciada(cargaId);
+            if (reanudacion != null) {
+                var previo = leer(reanudacion.resumenJson());
+                totalProcesados = confirmadas = previo.totalProcesados();
+                guardados = previo.guardados();
+                escrituras = new PedidosRepositorio.ResultadoLote(
+                        previo.insertados(), previo.actualizados(), previo.sinCambios());
+                descartadas = previo.duplicadosDescartados();
+                conError = previo.conError();
+                previo.erroresAgrupados().forEach((c, n) -> porCodigo[CodigoError.de(c).ordinal()] = n);
+                try {
+                    erroresCarga.leer(cargaId, 0, muestraErrores, muestra::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-                var soporte = catalogos.zonaSoportaRefrigeracion(p.zonaId());
-                if (soporte.isEmpty()) {
-                    errores.add(new ErrorFila(linea, "ZONA_INVALIDA")); continue;
+            }
+        }
+
+        CsvPedidosParser.Posicion desde() {
+            return reanudacion == null ? null
+                    : new CsvPedidosParser.Posicion(reanudacion.linea(), reanudacion.caracter());
+        }
+
+        @Override
+        public void filaValida(int linea, CsvPedidosParser.Fila fila) {
+            totalProcesados++;
+            actual.procesadas++;
+            if (repetida(linea, fila.numeroPedido())) return;
+            actual.filas.agregar(linea, fila.numeroPedido(), fila.clienteId(), fila.zonaId(),
+                    fila.fechaEntregaEpochDia(), fila.estado(), fila.requiereRefrigeracion());
+        }
+
+        // el bloque se corta entre registros para conocer la posición desde la que reanudar; cuentan
+        // también las filas con error, así un archivo casi todo inválido no junta sus errores en un
+        // solo bloque ni se queda sin puntos de control
+        @Override
+        public void finRegistro(int linea, long caracter) {
+            actual.ultimaLinea = linea;
+            actual.finCaracter = caracter;
+            if (actual.procesadas >= actual.asignacion.filas()) despachar();
+        }
+
+        @Override
+        public void error(ErrorFila error) {
+            totalProcesados++;
+            actual.procesadas++;
+            actual.errores.add(error);
+        }
+
+        // Solo la fila que sobrevive por número de pedido sigue a validación y persistencia.
+        private boolean repetida(int linea, CharSequence numero) {
+            switch (duplicados) {
+                case ULTIMA -> {
+                    int ultima = claves.valor(numero);
+                    if (ultima == IndiceClaves.AUSENTE || ultima == linea) return false;
                 }
-                if (p.requiereRefrigeracion() && !soporte.get()) {
-                    errores.add(new ErrorFila(linea, "CADENA_FRIO_NO_SOPORTADA")); continue;
+                case PRIMERA -> {
+                    if (claves.agregar(numero, linea) == IndiceClaves.AUSENTE) return false;
                 }
-                if (p.fechaEntrega().isBefore(hoyLima)) {
-                    errores.add(new ErrorFila(linea, "FECHA_INVALIDA")); continue;
+                case RECHAZAR -> {
+                    if (claves.agregar(numero, linea) == IndiceClaves.AUSENTE) return false;
+                    actual.errores.add(new ErrorFila(linea, CodigoError.NUMERO_PEDIDO_DUPLICADO));
+                    return true;
                 }
+            }
+            actual.duplicados++;
+            return true;
+        }
+
+        private void despachar() {
+            var bloque = actual;
+            actual = new Bloque(tamanioLote.asignar());
+            long inicio = System.nanoTime();
+            try {
+                enVuelo.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Carga interrumpida", e);
+            }
+            esperaNanos += System.nanoTime() - inicio;
+            var f = CompletableFuture.supplyAsync(conMdc(() -> validar(bloque)), validadores)
+                    .thenApplyAsync(conMdc(this::guardar), escritores)
+                    .whenComplete((b, ex) -> enVuelo.release());
+            enCurso.add(f);
+            recoger(false);
+        }
 
-                var codigos = validacion.validar(p);
-                if (!codigos.isEmpty()) {
-                    for (String c : codigos) errores.add(new ErrorFila(linea, c));
+        private Bloque validar(Bloque b) {
+            if (abortada || b.filas.vacio()) return b;
+            return metricas.etapa("validacion", observacion).observe(() -> validarBloque(b));
+        }
+
+        private Bloque validarBloque(Bloque b) {
+            var lote = b.filas;
+            var resultado = catalogo == null
+                    ? validacion.validar(lote)
+                    : validacion.validar(lote, catalogo.resolver(lote));
+
+            List<Integer> validos = new ArrayList<>(lote.tamanio());
+            for (int i = 0; i < resultado.tamanio(); i++) {
+                if (resultado.valida(i)) {
+                    validos.add(i);
                     continue;
                 }
-                aGuardar.add(p);
+                // con app.validacion.modo=TODOS una fila puede traer varios errores
+                for (CodigoError c : resultado.errores(i)) b.errores.add(new ErrorFila(lote.linea(i), c));
             }
+            b.errores.sort(Comparator.comparingInt(ErrorFila::linea));
+            // orden estable por clave: escritores concurrentes bloquean filas en el mismo orden
+            validos.sort(Comparator.comparing(lote::numeroPedido));
+            b.validos = lote.seleccion(validos.stream().mapToInt(Integer::intValue).toArray());
+            return b;
+        }
 
-            int guardados = 0;
-            for (int i = 0; i < aGuardar.size(); i += batchSize) {
-                int fin = Math.min(i + batchSize, aGuardar.size());
-                var sub = aGuardar.subList(i, fin);
-                pedidosRepo.upsertPorLote(sub);
-                guardados += sub.size();
+        private Bloque guardar(Bloque b) {
+            if (abortada || b.validos.vacio()) return b;
+            long inicio = System.nanoTime();
+            EscrituraLotes.Resultado r;
+            try {
+                r = metricas.etapa("persistencia", observacion).observe(() -> escrituraLotes.escribir(b.validos));
+            } catch (RuntimeException e) {
+                tamanioLote.registrar(b.asignacion, b.validos.tamanio(), System.nanoTime() - inicio, true);
+                throw e;
+            }
+            tamanioLote.registrar(b.asignacion, b.validos.tamanio(), System.nanoTime() - inicio, r.reintentos() > 0);
+            b.escritura = r.escritura();
+            b.guardados = b.validos.tamanio() - r.errores().size();
+            if (!r.errores().isEmpty()) {
+                b.errores.addAll(r.errores());
+                b.errores.sort(Comparator.comparingInt(ErrorFila::linea));
             }
+            return b;
+        }
 
-            int totalProcesados = parsed.filasValidas().size() + parsed.errores().size();
-            int conError = errores.size();
+        private void recoger(boolean esperar) {
+            Bloque ultimo = null;
+            while (!enCurso.isEmpty() && (esperar || enCurso.peekFirst().isDone())) {
+                Bloque b;
+                try {
+                    b = enCurso.pollFirst().join();
+                } catch (CompletionException e) {
+                    abortar();
+                    if (e.getCause() instanceof RuntimeException re) throw re;
+                    throw e;
+                }
+                int lineaAnterior = -1;
+                for (ErrorFila e : b.errores) {
+                    archivoErrores.escribir(e);
+                    if (muestra.size() < muestraErrores) muestra.add(e);
+                    porCodigo[e.codigo().ordinal()]++;
+                    metricas.rechazada(e.codigo());
+                    // errores ordenados por línea: se cuenta cada fila una vez
+                    if (e.linea() != lineaAnterior) conError++;
+                    lineaAnterior = e.linea();
+                }
+                confirmadas += b.procesadas;
+                guardados += b.guardados;
+                descartadas += b.duplicados;
+                escrituras = escrituras.mas(b.escritura);
+                metricas.filas(b.procesadas, b.guardados);
+                metricas.escritura(b.escritura);
+                metricas.duplicadas(b.duplicados);
+                if (b.ultimaLinea > 0) ultimo = b;
+            }
+            if (ultimo == null) return;
+            archivoErrores.vaciar();
+            idem.guardarAvance(claveIdempotencia, hash, new IdempotenciaAlmacen.Avance(
+                    ultimo.ultimaLinea, ultimo.finCaracter, aJson(acumulado(List.of()))));
+            progreso.avance(totalProcesados, guardados, conError);
+        }
 
-            Map<String,Integer> agrupados = new HashMap<>();
-            for (ErrorFila e : errores) agrupados.merge(e.motivo(), 1, Integer::sum);
+        void finalizar() {
+            if (!actual.vacio()) despachar();
+            recoger(true);
+            progreso.avance(totalProcesados, guardados, conError);
+        }
 
-            return new ResumenCarga(totalProcesados, guardados, conError, errores, agrupados);
+        void abortar() {
+            abortada = true;
+        }
 
-        } catch (IOException e) {
-            var err = new ErrorFila(1, "CSV_ILEGIBLE");
-            return new ResumenCarga(0, 0, 1, List.of(err), Map.of("CSV_ILEGIBLE", 1));
+        @Override
+        public void close() {
+            archivoErrores.close();
+        }
+
+        ResumenCarga resumen() {
+            return acumulado(muestra);
+        }
+
+        // lo confirmado hasta el último bloque recogido
+        private ResumenCarga acumulado(List<ErrorFila> erroresPorFila) {
+            Map<String, Integer> agrupados = new LinkedHashMap<>();
+            for (CodigoError c : CodigoError.values()) {
+                if (porCodigo[c.ordinal()] > 0) agrupados.put(c.codigo(), porCodigo[c.ordinal()]);
+            }
+            return new ResumenCarga(cargaId, confirmadas, guardados,
+                    escrituras.insertados(), escrituras.actualizados(), escrituras.sinCambios(),
+                    descartadas, conError, List.copyOf(erroresPorFila), agrupados);
+        }
+
+        private <T> Supplier<T> conMdc(Supplier<T> tarea) {
+            return () -> {
+                if (correlationId != null) MDC.put("correlationId", correlationId);
+                try {
+                    return tarea.get();
+                } finally {
+                    MDC.remove("correlationId");
+                }
+            };
+        }
+
+        private <T, R> Function<T, R> conMdc(Function<T, R> tarea) {
+            return t -> conMdc(() -> tarea.apply(t)).get();
         }
     }
-}
\ No newline at end of file
+}
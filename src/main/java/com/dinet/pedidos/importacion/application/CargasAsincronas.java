@@ -0,0 +1,225 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.domain.port.TrabajosCargaAlmacen;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Cargas en segundo plano: el archivo se copia a disco local, se registra el trabajo en
+ * {@code cargas_trabajos} y un pool acotado lo procesa con {@link CargarPedidosHandler}.
+ * Si la cola está llena se rechaza con {@link CapacidadExcedidaException}. Al sacarlo de la cola
+ * pasa por {@link AdmisionCargas} con el principal que lo encoló, como una carga síncrona.
+ */
+@Slf4j
+@Service
+public class CargasAsincronas {
+
+    private static final long INTERVALO_PROGRESO_MS = 1000;
+
+    private final CargarPedidosHandler handler;
+    private final TrabajosCargaAlmacen trabajos;
+    private final AdmisionCargas admision;
+    private final ObjectMapper json;
+    private final Path directorio;
+    private final String instancia;
+    private final ThreadPoolExecutor pool;
+    // trabajo -> cargaId mientras corre; al terminar queda en el resumen guardado
+    private final Map<UUID, UUID> cargasEnCurso = new ConcurrentHashMap<>();
+
+    public CargasAsincronas(CargarPedidosHandler handler,
+                            TrabajosCargaAlmacen trabajos,
+                            AdmisionCargas admision,
+                            ObjectMapper json,
+                            @Value("${app.cargas.async.hilos:2}") int hilos,
+                            @Value("${app.cargas.async.cola:8}") int cola,
+                            @Value("${app.cargas.async.directorio:${java.io.tmpdir}/importador-pedidos}") Path directorio,
+                            @Value("${app.instancia:${HOSTNAME:local}}") String instancia) {
+        this.handler = handler;
+        this.trabajos = trabajos;
+        this.admision = admision;
+        this.json = json;
+        this.directorio = directorio;
+        this.instancia = instancia;
+        var secuencia = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    var t = new Thread(r, "carga-async-" + secuencia.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Lo que esta instancia tenía en cola o en proceso se cortó con el reinicio: si su archivo sigue
+    // en el directorio se suelta su reclamo de idempotencia y se vuelve a encolar (la carga se reanuda
+    // desde su último punto de control); si no, queda FALLIDO. Los trabajos de otras instancias no se tocan.
+    @EventListener(ApplicationReadyEvent.class)
+    public void recuperarInterrumpidos() throws IOException {
+        Files.createDirectories(directorio);
+        Set<Path> reanudados = new HashSet<>();
+        for (var t : trabajos.pendientes(instancia)) {
+            Path archivo = directorio.resolve(t.id() + ".csv");
+            if (Files.exists(archivo) && reanudar(t, archivo)) {
+                reanudados.add(archivo);
+            } else {
+                trabajos.marcarFallido(t.id(), "INTERRUMPIDO_POR_REINICIO");
+            }
+        }
+        if (!reanudados.isEmpty()) log.warn("{} cargas asíncronas reanudadas tras reinicio", reanudados.size());
+        try (var archivos = Files.list(directorio)) {
+            archivos.filter(p -> !reanudados.contains(p)).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private boolean reanudar(TrabajosCargaAlmacen.Trabajo t, Path archivo) {
+        try {
+            long bytes = Files.size(archivo);
+            handler.liberar(new FileSystemResource(archivo), t.claveIdempotencia());
+            pool.execute(() -> procesar(t.id(), archivo, bytes, t.claveIdempotencia(), t.principal(), null));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo reanudar la carga asíncrona {}", t.id(), e);
+            return false;
+        }
+    }
+
+    public UUID encolar(InputStreamSource archivo, String claveIdempotencia, String principal) {
+        if (pool.getQueue().remainingCapacity() == 0) {
+            throw new CapacidadExcedidaException("Cola de cargas llena", 30);
+        }
+
+        UUID id = UUID.randomUUID();
+        Path destino = directorio.resolve(id + ".csv");
+        long bytes;
+        try (var in = archivo.getInputStream()) {
+            bytes = Files.copy(in, destino, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        trabajos.crear(id, claveIdempotencia, principal, instancia);
+        String cid = MDC.get("correlationId");
+        try {
+            pool.execute(() -> procesar(id, destino, bytes, claveIdempotencia, principal, cid));
+        } catch (RejectedExecutionException e) {
+            trabajos.marcarFallido(id, "RECHAZADO_COLA_LLENA");
+            borrar(destino);
+            throw new CapacidadExcedidaException("Cola de cargas llena", 30);
+        }
+        return id;
+    }
+
+    public Optional<TrabajosCargaAlmacen.Trabajo> consultar(UUID id) {
+        return trabajos.buscar(id);
+    }
+
+    /** El {@code cargaId} de los errores del trabajo, una vez que empezó a procesarse. */
+    public Optional<UUID> cargaId(UUID trabajoId) {
+        var enCurso = cargasEnCurso.get(trabajoId);
+        if (enCurso != null) return Optional.of(enCurso);
+        return trabajos.buscar(trabajoId)
+                .map(TrabajosCargaAlmacen.Trabajo::resultadoJson)
+                .map(r -> leer(r).cargaId());
+    }
+
+    private ResumenCarga leer(String resumenJson) {
+        try {
+            return json.readValue(resumenJson, ResumenCarga.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void procesar(UUID id, Path archivo, long bytes, String claveIdempotencia, String principal,
+                          String correlationId) {
+        if (correlationId != null) MDC.put("correlationId", correlationId);
+        boolean terminado = true;
+        try {
+            ResumenCarga r = admitida(principal, bytes, () -> {
+                trabajos.marcarEnProceso(id);
+                return handler.ejecutar(new FileSystemResource(archivo), claveIdempotencia, progresoDe(id));
+            });
+            trabajos.marcarCompletado(id, r.totalProcesados(), r.guardados(), r.conError(), json.writeValueAsString(r));
+        } catch (InterruptedException e) {
+            // apagado esperando lugar: sigue EN_COLA con su archivo y se retoma al reiniciar
+            Thread.currentThread().interrupt();
+            terminado = false;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Carga asíncrona {} fallida", id, e);
+            trabajos.marcarFallido(id, e.getMessage());
+        } finally {
+            cargasEnCurso.remove(id);
+            if (terminado) borrar(archivo);
+            MDC.remove("correlationId");
+        }
+    }
+
+    // el trabajo ya se aceptó con 202: si la admisión lo rechaza se vuelve a pedir lugar pasado el
+    // tiempo que sugiere, en lugar de darlo por fallido
+    private <T> T admitida(String principal, long bytes, Supplier<T> carga) throws InterruptedException {
+        while (true) {
+            try {
+                return admision.ejecutar(principal, bytes, carga);
+            } catch (CapacidadExcedidaException e) {
+                log.debug("Carga asíncrona de {} sin lugar; se reintenta en {} s", principal, e.getReintentarEnSegundos());
+                TimeUnit.SECONDS.sleep(e.getReintentarEnSegundos());
+            }
+        }
+    }
+
+    private ProgresoCarga progresoDe(UUID id) {
+        var ultimo = new long[] { System.currentTimeMillis() };
+        return new ProgresoCarga() {
+            @Override
+            public void avance(int procesados, int guardados, int conError) {
+                long ahora = System.currentTimeMillis();
+                if (ahora - ultimo[0] < INTERVALO_PROGRESO_MS) return;
+                ultimo[0] = ahora;
+                trabajos.actualizarProgreso(id, procesados, guardados, conError);
+            }
+
+            @Override
+            public void iniciada(UUID cargaId) {
+                cargasEnCurso.put(id, cargaId);
+            }
+        };
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", archivo, e);
+        }
+    }
+
+    @PreDestroy
+    void detener() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,228 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.application.dto.ResumenCargaMultiple;
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Importa varios archivos en una sola petición: partes sueltas y/o ZIPs, cuyas entradas se leen
+ * directamente del ZIP (copiado a disco local) sin extraerlas. Cada archivo es una carga
+ * independiente de {@link CargarPedidosHandler}, con idempotencia por contenido
+ * ({@code sha256:<hash>}), y se procesan hasta {@code app.cargas.multiples.hilos} a la vez en un
+ * pool compartido entre peticiones, con un lugar de {@link AdmisionCargas} por cada uno (la
+ * petición usa tantos hilos como lugares obtuvo). Todos resuelven clientes y zonas contra un mismo
+ * {@link CatalogoCompartido}.
+ * <p>
+ * Un archivo que falla (o que repite el contenido de otro que sigue en curso) se informa en su
+ * resultado sin cortar los demás.
+ */
+@Slf4j
+@Service
+public class CargasMultiples {
+
+    private static final byte[] MAGICO_ZIP = { 'P', 'K', 3, 4 };
+
+    /** Un archivo recibido, con el nombre con el que se informa su resultado. */
+    public record Entrada(String nombre, InputStreamSource contenido) {}
+
+    private final CargarPedidosHandler handler;
+    private final CatalogosConsulta catalogos;
+    private final AdmisionCargas admision;
+    private final int hilos;
+    private final Path directorio;
+    private final int maxArchivos;
+    private final ExecutorService pool;
+
+    public CargasMultiples(CargarPedidosHandler handler,
+                           CatalogosConsulta catalogos,
+                           AdmisionCargas admision,
+                           @Value("${app.cargas.multiples.hilos:4}") int hilos,
+                           @Value("${app.cargas.multiples.max-archivos:500}") int maxArchivos,
+                           @Value("${app.cargas.multiples.directorio:${java.io.tmpdir}/importador-pedidos-multiples}") Path directorio) {
+        this.handler = handler;
+        this.catalogos = catalogos;
+        this.admision = admision;
+        this.hilos = hilos;
+        this.maxArchivos = maxArchivos;
+        this.directorio = directorio;
+        var secuencia = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(hilos, r -> {
+            var t = new Thread(r, "carga-multiple-" + secuencia.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        pool.shutdownNow();
+    }
+
+    /** {@code bytes} es el tamaño de todo lo recibido, para la admisión de {@code principal}. */
+    public ResumenCargaMultiple ejecutar(String principal, long bytes, List<Entrada> recibidas) {
+        List<ZipFile> zips = new ArrayList<>();
+        List<Path> copias = new ArrayList<>();
+        try {
+            List<Entrada> entradas = new ArrayList<>();
+            for (var e : recibidas) {
+                if (!esZip(e.contenido())) {
+                    entradas.add(e);
+                    continue;
+                }
+                Path copia = copiar(e.contenido());
+                copias.add(copia);
+                var zip = abrir(copia, e.nombre());
+                zips.add(zip);
+                expandir(zip, e.nombre(), entradas);
+            }
+            if (entradas.isEmpty()) {
+                throw new SubidaInvalidaException("No se recibió ningún archivo", List.of());
+            }
+            if (entradas.size() > maxArchivos) {
+                throw new SubidaInvalidaException("Demasiados archivos", List.of("máximo " + maxArchivos));
+            }
+            return admision.ejecutar(principal, bytes, Math.min(hilos, entradas.size()),
+                    paralelos -> procesar(entradas, paralelos));
+        } finally {
+            for (var z : zips) cerrar(z);
+            for (var c : copias) borrar(c);
+        }
+    }
+
+    // paralelos trabajadores que se reparten las entradas en orden
+    private ResumenCargaMultiple procesar(List<Entrada> entradas, int paralelos) {
+        var catalogo = new CatalogoCompartido(catalogos);
+        String correlationId = MDC.get("correlationId");
+        var archivos = new ResumenCargaMultiple.Archivo[entradas.size()];
+        var siguiente = new AtomicInteger();
+        List<Future<?>> pendientes = new ArrayList<>(paralelos);
+        for (int t = 0; t < paralelos; t++) {
+            pendientes.add(pool.submit(() -> {
+                for (int i = siguiente.getAndIncrement(); i < archivos.length; i = siguiente.getAndIncrement()) {
+                    archivos[i] = importar(entradas.get(i), catalogo, correlationId);
+                }
+            }));
+        }
+
+        try {
+            for (var p : pendientes) p.get();
+        } catch (InterruptedException e) {
+            pendientes.forEach(p -> p.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga múltiple interrumpida", e);
+        } catch (ExecutionException e) {
+            // importar() no lanza: solo un error fuera de lo previsto
+            pendientes.forEach(p -> p.cancel(true));
+            throw new IllegalStateException(e.getCause());
+        }
+        var lista = List.of(archivos);
+        return new ResumenCargaMultiple(lista, total(lista));
+    }
+
+    private ResumenCargaMultiple.Archivo importar(Entrada e, CatalogoCompartido catalogo, String correlationId) {
+        if (correlationId != null) MDC.put("correlationId", correlationId);
+        try {
+            var r = handler.ejecutar(e.contenido(), null, null, ProgresoCarga.NINGUNO, catalogo);
+            return new ResumenCargaMultiple.Archivo(e.nombre(), r, null);
+        } catch (CargaEnProcesoException ex) {
+            return new ResumenCargaMultiple.Archivo(e.nombre(), null, "CARGA_EN_PROCESO");
+        } catch (RuntimeException ex) {
+            log.error("Falló el archivo {} de una carga múltiple", e.nombre(), ex);
+            return new ResumenCargaMultiple.Archivo(e.nombre(), null, "ERROR_INTERNO");
+        } finally {
+            MDC.remove("correlationId");
+        }
+    }
+
+    static ResumenCarga total(List<ResumenCargaMultiple.Archivo> archivos) {
+        int procesados = 0, guardados = 0, insertados = 0, actualizados = 0, sinCambios = 0, descartados = 0, conError = 0;
+        Map<String, Integer> agrupados = new TreeMap<>();
+        for (var a : archivos) {
+            var r = a.resumen();
+            if (r == null) continue;
+            procesados += r.totalProcesados();
+            guardados += r.guardados();
+            insertados += r.insertados();
+            actualizados += r.actualizados();
+            sinCambios += r.sinCambios();
+            descartados += r.duplicadosDescartados();
+            conError += r.conError();
+            r.erroresAgrupados().forEach((c, n) -> agrupados.merge(c, n, Integer::sum));
+        }
+        return new ResumenCarga(null, procesados, guardados, insertados, actualizados, sinCambios, descartados,
+                conError, List.of(), agrupados);
+    }
+
+    private static boolean esZip(InputStreamSource contenido) {
+        try (var in = contenido.getInputStream()) {
+            return Arrays.equals(in.readNBytes(MAGICO_ZIP.length), MAGICO_ZIP);
+        } catch (IOException e) {
+            // ilegible: se importa tal cual y el handler lo reporta como CSV_ILEGIBLE
+            return false;
+        }
+    }
+
+    private Path copiar(InputStreamSource contenido) {
+        try {
+            Files.createDirectories(directorio);
+            Path copia = Files.createTempFile(directorio, "carga", ".zip");
+            try (var in = contenido.getInputStream()) {
+                Files.copy(in, copia, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return copia;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ZipFile abrir(Path copia, String nombre) {
+        try {
+            return new ZipFile(copia.toFile());
+        } catch (IOException e) {
+            throw new SubidaInvalidaException("ZIP ilegible", List.of(String.valueOf(nombre)));
+        }
+    }
+
+    // ZipFile admite varias lecturas concurrentes, una por entrada, y el handler lee cada una dos veces
+    private static void expandir(ZipFile zip, String nombre, List<Entrada> entradas) {
+        var it = zip.entries();
+        while (it.hasMoreElements()) {
+            ZipEntry entrada = it.nextElement();
+            if (entrada.isDirectory() || entrada.getName().startsWith("__MACOSX/")) continue;
+            entradas.add(new Entrada(nombre + "/" + entrada.getName(), () -> zip.getInputStream(entrada)));
+        }
+    }
+
+    private static void cerrar(ZipFile zip) {
+        try {
+            zip.close();
+        } catch (IOException e) {
+            log.warn("No se pudo cerrar {}", zip.getName(), e);
+        }
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", archivo, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.model.CatalogoResuelto;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catálogo resuelto y memorizado mientras dura una importación de varios archivos: cada cliente y
+ * cada zona se consulta una sola vez para todos los archivos, aunque se procesen en paralelo
+ * (dos lotes que piden el mismo ID a la vez pueden consultarlo los dos; el resultado es el mismo).
+ */
+public class CatalogoCompartido {
+
+    private final CatalogosConsulta catalogos;
+    private final Map<String, Boolean> clientes = new ConcurrentHashMap<>();
+    private final Map<String, Optional<Boolean>> zonas = new ConcurrentHashMap<>();
+
+    public CatalogoCompartido(CatalogosConsulta catalogos) {
+        this.catalogos = catalogos;
+    }
+
+    public CatalogoResuelto resolver(LotePedidos lote) {
+        var idsClientes = lote.clientesDistintos();
+        var faltantes = idsClientes.stream().filter(id -> !clientes.containsKey(id)).toList();
+        if (!faltantes.isEmpty()) {
+            var activos = catalogos.clientesActivos(faltantes);
+            for (String id : faltantes) clientes.put(id, activos.contains(id));
+        }
+        Set<String> activos = new HashSet<>();
+        for (String id : idsClientes) {
+            if (clientes.get(id)) activos.add(id);
+        }
+
+        var idsZonas = lote.zonasDistintas();
+        var zonasFaltantes = idsZonas.stream().filter(id -> !zonas.containsKey(id)).toList();
+        if (!zonasFaltantes.isEmpty()) {
+            var soporte = catalogos.soporteRefrigeracionPorZona(zonasFaltantes);
+            for (String id : zonasFaltantes) zonas.put(id, Optional.ofNullable(soporte.get(id)));
+        }
+        Map<String, Boolean> soporte = new HashMap<>();
+        for (String id : idsZonas) zonas.get(id).ifPresent(s -> soporte.put(id, s));
+
+        return new CatalogoResuelto(activos, soporte);
+    }
+}
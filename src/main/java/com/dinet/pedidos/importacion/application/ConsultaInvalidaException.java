@@ -0,0 +1,7 @@
+package com.dinet.pedidos.importacion.application;
+
+public class ConsultaInvalidaException extends RuntimeException {
+    public ConsultaInvalidaException(String mensaje) {
+        super(mensaje);
+    }
+}
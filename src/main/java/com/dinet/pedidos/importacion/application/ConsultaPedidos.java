@@ -0,0 +1,65 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.port.PedidosConsulta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Páginas de pedidos con un cursor opaco (la posición de la última fila entregada) y exportación
+ * completa en streaming.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConsultaPedidos {
+
+    private final PedidosConsulta pedidos;
+
+    /** {@code siguiente} es {@code null} en la última página. */
+    public record Pagina(List<Pedido> pedidos, String siguiente) {}
+
+    public Pagina pagina(PedidosConsulta.Filtro filtro, String cursor, int limite) {
+        validar(filtro);
+        // una fila de más indica si hay otra página sin contar el total
+        var filas = pedidos.pagina(filtro, cursor == null ? null : decodificar(cursor), limite + 1);
+        if (filas.size() <= limite) return new Pagina(filas, null);
+        var ultima = filas.get(limite - 1);
+        return new Pagina(filas.subList(0, limite), codificar(ultima));
+    }
+
+    public void exportar(PedidosConsulta.Filtro filtro, Consumer<Pedido> destino) {
+        validar(filtro);
+        pedidos.recorrer(filtro, destino);
+    }
+
+    /** La exportación lo llama antes de empezar a responder: dentro del streaming ya no hay 400. */
+    public static void validar(PedidosConsulta.Filtro f) {
+        if (f.fechaDesde() != null && f.fechaHasta() != null && f.fechaDesde().isAfter(f.fechaHasta())) {
+            throw new ConsultaInvalidaException("fechaDesde es posterior a fechaHasta");
+        }
+    }
+
+    static String codificar(Pedido p) {
+        var posicion = p.fechaEntrega() + "|" + p.numeroPedido();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(posicion.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PedidosConsulta.Posicion decodificar(String cursor) {
+        try {
+            var posicion = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = posicion.indexOf('|');
+            if (separador < 0) throw new ConsultaInvalidaException("Cursor inválido");
+            return new PedidosConsulta.Posicion(
+                    LocalDate.parse(posicion.substring(0, separador)), posicion.substring(separador + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ConsultaInvalidaException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Lista completa de errores de cada carga, en un archivo {@code <cargaId>.err} ordenado por
+ * línea. Cada error ocupa 5 bytes (línea y {@link CodigoError#id()}) más el detalle, si lo
+ * tiene, así la respuesta solo necesita una muestra y el resto se sirve en streaming. Al lado,
+ * {@code <cargaId>.idx} guarda cada {@value #PASO_INDICE} bytes la línea y posición de un error,
+ * y una página empieza a leer desde ahí en vez de desde el principio. Los archivos se borran
+ * pasado {@code app.cargas.errores.retencion}.
+ */
+@Slf4j
+@Component
+public class ErroresCarga {
+
+    private static final int CON_DETALLE = 0x80;
+    static final int PASO_INDICE = 64 * 1024;
+    private static final int ENTRADA_INDICE = Integer.BYTES + Long.BYTES;
+
+    private final Path directorio;
+    private final Duration retencion;
+
+    public ErroresCarga(@Value("${app.cargas.errores.directorio:${java.io.tmpdir}/importador-pedidos-errores}") Path directorio,
+                        @Value("${app.cargas.errores.retencion:7d}") Duration retencion) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.retencion = retencion;
+    }
+
+    /**
+     * Abre el archivo de la carga para agregar errores. Con {@code hastaLinea} 0 empieza vacío; al
+     * reanudar conserva los errores hasta esa línea y descarta lo escrito después del punto de
+     * control.
+     */
+    public Escritor abrir(UUID cargaId, int hastaLinea) {
+        Path archivo = archivo(cargaId);
+        Path indice = indice(cargaId);
+        try {
+            if (hastaLinea > 0 && Files.exists(archivo)) {
+                long fin = finHasta(archivo, indice, hastaLinea);
+                // primero el índice, para que nunca apunte más allá de los datos
+                long entradas = Files.exists(indice) ? entradasHasta(indice, fin) : 0;
+                truncar(indice, entradas * ENTRADA_INDICE);
+                truncar(archivo, fin);
+                long indexado = entradas == 0 ? 0 : posicionEntrada(indice, entradas - 1);
+                return new Escritor(new FileOutputStream(archivo.toFile(), true),
+                        new FileOutputStream(indice.toFile(), true), fin, indexado);
+            }
+            return new Escritor(new FileOutputStream(archivo.toFile(), false),
+                    new FileOutputStream(indice.toFile(), false), 0, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean existe(UUID cargaId) {
+        return Files.exists(archivo(cargaId));
+    }
+
+    /** Entrega hasta {@code limite} errores desde {@code desdeLinea} (inclusive), en orden. */
+    public void leer(UUID cargaId, int desdeLinea, int limite, Consumer<ErrorFila> destino) throws IOException {
+        Path archivo = archivo(cargaId);
+        try (var canal = FileChannel.open(archivo)) {
+            canal.position(inicio(indice(cargaId), desdeLinea));
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal)));
+            int entregados = 0;
+            while (entregados < limite) {
+                var e = siguiente(in);
+                if (e == null) return;
+                if (e.linea() < desdeLinea) continue;
+                destino.accept(e);
+                entregados++;
+            }
+        }
+    }
+
+    // posición en bytes tras el último error con línea <= hastaLinea
+    private static long finHasta(Path archivo, Path indice, int hastaLinea) throws IOException {
+        try (var canal = FileChannel.open(archivo)) {
+            long base = inicio(indice, hastaLinea + 1);
+            canal.position(base);
+            var contador = new ContadorBytes(new BufferedInputStream(Channels.newInputStream(canal)));
+            var in = new DataInputStream(contador);
+            long fin = base;
+            ErrorFila e;
+            while ((e = siguiente(in)) != null && e.linea() <= hastaLinea) fin = base + contador.leidos;
+            return fin;
+        }
+    }
+
+    // posición del último error indexado con línea < desdeLinea (0 si no hay): todo lo anterior
+    // tiene línea menor, así que la lectura puede empezar ahí
+    private static long inicio(Path indice, int desdeLinea) throws IOException {
+        if (!Files.exists(indice)) return 0;
+        try (var idx = new RandomAccessFile(indice.toFile(), "r")) {
+            long lo = 0, hi = idx.length() / ENTRADA_INDICE - 1, posicion = 0;
+            while (lo <= hi) {
+                long medio = (lo + hi) >>> 1;
+                idx.seek(medio * ENTRADA_INDICE);
+                if (idx.readInt() < desdeLinea) {
+                    posicion = idx.readLong();
+                    lo = medio + 1;
+                } else {
+                    hi = medio - 1;
+                }
+            }
+            return posicion;
+        }
+    }
+
+    // cantidad de entradas del índice que apuntan antes de fin
+    private static long entradasHasta(Path indice, long fin) throws IOException {
+        try (var idx = new DataInputStream(new BufferedInputStream(Files.newInputStream(indice)))) {
+            long n = 0;
+            while (true) {
+                try {
+                    idx.readInt();
+                    if (idx.readLong() >= fin) return n;
+                } catch (EOFException e) {
+                    return n;
+                }
+                n++;
+            }
+        }
+    }
+
+    private static long posicionEntrada(Path indice, long entrada) throws IOException {
+        try (var idx = new RandomAccessFile(indice.toFile(), "r")) {
+            idx.seek(entrada * ENTRADA_INDICE + Integer.BYTES);
+            return idx.readLong();
+        }
+    }
+
+    private static void truncar(Path archivo, long tamanio) throws IOException {
+        if (!Files.exists(archivo)) return;
+        try (var canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            canal.truncate(tamanio);
+        }
+    }
+
+    private static ErrorFila siguiente(DataInputStream in) throws IOException {
+        int linea;
+        try {
+            linea = in.readInt();
+        } catch (EOFException fin) {
+            return null;
+        }
+        int codigo = in.readUnsignedByte();
+        String detalle = (codigo & CON_DETALLE) != 0 ? in.readUTF() : null;
+        return new ErrorFila(linea, CodigoError.deId(codigo & ~CON_DETALLE), detalle);
+    }
+
+    private Path archivo(UUID cargaId) {
+        return directorio.resolve(cargaId + ".err");
+    }
+
+    private Path indice(UUID cargaId) {
+        return directorio.resolve(cargaId + ".idx");
+    }
+
+    @Scheduled(fixedDelayString = "${app.cargas.errores.intervalo-limpieza:1h}")
+    public void limpiarVencidos() throws IOException {
+        Instant limite = Instant.now().minus(retencion);
+        try (var archivos = Files.list(directorio)) {
+            archivos.filter(p -> modificado(p).isBefore(limite)).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    log.warn("No se pudo borrar {}", p, e);
+                }
+            });
+        }
+    }
+
+    private static Instant modificado(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toInstant();
+        } catch (IOException e) {
+            return Instant.MAX;
+        }
+    }
+
+    /** No es seguro entre hilos: lo usa solo el hilo que recoge los bloques en orden. */
+    public static final class Escritor implements Closeable {
+        private final ContadorSalida contador;
+        private final DataOutputStream out;
+        private final DataOutputStream indice;
+        private final long base;
+        private long indexado;
+
+        private Escritor(OutputStream archivo, OutputStream indice, long base, long indexado) {
+            this.contador = new ContadorSalida(new BufferedOutputStream(archivo));
+            this.out = new DataOutputStream(contador);
+            this.indice = new DataOutputStream(indice);
+            this.base = base;
+            this.indexado = indexado;
+        }
+
+        public void escribir(ErrorFila e) {
+            try {
+                if (posicion() - indexado >= PASO_INDICE) indexar(e.linea());
+                out.writeInt(e.linea());
+                if (e.detalle() == null) {
+                    out.writeByte(e.codigo().id());
+                } else {
+                    out.writeByte(e.codigo().id() | CON_DETALLE);
+                    out.writeUTF(e.detalle());
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        // los datos llegan al disco antes que la entrada que apunta a ellos
+        private void indexar(int linea) throws IOException {
+            out.flush();
+            indexado = posicion();
+            indice.writeInt(linea);
+            indice.writeLong(indexado);
+        }
+
+        private long posicion() {
+            return base + contador.escritos;
+        }
+
+        /** Antes de guardar un punto de control, para que el archivo lo cubra. */
+        public void vaciar() {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try (indice) {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class ContadorBytes extends FilterInputStream {
+        long leidos;
+
+        ContadorBytes(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) leidos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) leidos += n;
+            return n;
+        }
+    }
+
+    private static final class ContadorSalida extends FilterOutputStream {
+        long escritos;
+
+        ContadorSalida(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            escritos++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            escritos += len;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Persiste un lote en su propia transacción. Los fallos transitorios (deadlock, serialización,
+ * lock timeout) se reintentan con espera exponencial; si el lote falla por datos se parte en
+ * mitades hasta aislar las filas culpables, que vuelven como {@link ErrorFila}, y el resto se
+ * guarda en lotes tan grandes como sea posible.
+ */
+@Slf4j
+@Component
+public class EscrituraLotes {
+
+    private final PedidosRepositorio pedidosRepo;
+    private final TransactionOperations tx;
+    private final MetricasCarga metricas;
+    private final int reintentos;
+    private final long esperaBaseMs;
+
+    public EscrituraLotes(PedidosRepositorio pedidosRepo,
+                          TransactionOperations tx,
+                          MetricasCarga metricas,
+                          @Value("${app.batch.reintentos:3}") int reintentos,
+                          @Value("${app.batch.espera-reintento:50ms}") Duration esperaBase) {
+        this.pedidosRepo = pedidosRepo;
+        this.tx = tx;
+        this.metricas = metricas;
+        this.reintentos = reintentos;
+        this.esperaBaseMs = esperaBase.toMillis();
+    }
+
+    /** {@code reintentos}: fallos transitorios reintentados, señal de contención para {@link TamanioLote}. */
+    public record Resultado(PedidosRepositorio.ResultadoLote escritura, List<ErrorFila> errores, int reintentos) {}
+
+    public Resultado escribir(LotePedidos lote) {
+        var acumulado = new Acumulado();
+        escribir(lote, acumulado);
+        return new Resultado(acumulado.escritura, acumulado.errores, acumulado.reintentos);
+    }
+
+    private static final class Acumulado {
+        PedidosRepositorio.ResultadoLote escritura = PedidosRepositorio.ResultadoLote.VACIO;
+        final List<ErrorFila> errores = new ArrayList<>();
+        int reintentos;
+    }
+
+    private void escribir(LotePedidos lote, Acumulado acumulado) {
+        try {
+            acumulado.escritura = acumulado.escritura.mas(conReintentos(lote, acumulado));
+        } catch (DataIntegrityViolationException e) {
+            if (lote.tamanio() == 1) {
+                log.warn("Fila {} ({}) rechazada por la base de datos: {}",
+                        lote.linea(0), lote.numeroPedido(0), e.getMostSpecificCause().getMessage());
+                acumulado.errores.add(new ErrorFila(lote.linea(0), CodigoError.ERROR_PERSISTENCIA));
+                return;
+            }
+            int mitad = lote.tamanio() / 2;
+            escribir(lote.rango(0, mitad), acumulado);
+            escribir(lote.rango(mitad, lote.tamanio()), acumulado);
+        }
+    }
+
+    private PedidosRepositorio.ResultadoLote conReintentos(LotePedidos lote, Acumulado acumulado) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return tx.execute(status -> pedidosRepo.upsertPorLote(lote));
+            } catch (TransientDataAccessException e) {
+                if (intento > reintentos) throw e;
+                metricas.reintentoPersistencia();
+                acumulado.reintentos++;
+                log.debug("Reintento {} de un lote de {} filas: {}", intento, lote.tamanio(), e.getMessage());
+                esperar(intento);
+            }
+        }
+    }
+
+    // exponencial con jitter para que los escritores que chocaron no vuelvan a la vez
+    private void esperar(int intento) {
+        long espera = (esperaBaseMs << (intento - 1)) + ThreadLocalRandom.current().nextLong(esperaBaseMs + 1);
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Carga interrumpida", e);
+        }
+    }
+}
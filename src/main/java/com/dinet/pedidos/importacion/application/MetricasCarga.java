@@ -0,0 +1,102 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas y spans de la importación. Cada etapa es una {@link Observation}: genera un timer
+ * {@code importacion.<etapa>} y, con tracing activo, un span hijo de {@code importacion.carga}.
+ * El correlationId va solo como clave de alta cardinalidad (en el span, nunca en las métricas);
+ * los logs llevan el mismo traceId en el MDC.
+ */
+@Component
+public class MetricasCarga {
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observaciones;
+    private final Timer parseo;
+    private final Counter procesadas;
+    private final Counter guardadas;
+    private final Counter insertadas;
+    private final Counter actualizadas;
+    private final Counter sinCambios;
+    private final Counter duplicadas;
+    private final Counter reintentos;
+    private final Counter[] rechazadas = new Counter[CodigoError.cantidad()];
+
+    public MetricasCarga(MeterRegistry registry, ObservationRegistry observaciones) {
+        this.registry = registry;
+        this.observaciones = observaciones;
+        this.parseo = Timer.builder("importacion.parseo")
+                .description("Tiempo del hilo de parseo, sin esperas por back-pressure")
+                .register(registry);
+        this.procesadas = Counter.builder("importacion.filas.procesadas").register(registry);
+        this.guardadas = Counter.builder("importacion.filas.guardadas").register(registry);
+        this.insertadas = escritas("insertada");
+        this.actualizadas = escritas("actualizada");
+        this.sinCambios = escritas("sin_cambios");
+        this.duplicadas = Counter.builder("importacion.filas.duplicadas")
+                .description("Filas descartadas por repetir un numero_pedido del mismo archivo")
+                .register(registry);
+        this.reintentos = Counter.builder("importacion.persistencia.reintentos")
+                .description("Lotes reintentados por deadlock, serialización o lock timeout")
+                .register(registry);
+        for (CodigoError c : CodigoError.values()) {
+            rechazadas[c.ordinal()] = Counter.builder("importacion.filas.rechazadas")
+                    .tag("motivo", c.codigo())
+                    .register(registry);
+        }
+    }
+
+    private Counter escritas(String resultado) {
+        return Counter.builder("importacion.filas.escritas")
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    public Observation carga(String correlationId) {
+        var o = Observation.createNotStarted("importacion.carga", observaciones);
+        if (correlationId != null) o.highCardinalityKeyValue("correlation.id", correlationId);
+        return o;
+    }
+
+    public Observation etapa(String nombre, Observation carga) {
+        return Observation.createNotStarted("importacion." + nombre, observaciones)
+                .parentObservation(carga);
+    }
+
+    public void parseo(long nanos) {
+        parseo.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void filas(int filasProcesadas, int filasGuardadas) {
+        procesadas.increment(filasProcesadas);
+        guardadas.increment(filasGuardadas);
+    }
+
+    public void escritura(PedidosRepositorio.ResultadoLote r) {
+        insertadas.increment(r.insertados());
+        actualizadas.increment(r.actualizados());
+        sinCambios.increment(r.sinCambios());
+    }
+
+    public void duplicadas(int filas) {
+        duplicadas.increment(filas);
+    }
+
+    public void reintentoPersistencia() {
+        reintentos.increment();
+    }
+
+    public void rechazada(CodigoError codigo) {
+        rechazadas[codigo.ordinal()].increment();
+    }
+}
@@ -0,0 +1,39 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.service.ValidacionPedidoService;
+import com.dinet.pedidos.importacion.domain.service.ValidacionPedidoService.EstadisticasRegla;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica los contadores de cada regla de validación: {@code importacion.validacion.regla}
+ * (filas evaluadas y tiempo, así la media es el costo por fila) e
+ * {@code importacion.validacion.regla.rechazos}, ambos con la etiqueta {@code regla}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricasValidacion implements MeterBinder {
+
+    private final ValidacionPedidoService validacion;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (EstadisticasRegla e : validacion.estadisticas()) {
+            String regla = e.regla().nombre();
+            FunctionTimer.builder("importacion.validacion.regla", e,
+                            EstadisticasRegla::evaluadas, EstadisticasRegla::nanos, TimeUnit.NANOSECONDS)
+                    .tag("regla", regla)
+                    .tag("costo", e.regla().costo().name().toLowerCase())
+                    .register(registry);
+            FunctionCounter.builder("importacion.validacion.regla.rechazos", e, EstadisticasRegla::rechazadas)
+                    .tag("regla", regla)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.dinet.pedidos.importacion.application;
+
+/** Qué hacer cuando un mismo {@code numero_pedido} aparece más de una vez en el archivo. */
+public enum PoliticaDuplicados {
+    /** Se conserva la última aparición (requiere un recorrido previo de las claves). */
+    ULTIMA,
+    /** Se conserva la primera aparición. */
+    PRIMERA,
+    /** Se conserva la primera y las siguientes se rechazan con {@code NUMERO_PEDIDO_DUPLICADO}. */
+    RECHAZAR
+}
@@ -0,0 +1,13 @@
+package com.dinet.pedidos.importacion.application;
+
+import java.util.UUID;
+
+@FunctionalInterface
+public interface ProgresoCarga {
+    ProgresoCarga NINGUNO = (procesados, guardados, conError) -> {};
+
+    void avance(int filasProcesadas, int filasGuardadas, int filasConError);
+
+    /** Al empezar a procesar, con el {@code cargaId} bajo el que se guardan sus errores. */
+    default void iniciada(UUID cargaId) {}
+}
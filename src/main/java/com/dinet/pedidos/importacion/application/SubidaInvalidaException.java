@@ -0,0 +1,15 @@
+package com.dinet.pedidos.importacion.application;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class SubidaInvalidaException extends RuntimeException {
+    private final List<String> detalles;
+
+    public SubidaInvalidaException(String mensaje, List<String> detalles) {
+        super(mensaje);
+        this.detalles = detalles;
+    }
+}
@@ -0,0 +1,9 @@
+package com.dinet.pedidos.importacion.application;
+
+import java.util.UUID;
+
+public class SubidaNoEncontradaException extends RuntimeException {
+    public SubidaNoEncontradaException(UUID id) {
+        super("Subida no encontrada o vencida: " + id);
+    }
+}
@@ -0,0 +1,260 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.shared.compresion.Compresion;
+import com.dinet.pedidos.importacion.shared.crypto.Hashes;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Subida de archivos grandes por partes numeradas ({@code 0..n-1}) que se guardan en disco local
+ * hasta confirmar. Al confirmar se ensamblan (calculando el hash en la misma pasada, sobre el
+ * contenido descomprimido si el archivo viene comprimido) y se importan con
+ * {@link CargarPedidosHandler}. Si la importación se interrumpe, el archivo ensamblado y su
+ * hash quedan en disco: confirmar de nuevo reanuda desde el último punto de control sin volver a
+ * subir, hashear ni escribir lo ya persistido.
+ */
+@Slf4j
+@Service
+public class SubidasPorPartes {
+
+    private static final String CLAVE = "clave";
+    private static final String ARCHIVO = "archivo.csv";
+    private static final String HASH = "archivo.sha256";
+    private static final String PARTE = "parte-";
+
+    private final CargarPedidosHandler handler;
+    private final Path directorio;
+    private final long maxParte;
+    private final int maxPartes;
+    private final Duration expiracion;
+
+    public SubidasPorPartes(CargarPedidosHandler handler,
+                            @Value("${app.subidas.directorio:${java.io.tmpdir}/importador-pedidos-subidas}") Path directorio,
+                            @Value("${app.subidas.max-parte:64MB}") DataSize maxParte,
+                            @Value("${app.subidas.max-partes:10000}") int maxPartes,
+                            @Value("${app.subidas.expiracion:24h}") Duration expiracion) {
+        this.handler = handler;
+        this.directorio = directorio;
+        this.maxParte = maxParte.toBytes();
+        this.maxPartes = maxPartes;
+        this.expiracion = expiracion;
+    }
+
+    public record Subida(UUID id, String claveIdempotencia, List<Integer> partesRecibidas, boolean ensamblada) {}
+
+    public Subida iniciar(String claveIdempotencia) {
+        UUID id = UUID.randomUUID();
+        try {
+            var dir = Files.createDirectories(directorio.resolve(id.toString()));
+            Files.writeString(dir.resolve(CLAVE), claveIdempotencia);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Subida(id, claveIdempotencia, List.of(), false);
+    }
+
+    /** Reenviar una parte la reemplaza, así el cliente puede reintentar las que fallaron. */
+    public void guardarParte(UUID id, int numero, InputStream datos) {
+        var dir = existente(id);
+        if (numero < 0 || numero >= maxPartes) {
+            throw new SubidaInvalidaException("Número de parte fuera de rango",
+                    List.of("0 <= parte < " + maxPartes));
+        }
+        Path temporal = dir.resolve(PARTE + numero + ".tmp-" + UUID.randomUUID());
+        try {
+            try (var out = Files.newOutputStream(temporal)) {
+                byte[] buf = new byte[64 * 1024];
+                long total = 0;
+                int n;
+                while ((n = datos.read(buf)) != -1) {
+                    total += n;
+                    if (total > maxParte) throw new MaxUploadSizeExceededException(maxParte);
+                    out.write(buf, 0, n);
+                }
+            }
+            Files.move(temporal, dir.resolve(PARTE + numero), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            borrar(temporal);
+        }
+    }
+
+    public Optional<Subida> consultar(UUID id) {
+        var dir = directorio.resolve(id.toString());
+        if (!Files.isDirectory(dir)) return Optional.empty();
+        try {
+            return Optional.of(new Subida(id, Files.readString(dir.resolve(CLAVE)), partes(dir),
+                    Files.exists(dir.resolve(HASH))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Bytes recibidos hasta ahora (partes o archivo ya ensamblado), para el control de admisión. */
+    public long bytes(UUID id) {
+        try (var archivos = Files.list(existente(id))) {
+            return archivos.mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ensambla las partes {@code 0..partes-1} (si no se hizo ya) e importa el archivo con la
+     * Idempotency-Key de la subida. Tras completar la importación se borra la subida.
+     */
+    public ResumenCarga confirmar(UUID id, int partes) {
+        var dir = existente(id);
+        try {
+            String clave = Files.readString(dir.resolve(CLAVE));
+            Path archivo = dir.resolve(ARCHIVO);
+            Path hashArchivo = dir.resolve(HASH);
+            String hash = Files.exists(hashArchivo) ? Files.readString(hashArchivo) : ensamblar(dir, partes);
+
+            ResumenCarga resumen = handler.ejecutar(new FileSystemResource(archivo), clave, hash, ProgresoCarga.NINGUNO);
+            FileSystemUtils.deleteRecursively(dir);
+            return resumen;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String ensamblar(Path dir, int partes) throws IOException {
+        var recibidas = new HashSet<>(partes(dir));
+        List<String> faltantes = new ArrayList<>();
+        for (int i = 0; i < partes; i++) {
+            if (!recibidas.contains(i)) faltantes.add(String.valueOf(i));
+        }
+        if (partes <= 0 || !faltantes.isEmpty()) {
+            throw new SubidaInvalidaException("Faltan partes", faltantes);
+        }
+
+        List<InputStream> entradas = new ArrayList<>(partes);
+        Path temporal = dir.resolve(ARCHIVO + ".tmp-" + UUID.randomUUID());
+        String hash;
+        try {
+            for (int i = 0; i < partes; i++) entradas.add(Files.newInputStream(dir.resolve(PARTE + i)));
+            // se guarda tal como llegó (comprimido o no) y el hash sale del CSV descomprimido
+            try (var out = Files.newOutputStream(temporal);
+                 var copia = new Copia(new SequenceInputStream(Collections.enumeration(entradas)), out)) {
+                hash = Hashes.sha256Hex(Compresion.descomprimir(copia));
+                copia.transferTo(OutputStream.nullOutputStream());
+            }
+            Files.move(temporal, dir.resolve(ARCHIVO), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            for (var e : entradas) e.close();
+            borrar(temporal);
+        }
+        // el hash se escribe al final: su presencia indica que el archivo está completo
+        Files.writeString(dir.resolve(HASH), hash);
+        for (int i = 0; i < partes; i++) borrar(dir.resolve(PARTE + i));
+        return hash;
+    }
+
+    @Scheduled(fixedDelayString = "${app.subidas.intervalo-limpieza:PT1H}")
+    public void limpiarVencidas() throws IOException {
+        if (!Files.isDirectory(directorio)) return;
+        var limite = Instant.now().minus(expiracion);
+        try (var dirs = Files.list(directorio)) {
+            for (Path dir : dirs.toList()) {
+                if (Files.getLastModifiedTime(dir).toInstant().isBefore(limite)) {
+                    log.info("Borrando subida vencida {}", dir.getFileName());
+                    FileSystemUtils.deleteRecursively(dir);
+                }
+            }
+        }
+    }
+
+    private Path existente(UUID id) {
+        var dir = directorio.resolve(id.toString());
+        if (!Files.isDirectory(dir)) throw new SubidaNoEncontradaException(id);
+        return dir;
+    }
+
+    private static List<Integer> partes(Path dir) throws IOException {
+        try (var archivos = Files.list(dir)) {
+            return archivos.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(PARTE) && n.indexOf('.') < 0)
+                    .map(n -> Integer.parseInt(n.substring(PARTE.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /** Escribe en {@code destino} todo lo que se lee. */
+    private static final class Copia extends FilterInputStream {
+        private final OutputStream destino;
+
+        Copia(InputStream in, OutputStream destino) {
+            super(in);
+            this.destino = destino;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) destino.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) destino.write(b, off, n);
+            return n;
+        }
+
+        // lo salteado también se copia
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            long salteados = 0;
+            int leidos;
+            while (salteados < n && (leidos = read(buf, 0, (int) Math.min(buf.length, n - salteados))) > 0) {
+                salteados += leidos;
+            }
+            return salteados;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", archivo, e);
+        }
+    }
+}
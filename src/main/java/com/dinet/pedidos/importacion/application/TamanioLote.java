@@ -0,0 +1,107 @@
+package com.dinet.pedidos.importacion.application;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Tamaño de los bloques que se validan y persisten juntos, ajustado por AIMD sobre la latencia de
+ * escritura de cada lote: mientras un lote lleno se escribe dentro de
+ * {@code app.batch.adaptativo.latencia-objetivo} el tamaño crece de a {@code incremento} filas;
+ * si la supera se reduce en proporción al exceso (como mucho a la mitad), y un lote que necesitó
+ * reintentos por deadlock o timeout de bloqueo lo reduce a la mitad. Se comparte entre todas las
+ * cargas, porque lo que mide es la BD, y se mantiene entre {@code min} y {@code max}.
+ * <p>
+ * Los lotes de una misma tanda se despacharon con el mismo tamaño: solo el primero que reporta
+ * un exceso reduce, así una racha lenta no lleva el tamaño al mínimo de golpe.
+ * Con {@code app.batch.adaptativo.enabled=false} queda fijo en {@code app.batch.size}.
+ */
+@Component
+public class TamanioLote implements MeterBinder {
+
+    private static final double ALFA_LATENCIA = 0.2;
+
+    /** Tamaño con el que se armó un bloque y la tanda a la que pertenece. */
+    public record Asignacion(int filas, long tanda) {}
+
+    /** Filas escritas y tiempo de escritura acumulados desde el arranque. */
+    public record Totales(long filas, long nanos) {}
+
+    private final boolean adaptativo;
+    private final int min;
+    private final int max;
+    private final int incremento;
+    private final long objetivoNanos;
+
+    private int filas;
+    private long tanda;
+    private volatile double latenciaNanos;
+    private long filasEscritas;
+    private long nanosEscritura;
+
+    public TamanioLote(@Value("${app.batch.size:500}") int inicial,
+                       @Value("${app.batch.adaptativo.enabled:true}") boolean adaptativo,
+                       @Value("${app.batch.adaptativo.min:100}") int min,
+                       @Value("${app.batch.adaptativo.max:5000}") int max,
+                       @Value("${app.batch.adaptativo.incremento:50}") int incremento,
+                       @Value("${app.batch.adaptativo.latencia-objetivo:250ms}") Duration objetivo) {
+        if (min < 1 || max < min) throw new IllegalArgumentException("Se requiere 1 <= min <= max");
+        this.adaptativo = adaptativo;
+        this.min = min;
+        this.max = max;
+        this.incremento = incremento;
+        this.objetivoNanos = objetivo.toNanos();
+        this.filas = adaptativo ? Math.max(min, Math.min(max, inicial)) : inicial;
+    }
+
+    public static TamanioLote fijo(int filas) {
+        return new TamanioLote(filas, false, 1, Math.max(1, filas), 0, Duration.ZERO);
+    }
+
+    public synchronized Asignacion asignar() {
+        return new Asignacion(filas, tanda);
+    }
+
+    public synchronized int actual() {
+        return filas;
+    }
+
+    public synchronized Totales totales() {
+        return new Totales(filasEscritas, nanosEscritura);
+    }
+
+    /**
+     * Registra la escritura de un lote armado con {@code asignacion}: {@code escritas} filas en
+     * {@code nanos}; {@code fallo} si hubo reintentos o la escritura terminó en excepción.
+     */
+    public synchronized void registrar(Asignacion asignacion, int escritas, long nanos, boolean fallo) {
+        latenciaNanos = latenciaNanos == 0 ? nanos : latenciaNanos + ALFA_LATENCIA * (nanos - latenciaNanos);
+        filasEscritas += escritas;
+        nanosEscritura += nanos;
+        if (!adaptativo) return;
+        if (fallo || nanos > objetivoNanos) {
+            if (asignacion.tanda() != tanda) return;
+            double factor = fallo ? 0.5 : Math.max(0.5, (double) objetivoNanos / nanos);
+            filas = Math.max(min, (int) (filas * factor));
+            tanda++;
+        } else if (escritas * 2 >= asignacion.filas()) {
+            // un lote a medio llenar (final del archivo, muchas filas inválidas) no dice nada
+            filas = Math.min(max, filas + incremento);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("importacion.lote.tamanio", this, TamanioLote::actual)
+                .description("Filas por bloque que se usarán en el próximo lote")
+                .register(registry);
+        Gauge.builder("importacion.lote.latencia", this, t -> t.latenciaNanos / 1e9)
+                .description("Latencia de escritura por lote, media móvil exponencial")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
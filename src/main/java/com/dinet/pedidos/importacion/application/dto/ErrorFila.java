@@ -1,3 +1,40 @@
 package com.dinet.pedidos.importacion.application.dto;
 
-public record ErrorFila(int linea, String motivo) {}
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Error de una fila. Se publica como {@code {"linea": n, "motivo": "..."}}, donde el motivo es el
+ * código y, si hay, {@code ": detalle"} (p. ej. {@code CABECERA_INVALIDA: falta 'estado'}).
+ */
+@JsonIgnoreProperties({ "codigo", "detalle" })
+public record ErrorFila(int linea, CodigoError codigo, String detalle) {
+
+    private static final String SEPARADOR = ": ";
+
+    public ErrorFila(int linea, CodigoError codigo) {
+        this(linea, codigo, null);
+    }
+
+    @JsonCreator
+    public ErrorFila(@JsonProperty("linea") int linea, @JsonProperty("motivo") String motivo) {
+        this(linea, CodigoError.de(codigoDe(motivo)), detalleDe(motivo));
+    }
+
+    @JsonProperty("motivo")
+    public String motivo() {
+        return detalle == null ? codigo.codigo() : codigo.codigo() + SEPARADOR + detalle;
+    }
+
+    private static String codigoDe(String motivo) {
+        int i = motivo.indexOf(SEPARADOR);
+        return i < 0 ? motivo : motivo.substring(0, i);
+    }
+
+    private static String detalleDe(String motivo) {
+        int i = motivo.indexOf(SEPARADOR);
+        return i < 0 ? null : motivo.substring(i + SEPARADOR.length());
+    }
+}
@@ -2,15 +2,25 @@ package com.dinet.pedidos.importacion.application.dto;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
+/**
+ * {@code erroresPorFila} es una muestra de las primeras filas con error; la lista completa se
+ * consulta por {@code cargaId} en {@code GET /pedidos/cargas/{id}/errores}.
+ */
 public record ResumenCarga(
+        UUID cargaId,
         int totalProcesados,
         int guardados,
+        int insertados,
+        int actualizados,
+        int sinCambios,
+        int duplicadosDescartados,
         int conError,
         List<ErrorFila> erroresPorFila,
         Map<String, Integer> erroresAgrupados
 ) {
     public static ResumenCarga vacio() {
-        return new ResumenCarga(0,0,0, List.of(), Map.of());
+        return new ResumenCarga(null, 0,0,0,0,0,0,0, List.of(), Map.of());
     }
 }
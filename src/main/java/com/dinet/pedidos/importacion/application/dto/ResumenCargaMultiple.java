@@ -0,0 +1,13 @@
+package com.dinet.pedidos.importacion.application.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una importación de varios archivos: uno por archivo, en el orden en que llegaron,
+ * y el total. El total no trae muestra de errores (está en cada archivo) ni {@code cargaId}.
+ */
+public record ResumenCargaMultiple(List<Archivo> archivos, ResumenCarga total) {
+
+    /** {@code error} es el código de un archivo que no se pudo importar; entonces no hay resumen. */
+    public record Archivo(String nombre, ResumenCarga resumen, String error) {}
+}
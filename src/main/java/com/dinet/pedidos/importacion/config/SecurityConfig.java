@@ -34,6 +34,8 @@ public class SecurityConfig {
         return http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(reg -> reg
                         .requestMatchers("/swagger-ui/**","/v3/api-docs/**").permitAll()
+                        // Prometheus raspa sin JWT; el acceso se restringe en la red
+                        .requestMatchers("/actuator/prometheus").permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2ResourceServer(oauth -> oauth
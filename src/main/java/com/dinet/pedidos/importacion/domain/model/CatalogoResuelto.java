@@ -0,0 +1,18 @@
+package com.dinet.pedidos.importacion.domain.model;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public record CatalogoResuelto(
+        Set<String> clientesActivos,
+        Map<String, Boolean> soporteRefrigeracionPorZona
+) {
+    public boolean existeCliente(String clienteId) {
+        return clientesActivos.contains(clienteId);
+    }
+
+    public Optional<Boolean> zonaSoportaRefrigeracion(String zonaId) {
+        return Optional.ofNullable(soporteRefrigeracionPorZona.get(zonaId));
+    }
+}
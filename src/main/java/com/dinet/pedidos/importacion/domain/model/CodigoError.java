@@ -0,0 +1,72 @@
+package com.dinet.pedidos.importacion.domain.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Motivos de rechazo de una fila; {@link #codigo()} es el valor publicado en la API y {@link #id()}
+ * el que se guarda en los archivos de errores, así que ninguno de los dos se cambia ni se reutiliza.
+ */
+public enum CodigoError {
+    CABECERA_INVALIDA("CABECERA_INVALIDA", 0),
+    CSV_ILEGIBLE("CSV_ILEGIBLE", 1),
+    CAMPO_OBLIGATORIO_FALTA_NUMERO_PEDIDO("CAMPO_OBLIGATORIO_FALTA_numero_pedido", 2),
+    CAMPO_OBLIGATORIO_FALTA_CLIENTE_ID("CAMPO_OBLIGATORIO_FALTA_cliente_id", 3),
+    CAMPO_OBLIGATORIO_FALTA_FECHA_ENTREGA("CAMPO_OBLIGATORIO_FALTA_fecha_entrega", 4),
+    CAMPO_OBLIGATORIO_FALTA_ESTADO("CAMPO_OBLIGATORIO_FALTA_estado", 5),
+    CAMPO_OBLIGATORIO_FALTA_ZONA_ID("CAMPO_OBLIGATORIO_FALTA_zona_id", 6),
+    CAMPO_OBLIGATORIO_FALTA_REQUIERE_REFRIGERACION("CAMPO_OBLIGATORIO_FALTA_requiere_refrigeracion", 7),
+    ERROR_DESCONOCIDO("ERROR_DESCONOCIDO", 8),
+    FECHA_INVALIDA_FORMATO("FECHA_INVALIDA_FORMATO", 9),
+    ESTADO_INVALIDO("ESTADO_INVALIDO", 10),
+    BOOLEANO_INVALIDO_REQUIERE_REFRIGERACION("BOOLEANO_INVALIDO_requiere_refrigeracion", 11),
+    NUMERO_PEDIDO_INVALIDO("NUMERO_PEDIDO_INVALIDO", 12),
+    NUMERO_PEDIDO_DUPLICADO("NUMERO_PEDIDO_DUPLICADO", 13),
+    CLIENTE_NO_ENCONTRADO("CLIENTE_NO_ENCONTRADO", 14),
+    ZONA_INVALIDA("ZONA_INVALIDA", 15),
+    CADENA_FRIO_NO_SOPORTADA("CADENA_FRIO_NO_SOPORTADA", 16),
+    FECHA_INVALIDA("FECHA_INVALIDA", 17),
+    ERROR_PERSISTENCIA("ERROR_PERSISTENCIA", 18);
+
+    private static final CodigoError[] TODOS = values();
+    private static final Map<String, CodigoError> POR_CODIGO = new HashMap<>();
+    private static final Map<Integer, CodigoError> POR_ID = new HashMap<>();
+    static {
+        for (CodigoError c : TODOS) {
+            POR_CODIGO.put(c.codigo, c);
+            if (POR_ID.put(c.id, c) != null) throw new IllegalStateException("id repetido: " + c.id);
+        }
+    }
+
+    private final String codigo;
+    private final int id;
+
+    CodigoError(String codigo, int id) {
+        this.codigo = codigo;
+        this.id = id;
+    }
+
+    public String codigo() {
+        return codigo;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public static CodigoError de(String codigo) {
+        var c = POR_CODIGO.get(codigo);
+        if (c == null) throw new IllegalArgumentException("Código de error desconocido: " + codigo);
+        return c;
+    }
+
+    public static CodigoError deId(int id) {
+        var c = POR_ID.get(id);
+        if (c == null) throw new IllegalArgumentException("Id de error desconocido: " + id);
+        return c;
+    }
+
+    public static int cantidad() {
+        return TODOS.length;
+    }
+}
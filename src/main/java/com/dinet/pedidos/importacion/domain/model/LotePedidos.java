@@ -0,0 +1,171 @@
+package com.dinet.pedidos.importacion.domain.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pedidos de un lote guardados por columnas. Cliente y zona se codifican contra un diccionario
+ * propio del lote (un archivo suele repetir unas pocas zonas y algunos miles de clientes), la
+ * fecha como día epoch, el estado por ordinal y la refrigeración en un {@link BitSet}: unas
+ * decenas de bytes por fila, casi todos del número de pedido, frente a los cientos de un
+ * {@link Pedido} con sus {@code String} y su {@link LocalDate}.
+ * <p>
+ * Se llena desde un solo hilo; una vez entregado a otro hilo se trata como inmutable.
+ */
+public final class LotePedidos {
+
+    private static final Estado[] ESTADOS = Estado.values();
+
+    private final Diccionario clientes;
+    private final Diccionario zonas;
+    private int tamanio;
+    private int[] lineas;
+    private String[] numeros;
+    private int[] cliente;
+    private int[] zona;
+    private int[] fecha;
+    private byte[] estado;
+    private final BitSet refrigeracion;
+
+    public LotePedidos(int capacidad) {
+        this(Math.max(capacidad, 1), new Diccionario(), new Diccionario());
+    }
+
+    private LotePedidos(int capacidad, Diccionario clientes, Diccionario zonas) {
+        this.clientes = clientes;
+        this.zonas = zonas;
+        this.lineas = new int[capacidad];
+        this.numeros = new String[capacidad];
+        this.cliente = new int[capacidad];
+        this.zona = new int[capacidad];
+        this.fecha = new int[capacidad];
+        this.estado = new byte[capacidad];
+        this.refrigeracion = new BitSet(capacidad);
+    }
+
+    /** Cliente y zona solo se copian a un {@code String} la primera vez que aparecen en el lote. */
+    public void agregar(int linea, CharSequence numeroPedido, CharSequence clienteId, CharSequence zonaId,
+                        int fechaEntregaEpochDia, Estado estadoPedido, boolean requiereRefrigeracion) {
+        if (tamanio == lineas.length) crecer();
+        int i = tamanio++;
+        lineas[i] = linea;
+        numeros[i] = numeroPedido.toString();
+        cliente[i] = clientes.id(clienteId);
+        zona[i] = zonas.id(zonaId);
+        fecha[i] = fechaEntregaEpochDia;
+        estado[i] = (byte) estadoPedido.ordinal();
+        refrigeracion.set(i, requiereRefrigeracion);
+    }
+
+    public void agregar(int linea, Pedido p) {
+        agregar(linea, p.numeroPedido(), p.clienteId(), p.zonaId(),
+                (int) p.fechaEntrega().toEpochDay(), p.estado(), p.requiereRefrigeracion());
+    }
+
+    private void crecer() {
+        int n = lineas.length * 2;
+        lineas = Arrays.copyOf(lineas, n);
+        numeros = Arrays.copyOf(numeros, n);
+        cliente = Arrays.copyOf(cliente, n);
+        zona = Arrays.copyOf(zona, n);
+        fecha = Arrays.copyOf(fecha, n);
+        estado = Arrays.copyOf(estado, n);
+    }
+
+    public int tamanio() { return tamanio; }
+    public boolean vacio() { return tamanio == 0; }
+
+    /** Línea del CSV de la que salió la fila {@code i}. */
+    public int linea(int i) { return lineas[i]; }
+    public String numeroPedido(int i) { return numeros[i]; }
+    /** Posición del cliente de la fila {@code i} en {@link #clientesDistintos()}. */
+    public int cliente(int i) { return cliente[i]; }
+    /** Posición de la zona de la fila {@code i} en {@link #zonasDistintas()}. */
+    public int zona(int i) { return zona[i]; }
+    public String clienteId(int i) { return clientes.valor(cliente[i]); }
+    public String zonaId(int i) { return zonas.valor(zona[i]); }
+    public int fechaEntregaEpochDia(int i) { return fecha[i]; }
+    public Estado estado(int i) { return ESTADOS[estado[i]]; }
+    public boolean requiereRefrigeracion(int i) { return refrigeracion.get(i); }
+
+    public List<String> clientesDistintos() { return clientes.valores(); }
+    public List<String> zonasDistintas() { return zonas.valores(); }
+
+    public Pedido pedido(int i) {
+        return new Pedido(numeros[i], clienteId(i), LocalDate.ofEpochDay(fecha[i]),
+                estado(i), zonaId(i), requiereRefrigeracion(i));
+    }
+
+    /** Las filas {@code filas}, en ese orden; comparte los diccionarios con este lote. */
+    public LotePedidos seleccion(int[] filas) {
+        var r = new LotePedidos(Math.max(filas.length, 1), clientes, zonas);
+        for (int i : filas) {
+            int j = r.tamanio++;
+            r.lineas[j] = lineas[i];
+            r.numeros[j] = numeros[i];
+            r.cliente[j] = cliente[i];
+            r.zona[j] = zona[i];
+            r.fecha[j] = fecha[i];
+            r.estado[j] = estado[i];
+            r.refrigeracion.set(j, refrigeracion.get(i));
+        }
+        return r;
+    }
+
+    /** Filas {@code desde} (inclusive) a {@code hasta} (exclusive). */
+    public LotePedidos rango(int desde, int hasta) {
+        int[] filas = new int[hasta - desde];
+        for (int k = 0; k < filas.length; k++) filas[k] = desde + k;
+        return seleccion(filas);
+    }
+
+    /**
+     * Valores distintos en orden de aparición, con búsqueda por {@link CharSequence} para no
+     * crear un {@code String} por fila.
+     */
+    private static final class Diccionario {
+        private final List<String> valores = new ArrayList<>();
+        private int[] tabla = new int[16]; // id + 1; 0 = hueco libre
+
+        int id(CharSequence valor) {
+            int mascara = tabla.length - 1;
+            int i = hash(valor) & mascara;
+            while (tabla[i] != 0) {
+                if (valores.get(tabla[i] - 1).contentEquals(valor)) return tabla[i] - 1;
+                i = (i + 1) & mascara;
+            }
+            valores.add(valor.toString());
+            tabla[i] = valores.size();
+            if (valores.size() * 2 > tabla.length) crecer();
+            return valores.size() - 1;
+        }
+
+        String valor(int id) {
+            return valores.get(id);
+        }
+
+        List<String> valores() {
+            return Collections.unmodifiableList(valores);
+        }
+
+        private void crecer() {
+            tabla = new int[tabla.length * 2];
+            int mascara = tabla.length - 1;
+            for (int id = 0; id < valores.size(); id++) {
+                int i = hash(valores.get(id)) & mascara;
+                while (tabla[i] != 0) i = (i + 1) & mascara;
+                tabla[i] = id + 1;
+            }
+        }
+
+        private static int hash(CharSequence s) {
+            int h = 0;
+            for (int k = 0; k < s.length(); k++) h = 31 * h + s.charAt(k);
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.dinet.pedidos.importacion.domain.port;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CatalogosConsulta {
     boolean existeCliente(String clienteId);
     Optional<Boolean> zonaSoportaRefrigeracion(String zonaId);
-}
\ No newline at end of file
+
+    Set<String> clientesActivos(Collection<String> clienteIds);
+    Map<String, Boolean> soporteRefrigeracionPorZona(Collection<String> zonaIds);
+}
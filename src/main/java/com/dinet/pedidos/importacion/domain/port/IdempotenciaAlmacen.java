@@ -3,11 +3,36 @@ package com.dinet.pedidos.importacion.domain.port;
 import java.util.Optional;
 
 public interface IdempotenciaAlmacen {
-    enum Estado { COMPLETED }
+    enum Estado { IN_PROGRESS, COMPLETED, FAILED }
 
-    boolean registrarInicio(String claveIdempotencia, String archivoHash);
+    record Registro(Estado estado, String resultadoJson) {}
 
-    Optional<Estado> estadoDe(String claveIdempotencia, String archivoHash);
+    /** Punto de control: hasta {@code linea} está persistido; se reanuda desde {@code caracter}. */
+    record Avance(int linea, long caracter, String resumenJson) {}
 
-    default void marcarCompletado(String claveIdempotencia, String archivoHash, String resultadoJson) {}
+    /**
+     * Reclama la carga en una sola operación atómica. Devuelve vacío si el llamador queda a cargo
+     * (carga nueva, o reintento de una fallida o abandonada); si no, el registro existente.
+     */
+    Optional<Registro> reclamar(String claveIdempotencia, String archivoHash);
+
+    /**
+     * Latido de quien tiene la carga {@code IN_PROGRESS}: la mantiene vigente aunque pase más de
+     * {@code app.idempotencia.abandono} sin un punto de control. No hace nada si ya terminó.
+     */
+    void renovar(String claveIdempotencia, String archivoHash);
+
+    /**
+     * Suelta una carga {@code IN_PROGRESS} que quedó cortada (p. ej. por un reinicio) para que se
+     * pueda retomar ya, sin esperar el abandono; conserva su punto de control.
+     */
+    void liberar(String claveIdempotencia, String archivoHash);
+
+    void marcarCompletado(String claveIdempotencia, String archivoHash, String resultadoJson);
+
+    void marcarFallido(String claveIdempotencia, String archivoHash);
+
+    void guardarAvance(String claveIdempotencia, String archivoHash, Avance avance);
+
+    Optional<Avance> avance(String claveIdempotencia, String archivoHash);
 }
@@ -0,0 +1,24 @@
+package com.dinet.pedidos.importacion.domain.port;
+
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Lectura de pedidos guardados, ordenados por {@code (fechaEntrega, numeroPedido)}. */
+public interface PedidosConsulta {
+
+    /** Criterios opcionales ({@code null} = sin filtrar); las fechas son inclusivas. */
+    record Filtro(Estado estado, LocalDate fechaDesde, LocalDate fechaHasta, String clienteId, String zonaId) {}
+
+    /** Última fila de la página anterior: la siguiente empieza justo después. */
+    record Posicion(LocalDate fechaEntrega, String numeroPedido) {}
+
+    /** Hasta {@code limite} pedidos posteriores a {@code despuesDe} ({@code null} = desde el principio). */
+    List<Pedido> pagina(Filtro filtro, Posicion despuesDe, int limite);
+
+    /** Entrega todos los pedidos del filtro sin cargarlos en memoria. */
+    void recorrer(Filtro filtro, Consumer<Pedido> destino);
+}
@@ -1,8 +1,22 @@
 package com.dinet.pedidos.importacion.domain.port;
 
-import com.dinet.pedidos.importacion.domain.model.Pedido;
-import java.util.List;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
 
 public interface PedidosRepositorio {
-    void upsertPorLote(List<Pedido> pedidos);
+    /**
+     * Inserta o actualiza el lote; las filas idénticas a las ya guardadas no se reescriben.
+     * Si un número de pedido se repite en el lote gana la última fila y las anteriores cuentan
+     * como actualizadas.
+     */
+    ResultadoLote upsertPorLote(LotePedidos lote);
+
+    record ResultadoLote(int insertados, int actualizados, int sinCambios) {
+        public static final ResultadoLote VACIO = new ResultadoLote(0, 0, 0);
+
+        public ResultadoLote mas(ResultadoLote otro) {
+            return new ResultadoLote(insertados + otro.insertados,
+                    actualizados + otro.actualizados,
+                    sinCambios + otro.sinCambios);
+        }
+    }
 }
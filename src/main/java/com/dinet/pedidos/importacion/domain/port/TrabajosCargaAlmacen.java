@@ -0,0 +1,39 @@
+package com.dinet.pedidos.importacion.domain.port;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TrabajosCargaAlmacen {
+    enum Estado { EN_COLA, EN_PROCESO, COMPLETADO, FALLIDO }
+
+    record Trabajo(
+            UUID id,
+            String claveIdempotencia,
+            String principal,
+            Estado estado,
+            int filasProcesadas,
+            int filasGuardadas,
+            int filasConError,
+            String resultadoJson,
+            String error,
+            LocalDateTime creadoEn,
+            LocalDateTime actualizadoEn
+    ) {}
+
+    void crear(UUID id, String claveIdempotencia, String principal, String instancia);
+
+    void marcarEnProceso(UUID id);
+
+    void actualizarProgreso(UUID id, int filasProcesadas, int filasGuardadas, int filasConError);
+
+    void marcarCompletado(UUID id, int filasProcesadas, int filasGuardadas, int filasConError, String resultadoJson);
+
+    void marcarFallido(UUID id, String error);
+
+    Optional<Trabajo> buscar(UUID id);
+
+    /** Trabajos {@code EN_COLA} o {@code EN_PROCESO} de {@code instancia}, y los que no tienen instancia. */
+    List<Trabajo> pendientes(String instancia);
+}
@@ -0,0 +1,9 @@
+package com.dinet.pedidos.importacion.domain.service;
+
+/** Qué reglas se evalúan sobre una fila que ya incumplió alguna. */
+public enum ModoValidacion {
+    /** Ninguna: la fila se reporta con su primer error y no se sigue evaluando. */
+    PRIMER_ERROR,
+    /** Todas: la fila se reporta con cada regla que incumple. */
+    TODOS
+}
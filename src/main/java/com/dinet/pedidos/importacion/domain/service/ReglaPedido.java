@@ -0,0 +1,38 @@
+package com.dinet.pedidos.importacion.domain.service;
+
+import com.dinet.pedidos.importacion.domain.model.CatalogoResuelto;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Regla de negocio sobre las filas de un lote. Cada regla rechaza con un solo {@link #codigo()};
+ * {@link ValidacionPedidoService} las ejecuta ordenadas por {@link #costo()} y, dentro de cada
+ * costo, por {@code @Order}. Basta con declarar otra regla como bean para sumarla a la cadena.
+ */
+public interface ReglaPedido {
+
+    enum Costo {
+        /** Solo mira los valores de la fila. */
+        LOCAL,
+        /** Necesita el catálogo, que se resuelve una vez por lote tras las reglas locales. */
+        CATALOGO
+    }
+
+    /** Hoy como día epoch y el catálogo del lote ({@code null} para las reglas locales). */
+    record Contexto(int hoyEpochDia, CatalogoResuelto catalogo) {}
+
+    /** Nombre estable para métricas. */
+    String nombre();
+
+    Costo costo();
+
+    CodigoError codigo();
+
+    /**
+     * Prepara la regla para {@code lote} (p. ej. resolviendo una vez cada cliente o zona
+     * distintos) y devuelve si la fila {@code i} la cumple.
+     */
+    IntPredicate preparar(LotePedidos lote, Contexto contexto);
+}
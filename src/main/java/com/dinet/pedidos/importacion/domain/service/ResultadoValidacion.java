@@ -0,0 +1,36 @@
+package com.dinet.pedidos.importacion.domain.service;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reglas incumplidas por cada fila de un lote, como máscara de bits sobre la cadena. */
+public final class ResultadoValidacion {
+
+    private final List<ReglaPedido> reglas;
+    private final long[] fallos;
+
+    ResultadoValidacion(List<ReglaPedido> reglas, long[] fallos) {
+        this.reglas = reglas;
+        this.fallos = fallos;
+    }
+
+    public int tamanio() { return fallos.length; }
+
+    public boolean valida(int fila) { return fallos[fila] == 0; }
+
+    /** {@code null} si la fila es válida. */
+    public CodigoError primerError(int fila) {
+        long f = fallos[fila];
+        return f == 0 ? null : reglas.get(Long.numberOfTrailingZeros(f)).codigo();
+    }
+
+    /** Errores de la fila en el orden de la cadena. */
+    public List<CodigoError> errores(int fila) {
+        long f = fallos[fila];
+        List<CodigoError> errores = new ArrayList<>(Long.bitCount(f));
+        for (; f != 0; f &= f - 1) errores.add(reglas.get(Long.numberOfTrailingZeros(f)).codigo());
+        return errores;
+    }
+}
@@ -1,41 +1,169 @@
 package com.dinet.pedidos.importacion.domain.service;
 
+import com.dinet.pedidos.importacion.domain.model.CatalogoResuelto;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
 import com.dinet.pedidos.importacion.domain.model.Pedido;
 import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
 
+/**
+ * Cadena de {@link ReglaPedido}: primero las locales y después, con el catálogo resuelto una sola
+ * vez para el lote, las que lo consultan. En {@link ModoValidacion#PRIMER_ERROR} cada regla solo
+ * evalúa las filas que siguen válidas y el catálogo se pide solo para sus clientes y zonas.
+ */
 @Service
-@RequiredArgsConstructor
 public class ValidacionPedidoService {
 
     private final CatalogosConsulta catalogos;
     private final Clock clock;
+    private final ModoValidacion modo;
+    private final List<ReglaPedido> reglas;
+    private final List<EstadisticasRegla> estadisticas;
+    private final int locales;
 
+    public ValidacionPedidoService(CatalogosConsulta catalogos,
+                                   Clock clock,
+                                   List<ReglaPedido> reglas,
+                                   @Value("${app.validacion.modo:PRIMER_ERROR}") ModoValidacion modo) {
+        if (reglas.size() > Long.SIZE) throw new IllegalArgumentException("Como máximo " + Long.SIZE + " reglas");
+        this.catalogos = catalogos;
+        this.clock = clock;
+        this.modo = modo;
+        // orden estable: dentro de cada costo se respeta el @Order de las reglas
+        this.reglas = reglas.stream().sorted(Comparator.comparing(ReglaPedido::costo)).toList();
+        this.estadisticas = this.reglas.stream().map(EstadisticasRegla::new).toList();
+        this.locales = (int) reglas.stream().filter(r -> r.costo() == ReglaPedido.Costo.LOCAL).count();
+    }
+
+    /** Contadores acumulados de cada regla, en el orden de la cadena. */
+    public List<EstadisticasRegla> estadisticas() {
+        return estadisticas;
+    }
+
+    public CatalogoResuelto resolverCatalogos(Collection<Pedido> pedidos) {
+        Set<String> clientes = new HashSet<>();
+        Set<String> zonas = new HashSet<>();
+        for (Pedido p : pedidos) {
+            clientes.add(p.clienteId());
+            zonas.add(p.zonaId());
+        }
+        return new CatalogoResuelto(
+                catalogos.clientesActivos(clientes),
+                catalogos.soporteRefrigeracionPorZona(zonas));
+    }
+
+    public CatalogoResuelto resolverCatalogos(LotePedidos lote) {
+        return new CatalogoResuelto(
+                catalogos.clientesActivos(new HashSet<>(lote.clientesDistintos())),
+                catalogos.soporteRefrigeracionPorZona(new HashSet<>(lote.zonasDistintas())));
+    }
+
+    // clientes y zonas de las filas que siguen sin errores
+    private CatalogoResuelto resolverCatalogos(LotePedidos lote, long[] fallos) {
+        Set<String> clientes = new HashSet<>();
+        Set<String> zonas = new HashSet<>();
+        for (int i = 0; i < fallos.length; i++) {
+            if (fallos[i] != 0) continue;
+            clientes.add(lote.clienteId(i));
+            zonas.add(lote.zonaId(i));
+        }
+        return new CatalogoResuelto(
+                catalogos.clientesActivos(clientes),
+                catalogos.soporteRefrigeracionPorZona(zonas));
+    }
+
+    /** Valida el lote en el modo configurado ({@code app.validacion.modo}). */
+    public ResultadoValidacion validar(LotePedidos lote) {
+        return validar(lote, null, modo);
+    }
+
+    /** Como {@link #validar(LotePedidos)}, con el catálogo ya resuelto. */
+    public ResultadoValidacion validar(LotePedidos lote, CatalogoResuelto catalogo) {
+        return validar(lote, catalogo, modo);
+    }
+
+    /** Todos los errores del pedido, consultando el catálogo solo para su cliente y su zona. */
     public List<String> validar(Pedido p) {
-        List<String> errores = new ArrayList<>();
+        var catalogo = new CatalogoResuelto(
+                catalogos.existeCliente(p.clienteId()) ? Set.of(p.clienteId()) : Set.of(),
+                catalogos.zonaSoportaRefrigeracion(p.zonaId()).map(s -> Map.of(p.zonaId(), s)).orElse(Map.of()));
+        return validar(p, catalogo);
+    }
+
+    public List<String> validar(Pedido p, CatalogoResuelto catalogo) {
+        var lote = new LotePedidos(1);
+        lote.agregar(0, p);
+        return validar(lote, catalogo, ModoValidacion.TODOS).errores(0).stream().map(CodigoError::codigo).toList();
+    }
 
-        if (!catalogos.existeCliente(p.clienteId())) {
-            errores.add("CLIENTE_NO_ENCONTRADO");
+    private ResultadoValidacion validar(LotePedidos lote, CatalogoResuelto catalogo, ModoValidacion modo) {
+        long[] fallos = new long[lote.tamanio()];
+        int hoy = Math.toIntExact(LocalDate.now(clock).toEpochDay());
+        var contexto = new ReglaPedido.Contexto(hoy, null);
+        int pendientes = fallos.length;
+        for (int k = 0; k < locales && pendientes > 0; k++) {
+            pendientes = aplicar(k, lote, contexto, fallos, modo, pendientes);
         }
+        if (locales < reglas.size() && pendientes > 0) {
+            if (catalogo == null) {
+                catalogo = modo == ModoValidacion.TODOS ? resolverCatalogos(lote) : resolverCatalogos(lote, fallos);
+            }
+            contexto = new ReglaPedido.Contexto(hoy, catalogo);
+            for (int k = locales; k < reglas.size() && pendientes > 0; k++) {
+                pendientes = aplicar(k, lote, contexto, fallos, modo, pendientes);
+            }
+        }
+        return new ResultadoValidacion(reglas, fallos);
+    }
+
+    // devuelve cuántas filas quedan por evaluar en el modo dado
+    private int aplicar(int k, LotePedidos lote, ReglaPedido.Contexto contexto, long[] fallos,
+                        ModoValidacion modo, int pendientes) {
+        long inicio = System.nanoTime();
+        IntPredicate cumple = reglas.get(k).preparar(lote, contexto);
+        long bit = 1L << k;
+        int evaluadas = 0;
+        int rechazadas = 0;
+        for (int i = 0; i < fallos.length; i++) {
+            if (modo == ModoValidacion.PRIMER_ERROR && fallos[i] != 0) continue;
+            evaluadas++;
+            if (!cumple.test(i)) {
+                fallos[i] |= bit;
+                rechazadas++;
+            }
+        }
+        estadisticas.get(k).registrar(evaluadas, rechazadas, System.nanoTime() - inicio);
+        return modo == ModoValidacion.PRIMER_ERROR ? pendientes - rechazadas : pendientes;
+    }
+
+    /** Filas evaluadas, rechazadas y tiempo acumulado de una regla (preparación incluida). */
+    public static final class EstadisticasRegla {
+        private final ReglaPedido regla;
+        private final LongAdder evaluadas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
 
-        var soporteOpt = catalogos.zonaSoportaRefrigeracion(p.zonaId());
-        if (soporteOpt.isEmpty()) {
-            errores.add("ZONA_INVALIDA");
-        } else if (p.requiereRefrigeracion() && !soporteOpt.get()) {
-            errores.add("CADENA_FRIO_NO_SOPORTADA");
+        EstadisticasRegla(ReglaPedido regla) {
+            this.regla = regla;
         }
 
-        LocalDate hoy = LocalDate.now(clock);
-        if (p.fechaEntrega().isBefore(hoy)) {
-            errores.add("FECHA_INVALIDA");
+        void registrar(int filas, int rechazos, long duracion) {
+            evaluadas.add(filas);
+            rechazadas.add(rechazos);
+            nanos.add(duracion);
         }
 
-        return errores;
+        public ReglaPedido regla() { return regla; }
+        public long evaluadas() { return evaluadas.sum(); }
+        public long rechazadas() { return rechazadas.sum(); }
+        public long nanos() { return nanos.sum(); }
     }
 }
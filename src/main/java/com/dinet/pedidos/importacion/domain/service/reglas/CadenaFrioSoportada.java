@@ -0,0 +1,37 @@
+package com.dinet.pedidos.importacion.domain.service.reglas;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.service.ReglaPedido;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Un pedido refrigerado solo va a zonas con cadena de frío. Una zona inexistente la cumple: ese
+ * caso lo reporta {@link ZonaExistente}.
+ */
+@Component
+@Order(400)
+public class CadenaFrioSoportada implements ReglaPedido {
+
+    @Override
+    public String nombre() { return "cadena_frio"; }
+
+    @Override
+    public Costo costo() { return Costo.CATALOGO; }
+
+    @Override
+    public CodigoError codigo() { return CodigoError.CADENA_FRIO_NO_SOPORTADA; }
+
+    @Override
+    public IntPredicate preparar(LotePedidos lote, Contexto contexto) {
+        var zonas = lote.zonasDistintas();
+        boolean[] sinFrio = new boolean[zonas.size()];
+        for (int z = 0; z < sinFrio.length; z++) {
+            sinFrio[z] = !contexto.catalogo().zonaSoportaRefrigeracion(zonas.get(z)).orElse(true);
+        }
+        return i -> !(sinFrio[lote.zona(i)] && lote.requiereRefrigeracion(i));
+    }
+}
@@ -0,0 +1,32 @@
+package com.dinet.pedidos.importacion.domain.service.reglas;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.service.ReglaPedido;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntPredicate;
+
+/** El cliente existe y está activo. */
+@Component
+@Order(200)
+public class ClienteActivo implements ReglaPedido {
+
+    @Override
+    public String nombre() { return "cliente"; }
+
+    @Override
+    public Costo costo() { return Costo.CATALOGO; }
+
+    @Override
+    public CodigoError codigo() { return CodigoError.CLIENTE_NO_ENCONTRADO; }
+
+    @Override
+    public IntPredicate preparar(LotePedidos lote, Contexto contexto) {
+        var clientes = lote.clientesDistintos();
+        boolean[] existe = new boolean[clientes.size()];
+        for (int c = 0; c < existe.length; c++) existe[c] = contexto.catalogo().existeCliente(clientes.get(c));
+        return i -> existe[lote.cliente(i)];
+    }
+}
@@ -0,0 +1,30 @@
+package com.dinet.pedidos.importacion.domain.service.reglas;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.service.ReglaPedido;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntPredicate;
+
+/** La fecha de entrega no puede ser anterior a hoy. */
+@Component
+@Order(100)
+public class FechaEntregaNoPasada implements ReglaPedido {
+
+    @Override
+    public String nombre() { return "fecha_entrega"; }
+
+    @Override
+    public Costo costo() { return Costo.LOCAL; }
+
+    @Override
+    public CodigoError codigo() { return CodigoError.FECHA_INVALIDA; }
+
+    @Override
+    public IntPredicate preparar(LotePedidos lote, Contexto contexto) {
+        int hoy = contexto.hoyEpochDia();
+        return i -> lote.fechaEntregaEpochDia(i) >= hoy;
+    }
+}
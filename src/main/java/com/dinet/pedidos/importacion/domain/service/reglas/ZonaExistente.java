@@ -0,0 +1,34 @@
+package com.dinet.pedidos.importacion.domain.service.reglas;
+
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.service.ReglaPedido;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.function.IntPredicate;
+
+/** La zona de entrega existe en el catálogo. */
+@Component
+@Order(300)
+public class ZonaExistente implements ReglaPedido {
+
+    @Override
+    public String nombre() { return "zona"; }
+
+    @Override
+    public Costo costo() { return Costo.CATALOGO; }
+
+    @Override
+    public CodigoError codigo() { return CodigoError.ZONA_INVALIDA; }
+
+    @Override
+    public IntPredicate preparar(LotePedidos lote, Contexto contexto) {
+        var zonas = lote.zonasDistintas();
+        boolean[] existe = new boolean[zonas.size()];
+        for (int z = 0; z < existe.length; z++) {
+            existe[z] = contexto.catalogo().zonaSoportaRefrigeracion(zonas.get(z)).isPresent();
+        }
+        return i -> existe[lote.zona(i)];
+    }
+}
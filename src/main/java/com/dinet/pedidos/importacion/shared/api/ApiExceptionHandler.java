@@ -1,10 +1,16 @@
 package com.dinet.pedidos.importacion.shared.api;
 
+import com.dinet.pedidos.importacion.application.CapacidadExcedidaException;
+import com.dinet.pedidos.importacion.application.CargaEnProcesoException;
+import com.dinet.pedidos.importacion.application.ConsultaInvalidaException;
+import com.dinet.pedidos.importacion.application.SubidaInvalidaException;
+import com.dinet.pedidos.importacion.application.SubidaNoEncontradaException;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.http.*;
 import org.springframework.web.bind.MissingRequestHeaderException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.util.List;
@@ -27,6 +33,45 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(body);
     }
 
+    @ExceptionHandler(CapacidadExcedidaException.class)
+    public ResponseEntity<ErrorResponse> sobrecarga(CapacidadExcedidaException ex) {
+        var body = new ErrorResponse("TOO_MANY_REQUESTS", ex.getMessage(), List.of(), cid());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getReintentarEnSegundos()))
+                .body(body);
+    }
+
+    @ExceptionHandler(CargaEnProcesoException.class)
+    public ResponseEntity<ErrorResponse> enProceso(CargaEnProcesoException ex) {
+        var body = new ErrorResponse("CARGA_EN_PROCESO", ex.getMessage(), List.of(), cid());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(SubidaNoEncontradaException.class)
+    public ResponseEntity<ErrorResponse> subidaNoEncontrada(SubidaNoEncontradaException ex) {
+        var body = new ErrorResponse("NOT_FOUND", ex.getMessage(), List.of(), cid());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
+    @ExceptionHandler(SubidaInvalidaException.class)
+    public ResponseEntity<ErrorResponse> subidaInvalida(SubidaInvalidaException ex) {
+        var body = new ErrorResponse("BAD_REQUEST", ex.getMessage(), ex.getDetalles(), cid());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    }
+
+    @ExceptionHandler(ConsultaInvalidaException.class)
+    public ResponseEntity<ErrorResponse> consultaInvalida(ConsultaInvalidaException ex) {
+        var body = new ErrorResponse("BAD_REQUEST", ex.getMessage(), List.of(), cid());
+        // la exportación se pide con Accept: text/csv o NDJSON; el error va en JSON igual
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponse> parametroInvalido(MethodArgumentTypeMismatchException ex) {
+        var body = new ErrorResponse("BAD_REQUEST", "Parámetro inválido: " + ex.getName(), List.of(), cid());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> generic(Exception ex) {
         log.error("Error no controlado", ex);
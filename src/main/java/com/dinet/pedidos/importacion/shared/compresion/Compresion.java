@@ -0,0 +1,50 @@
+package com.dinet.pedidos.importacion.shared.compresion;
+
+import com.github.luben.zstd.ZstdInputStream;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Formatos aceptados para el CSV, reconocidos por sus primeros bytes: una parte multipart no
+ * trae su propio Content-Encoding, y así también valen las cargas asíncronas y por partes.
+ * El flujo se descomprime a medida que se lee, sin pasar por memoria ni disco.
+ */
+public enum Compresion {
+    NINGUNA, GZIP, DEFLATE, ZSTD;
+
+    private static final int BUFFER = 64 * 1024;
+
+    /** Mira los primeros bytes de {@code in}, que debe soportar {@code mark}, sin consumirlos. */
+    public static Compresion detectar(InputStream in) throws IOException {
+        in.mark(4);
+        byte[] b = in.readNBytes(4);
+        in.reset();
+        int b0 = b.length > 0 ? b[0] & 0xFF : -1;
+        int b1 = b.length > 1 ? b[1] & 0xFF : -1;
+        if (b0 == 0x1F && b1 == 0x8B) return GZIP;
+        if (b.length == 4 && b0 == 0x28 && b1 == 0xB5 && (b[2] & 0xFF) == 0x2F && (b[3] & 0xFF) == 0xFD) return ZSTD;
+        // cabecera zlib: método deflate con ventana <= 32K y FCHECK válido
+        if (b1 >= 0 && (b0 & 0x0F) == 8 && (b0 >>> 4) <= 7 && ((b0 << 8) | b1) % 31 == 0) return DEFLATE;
+        return NINGUNA;
+    }
+
+    public static InputStream descomprimir(InputStream in) throws IOException {
+        var buffered = new BufferedInputStream(in, BUFFER);
+        return switch (detectar(buffered)) {
+            case NINGUNA -> buffered;
+            case GZIP -> new GZIPInputStream(buffered, BUFFER);
+            case DEFLATE -> new InflaterInputStream(buffered);
+            case ZSTD -> new ZstdInputStream(buffered);
+        };
+    }
+
+    /** Cada lectura de {@code origen} devuelve el contenido ya descomprimido. */
+    public static InputStreamSource descomprimida(InputStreamSource origen) {
+        return () -> descomprimir(origen.getInputStream());
+    }
+}
@@ -1,16 +1,50 @@
 package com.dinet.pedidos.importacion.shared.crypto;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 
 public final class Hashes {
+    private static final int BUFFER = 64 * 1024;
+
     private Hashes() {}
     public static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data));
+    }
+
+    public static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest md = sha256();
+        byte[] buf = new byte[BUFFER];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * Calcula el hash mientras {@code lector} consume el flujo, para aprovechar la misma lectura;
+     * lo que el lector deje sin leer se consume al final.
+     */
+    public static String sha256Hex(InputStream in, Lector lector) throws IOException {
+        var din = new DigestInputStream(in, sha256());
+        lector.leer(din);
+        din.transferTo(OutputStream.nullOutputStream());
+        return HexFormat.of().formatHex(din.getMessageDigest().digest());
+    }
+
+    @FunctionalInterface
+    public interface Lector {
+        void leer(InputStream in) throws IOException;
+    }
+
+    private static MessageDigest sha256() {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(data);
-            return HexFormat.of().formatHex(digest);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-256 no disponible", e);
         }
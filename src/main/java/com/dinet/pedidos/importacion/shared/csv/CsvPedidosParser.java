@@ -1,105 +1,483 @@
 package com.dinet.pedidos.importacion.shared.csv;
 
 import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
 import com.dinet.pedidos.importacion.domain.model.Estado;
 import com.dinet.pedidos.importacion.domain.model.Pedido;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Parser específico del CSV de pedidos (RFC 4180, delimitador {@code ,}, comillas {@code "}).
+ * Recorre la entrada una sola vez, resuelve la posición de cada columna al leer la cabecera y
+ * valida fecha, estado, booleano y número de pedido sobre el buffer de caracteres, sin lanzar
+ * excepciones por datos inválidos. Cada fila válida se entrega como una vista sobre ese buffer
+ * ({@link Fila}), sin crear objetos: quien la recibe copia lo que necesite.
+ * <p>
+ * Mantiene la semántica de la versión basada en commons-csv: valores recortados, líneas vacías
+ * ignoradas y número de línea = número de registro + 1 (cabecera = línea 1).
+ */
 public final class CsvPedidosParser {
 
     private static final String[] HEADER = {
             "numero_pedido","cliente_id","fecha_entrega","estado","zona_id","requiere_refrigeracion"
     };
+    private static final int NUMERO = 0, CLIENTE = 1, FECHA = 2, ESTADO = 3, ZONA = 4, REFRIGERACION = 5;
+
+    private static final CodigoError[] FALTA_CAMPO = {
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_NUMERO_PEDIDO,
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_CLIENTE_ID,
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_FECHA_ENTREGA,
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_ESTADO,
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_ZONA_ID,
+            CodigoError.CAMPO_OBLIGATORIO_FALTA_REQUIERE_REFRIGERACION
+    };
+    private static final Estado[] ESTADOS = Estado.values();
+    // pedidos.numero_pedido es VARCHAR(64)
+    static final int LARGO_MAXIMO_NUMERO = 64;
+
+    private CsvPedidosParser() {}
 
     public static Result parse(byte[] csvBytes) throws IOException {
-        try (var reader = new InputStreamReader(new ByteArrayInputStream(csvBytes), StandardCharsets.UTF_8);
-             var parser = CSVParser.parse(reader, CSVFormat.DEFAULT.builder()
-                     .setHeader()
-                     .setSkipHeaderRecord(true)
-                     .setTrim(true)
-                     .setIgnoreEmptyLines(true)
-                     .build())) {
-
-            var headerMap = parser.getHeaderMap();
-            if (headerMap == null || headerMap.size() != HEADER.length) {
-                return Result.cabeceraInvalida("CABECERA_INVALIDA");
-            }
-            for (String h : HEADER) {
-                if (!headerMap.containsKey(h)) {
-                    return Result.cabeceraInvalida("CABECERA_INVALIDA: falta '" + h + "'");
+        List<FilaValida> filas = new ArrayList<>();
+        List<ErrorFila> errores = new ArrayList<>();
+        String cabeceraError = parse(new ByteArrayInputStream(csvBytes), new Destino() {
+            @Override public void filaValida(int linea, Fila fila) { filas.add(new FilaValida(linea, fila.pedido())); }
+            @Override public void error(ErrorFila error) { errores.add(error); }
+        });
+        return cabeceraError != null ? Result.cabeceraInvalida(cabeceraError) : new Result(filas, errores, null);
+    }
+
+    /**
+     * Recorre el CSV fila a fila sin retenerlo en memoria. Devuelve el motivo si la cabecera es
+     * inválida (ya notificado a {@code destino} como error de la línea 1), o {@code null}.
+     * Un CSV mal formado (comillas sin cerrar o texto tras una comilla de cierre) lanza
+     * {@link IOException}.
+     */
+    public static String parse(InputStream in, Destino destino) throws IOException {
+        return parse(in, destino, null);
+    }
+
+    /**
+     * Como {@link #parse(InputStream, Destino)}, pero si {@code desde} no es nulo, tras leer la
+     * cabecera salta sin parsear hasta esa posición (obtenida de {@link Destino#finRegistro}) y
+     * continúa con la línea siguiente.
+     */
+    public static String parse(InputStream in, Destino destino, Posicion desde) throws IOException {
+        try (var reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            var lector = new Lector(reader);
+            int[] columna = new int[HEADER.length];
+            var motivo = leerCabecera(lector, columna);
+            if (motivo != null) return cabeceraInvalida(destino, motivo);
+            var fila = new Fila(lector, columna);
+
+            int registro = 0;
+            if (desde != null) {
+                lector.saltarHasta(desde.caracter());
+                registro = desde.linea() - 1;
+            }
+            while (lector.siguienteRegistro()) {
+                int linea = ++registro + 1; // cabecera = línea 1
+                var error = validarFila(lector, columna);
+                if (error != null) {
+                    destino.error(new ErrorFila(linea, error));
+                } else {
+                    destino.filaValida(linea, fila);
                 }
+                destino.finRegistro(linea, lector.posicion());
             }
+            return null;
+        }
+    }
+
+    /**
+     * Recorre el CSV igual que {@link #parse(InputStream, Destino)} pero solo informa el número
+     * de pedido de las filas que {@code parse} entregaría como válidas. No hace nada si la
+     * cabecera es inválida y no cierra {@code in}.
+     */
+    public static void numerosPedido(InputStream in, DestinoClaves destino) throws IOException {
+        var lector = new Lector(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int[] columna = new int[HEADER.length];
+        if (leerCabecera(lector, columna) != null) return;
+        var numero = new Campo(lector, columna[NUMERO]);
+
+        int registro = 0;
+        while (lector.siguienteRegistro()) {
+            int linea = ++registro + 1;
+            if (validarFila(lector, columna) != null) continue;
+            destino.clave(linea, numero);
+        }
+    }
 
-            List<FilaValida> filas = new ArrayList<>();
-            List<ErrorFila> errores = new ArrayList<>();
+    // Resuelve la posición de cada columna; devuelve el motivo si la cabecera es inválida.
+    private static String leerCabecera(Lector lector, int[] columna) throws IOException {
+        if (!lector.siguienteRegistro()) return "CABECERA_INVALIDA";
+        Map<String, Integer> headerMap = new HashMap<>();
+        for (int i = 0; i < lector.campos; i++) {
+            var nombre = lector.texto(i);
+            if (nombre.isEmpty()) return "CABECERA_INVALIDA";
+            headerMap.put(nombre, i);
+        }
+        if (headerMap.size() != HEADER.length) return "CABECERA_INVALIDA";
+        for (int k = 0; k < HEADER.length; k++) {
+            Integer idx = headerMap.get(HEADER[k]);
+            if (idx == null) return "CABECERA_INVALIDA: falta '" + HEADER[k] + "'";
+            columna[k] = idx;
+        }
+        return null;
+    }
 
-            for (CSVRecord r : parser) {
-                int linea = (int) r.getRecordNumber() + 1; // cabecera = línea 1
+    private static CodigoError validarFila(Lector l, int[] columna) {
+        for (int k = 0; k < HEADER.length; k++) {
+            int c = columna[k];
+            if (c >= l.campos) return CodigoError.ERROR_DESCONOCIDO;
+            if (l.inicio[c] == l.fin[c]) return FALTA_CAMPO[k];
+        }
+        if (!l.leerFecha(columna[FECHA])) return CodigoError.FECHA_INVALIDA_FORMATO;
+        if (!l.leerEstado(columna[ESTADO])) return CodigoError.ESTADO_INVALIDO;
+        if (!l.leerBooleano(columna[REFRIGERACION])) return CodigoError.BOOLEANO_INVALIDO_REQUIERE_REFRIGERACION;
+        if (!l.numeroValido(columna[NUMERO])) return CodigoError.NUMERO_PEDIDO_INVALIDO;
+        return null;
+    }
 
-                try {
-                    var numero   = obligatorio(r, "numero_pedido");
-                    var cliente  = obligatorio(r, "cliente_id");
-                    var fechaStr = obligatorio(r, "fecha_entrega");
-                    var estadoStr= obligatorio(r, "estado");
-                    var zona     = obligatorio(r, "zona_id");
-                    var reqRefriStr = obligatorio(r, "requiere_refrigeracion");
-
-                    LocalDate fecha;
-                    try { fecha = LocalDate.parse(fechaStr); }
-                    catch (DateTimeParseException ex) { errores.add(new ErrorFila(linea, "FECHA_INVALIDA_FORMATO")); continue; }
-
-                    Estado estado;
-                    try { estado = Estado.valueOf(estadoStr); }
-                    catch (IllegalArgumentException ex) { errores.add(new ErrorFila(linea, "ESTADO_INVALIDO")); continue; }
-
-                    boolean requiereRefri;
-                    if ("true".equalsIgnoreCase(reqRefriStr) || "false".equalsIgnoreCase(reqRefriStr)) {
-                        requiereRefri = Boolean.parseBoolean(reqRefriStr);
-                    } else {
-                        errores.add(new ErrorFila(linea, "BOOLEANO_INVALIDO_requiere_refrigeracion"));
-                        continue;
+    private static String cabeceraInvalida(Destino destino, String motivo) {
+        destino.error(new ErrorFila(1, motivo));
+        return motivo;
+    }
+
+    /**
+     * Lee registros sobre un buffer propio. Los campos del registro actual quedan desescapados en
+     * {@code datos}, delimitados por {@code inicio}/{@code fin} ya recortados.
+     */
+    private static final class Lector {
+        private static final int EOF = -1;
+
+        private final Reader reader;
+        private final char[] buffer = new char[64 * 1024];
+        private long base; // caracteres leídos antes de buffer[0]
+        private int pos;
+        private int lim;
+
+        char[] datos = new char[256];
+        int largo;
+        int[] inicio = new int[8];
+        int[] fin = new int[8];
+        int campos;
+
+        int fechaEpochDia;
+        Estado estado;
+        boolean refrigeracion;
+
+        Lector(Reader reader) {
+            this.reader = reader;
+        }
+
+        private int leer() throws IOException {
+            if (pos == lim) {
+                base += lim;
+                lim = reader.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (lim <= 0) {
+                    lim = 0;
+                    return EOF;
+                }
+            }
+            return buffer[pos++];
+        }
+
+        long posicion() {
+            return base + pos;
+        }
+
+        void saltarHasta(long caracter) throws IOException {
+            long faltan = caracter - posicion();
+            if (faltan <= lim - pos) {
+                pos += (int) Math.max(faltan, 0);
+                return;
+            }
+            faltan -= lim - pos;
+            base += lim;
+            pos = lim = 0;
+            while (faltan > 0) {
+                long n = reader.skip(faltan);
+                if (n <= 0) throw new IOException("El archivo es más corto que el punto de reanudación");
+                faltan -= n;
+                base += n;
+            }
+        }
+
+        private int mirar() throws IOException {
+            int c = leer();
+            if (c != EOF) pos--;
+            return c;
+        }
+
+        private void agregar(char c) {
+            if (largo == datos.length) datos = Arrays.copyOf(datos, largo * 2);
+            datos[largo++] = c;
+        }
+
+        private void cerrarCampo(int desde) {
+            if (campos == inicio.length) {
+                inicio = Arrays.copyOf(inicio, campos * 2);
+                fin = Arrays.copyOf(fin, campos * 2);
+            }
+            int a = desde, b = largo;
+            while (a < b && datos[a] <= ' ') a++;
+            while (b > a && datos[b - 1] <= ' ') b--;
+            inicio[campos] = a;
+            fin[campos] = b;
+            campos++;
+        }
+
+        private boolean finDeLinea(int c) throws IOException {
+            if (c == '\n') return true;
+            if (c == '\r') {
+                if (mirar() == '\n') pos++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean siguienteRegistro() throws IOException {
+            largo = 0;
+            campos = 0;
+            int c = leer();
+            while (c != EOF && finDeLinea(c)) c = leer(); // líneas vacías
+            if (c == EOF) return false;
+
+            while (true) {
+                int desde = largo;
+                if (c == '"') {
+                    c = campoEntrecomillado();
+                } else {
+                    while (c != ',' && c != EOF && c != '\n' && c != '\r') {
+                        agregar((char) c);
+                        c = leer();
                     }
+                }
+                cerrarCampo(desde);
+                if (c == ',') {
+                    c = leer();
+                    continue;
+                }
+                if (c != EOF) finDeLinea(c);
+                return true;
+            }
+        }
 
-                    if (!numero.matches("^[A-Za-z0-9-]+$")) {
-                        errores.add(new ErrorFila(linea, "NUMERO_PEDIDO_INVALIDO"));
+        // Devuelve el carácter que sigue a la comilla de cierre y a los blancos posteriores.
+        private int campoEntrecomillado() throws IOException {
+            while (true) {
+                int c = leer();
+                if (c == EOF) throw new IOException("CSV mal formado: comillas sin cerrar");
+                if (c == '"') {
+                    if (mirar() == '"') {
+                        pos++;
+                        agregar('"');
                         continue;
                     }
+                    c = leer();
+                    while (c != ',' && c != EOF && c != '\n' && c != '\r') {
+                        if (!Character.isWhitespace(c)) {
+                            throw new IOException("CSV mal formado: texto tras comilla de cierre");
+                        }
+                        c = leer();
+                    }
+                    return c;
+                }
+                agregar((char) c);
+            }
+        }
+
+        String texto(int campo) {
+            return new String(datos, inicio[campo], fin[campo] - inicio[campo]);
+        }
+
+        // ISO yyyy-MM-dd; los años con signo (raros) se delegan en LocalDate.parse.
+        boolean leerFecha(int campo) {
+            int a = inicio[campo], n = fin[campo] - a;
+            char primero = datos[a];
+            if (primero == '+' || primero == '-') {
+                try {
+                    fechaEpochDia = Math.toIntExact(LocalDate.parse(texto(campo)).toEpochDay());
+                    return true;
+                } catch (ArithmeticException e) {
+                    return false;
+                } catch (DateTimeParseException e) {
+                    return false;
+                }
+            }
+            if (n != 10 || datos[a + 4] != '-' || datos[a + 7] != '-') return false;
+            int anio = digitos(a, 4), mes = digitos(a + 5, 2), dia = digitos(a + 8, 2);
+            if (anio < 0 || mes < 1 || mes > 12 || dia < 1) return false;
+            if (dia > diasDelMes(anio, mes)) return false;
+            fechaEpochDia = epochDia(anio, mes, dia);
+            return true;
+        }
+
+        // días desde 1970-01-01 en el calendario gregoriano proléptico (como LocalDate.toEpochDay)
+        private static int epochDia(int anio, int mes, int dia) {
+            int a = mes <= 2 ? anio - 1 : anio;
+            int era = Math.floorDiv(a, 400);
+            int anioEra = a - era * 400;
+            int diaAnio = (153 * (mes + (mes > 2 ? -3 : 9)) + 2) / 5 + dia - 1;
+            int diaEra = anioEra * 365 + anioEra / 4 - anioEra / 100 + diaAnio;
+            return era * 146097 + diaEra - 719468;
+        }
 
-                    filas.add(new FilaValida(linea, new Pedido(numero, cliente, fecha, estado, zona, requiereRefri)));
+        private int digitos(int desde, int cuantos) {
+            int v = 0;
+            for (int i = desde; i < desde + cuantos; i++) {
+                char c = datos[i];
+                if (c < '0' || c > '9') return -1;
+                v = v * 10 + (c - '0');
+            }
+            return v;
+        }
+
+        private static int diasDelMes(int anio, int mes) {
+            return switch (mes) {
+                case 2 -> ((anio & 3) == 0 && (anio % 100 != 0 || anio % 400 == 0)) ? 29 : 28;
+                case 4, 6, 9, 11 -> 30;
+                default -> 31;
+            };
+        }
 
-                } catch (CampoObligatorio e) {
-                    errores.add(new ErrorFila(linea, "CAMPO_OBLIGATORIO_FALTA_" + e.nombre()));
-                } catch (Exception e) {
-                    errores.add(new ErrorFila(linea, "ERROR_DESCONOCIDO"));
+        boolean leerEstado(int campo) {
+            for (Estado e : ESTADOS) {
+                if (igual(campo, e.name(), false)) {
+                    estado = e;
+                    return true;
                 }
             }
-            return new Result(filas, errores, null);
+            return false;
+        }
+
+        boolean leerBooleano(int campo) {
+            if (igual(campo, "true", true)) {
+                refrigeracion = true;
+                return true;
+            }
+            if (igual(campo, "false", true)) {
+                refrigeracion = false;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean igual(int campo, String valor, boolean ignorarMayusculas) {
+            int a = inicio[campo], n = fin[campo] - a;
+            if (n != valor.length()) return false;
+            for (int i = 0; i < n; i++) {
+                char c = datos[a + i], v = valor.charAt(i);
+                if (c == v) continue;
+                if (!ignorarMayusculas) return false;
+                // misma regla que String.equalsIgnoreCase
+                char cu = Character.toUpperCase(c), vu = Character.toUpperCase(v);
+                if (cu != vu && Character.toLowerCase(cu) != Character.toLowerCase(vu)) return false;
+            }
+            return true;
+        }
+
+        // equivalente a ^[A-Za-z0-9-]+$
+        boolean numeroValido(int campo) {
+            if (fin[campo] - inicio[campo] > LARGO_MAXIMO_NUMERO) return false;
+            for (int i = inicio[campo]; i < fin[campo]; i++) {
+                char c = datos[i];
+                boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+                if (!ok) return false;
+            }
+            return true;
         }
     }
 
-    private static String obligatorio(CSVRecord r, String nombre) {
-        var v = r.get(nombre);
-        if (v == null) throw new CampoObligatorio(nombre);
-        v = v.trim();
-        if (v.isEmpty()) throw new CampoObligatorio(nombre);
-        return v;
+    /**
+     * Fila válida recién leída. Es una vista sobre el buffer del parser: solo vale durante la
+     * llamada a {@link Destino#filaValida}, y sus {@link CharSequence} también.
+     */
+    public static final class Fila {
+        private final Lector lector;
+        private final Campo numero;
+        private final Campo cliente;
+        private final Campo zona;
+
+        private Fila(Lector lector, int[] columna) {
+            this.lector = lector;
+            this.numero = new Campo(lector, columna[NUMERO]);
+            this.cliente = new Campo(lector, columna[CLIENTE]);
+            this.zona = new Campo(lector, columna[ZONA]);
+        }
+
+        public CharSequence numeroPedido() { return numero; }
+        public CharSequence clienteId() { return cliente; }
+        public CharSequence zonaId() { return zona; }
+        public int fechaEntregaEpochDia() { return lector.fechaEpochDia; }
+        public Estado estado() { return lector.estado; }
+        public boolean requiereRefrigeracion() { return lector.refrigeracion; }
+
+        public Pedido pedido() {
+            return new Pedido(numero.toString(), cliente.toString(), LocalDate.ofEpochDay(lector.fechaEpochDia),
+                    lector.estado, zona.toString(), lector.refrigeracion);
+        }
     }
 
-    private static final class CampoObligatorio extends RuntimeException {
-        private final String nombre;
-        CampoObligatorio(String nombre) { super(nombre); this.nombre = nombre; }
-        public String nombre() { return nombre; }
+    // un campo del registro actual, sin copiarlo
+    private static final class Campo implements CharSequence {
+        private final Lector lector;
+        private final int campo;
+
+        Campo(Lector lector, int campo) {
+            this.lector = lector;
+            this.campo = campo;
+        }
+
+        @Override
+        public int length() {
+            return lector.fin[campo] - lector.inicio[campo];
+        }
+
+        @Override
+        public char charAt(int index) {
+            return lector.datos[lector.inicio[campo] + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return lector.texto(campo);
+        }
+    }
+
+    public interface Destino {
+        void filaValida(int linea, Fila fila);
+        void error(ErrorFila error);
+
+        /** Tras cada registro: desde {@code caracter} se puede reanudar con la línea siguiente. */
+        default void finRegistro(int linea, long caracter) {}
+    }
+
+    /** Última línea leída y posición (en caracteres) donde empieza el registro siguiente. */
+    public record Posicion(int linea, long caracter) {}
+
+    public interface DestinoClaves {
+        void clave(int linea, CharSequence numeroPedido);
     }
 
     public record FilaValida(int linea, Pedido pedido) {}
@@ -108,4 +486,4 @@ public final class CsvPedidosParser {
             return new Result(List.of(), List.of(new ErrorFila(1, motivo)), motivo);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package com.dinet.pedidos.importacion.shared.csv;
+
+import java.util.Arrays;
+
+/**
+ * Mapa clave ASCII → {@code int} con direccionamiento abierto (sondeo lineal). Las claves se
+ * copian a un único {@code byte[]} con su largo como prefijo y la tabla guarda solo su posición
+ * y el valor: unos 8 bytes por hueco más los bytes de la clave, frente al centenar que cuesta
+ * cada entrada de un {@code HashMap<String, Integer>}. Pensado para millones de números de
+ * pedido en una carga; no es seguro entre hilos.
+ */
+public final class IndiceClaves {
+
+    public static final int AUSENTE = -1;
+    private static final int LARGO_MAXIMO = 0xFFFF;
+
+    private byte[] arena = new byte[64 * 1024];
+    private int usado;
+    private int[] posiciones = new int[1 << 12]; // posición en la arena + 1; 0 = hueco libre
+    private int[] valores = new int[1 << 12];
+    private int tamanio;
+
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /** Valor asociado a {@code clave}, o {@link #AUSENTE}. */
+    public int valor(CharSequence clave) {
+        int i = hueco(clave, hash(clave));
+        return posiciones[i] == 0 ? AUSENTE : valores[i];
+    }
+
+    /** Asocia {@code valor} a {@code clave}; devuelve el valor anterior o {@link #AUSENTE}. */
+    public int poner(CharSequence clave, int valor) {
+        int i = hueco(clave, hash(clave));
+        if (posiciones[i] != 0) {
+            int anterior = valores[i];
+            valores[i] = valor;
+            return anterior;
+        }
+        insertar(i, clave, valor);
+        return AUSENTE;
+    }
+
+    /** Como {@link #poner} pero sin reemplazar un valor existente. */
+    public int agregar(CharSequence clave, int valor) {
+        int i = hueco(clave, hash(clave));
+        if (posiciones[i] != 0) return valores[i];
+        insertar(i, clave, valor);
+        return AUSENTE;
+    }
+
+    private void insertar(int i, CharSequence clave, int valor) {
+        int largo = clave.length();
+        if (largo > LARGO_MAXIMO) throw new IllegalArgumentException("Clave demasiado larga: " + largo);
+        if (usado + 2 + largo > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, usado + 2 + largo));
+        }
+        int p = usado;
+        arena[p] = (byte) (largo >>> 8);
+        arena[p + 1] = (byte) largo;
+        for (int k = 0; k < largo; k++) {
+            char c = clave.charAt(k);
+            if (c > 0x7F) throw new IllegalArgumentException("Clave no ASCII: " + clave);
+            arena[p + 2 + k] = (byte) c;
+        }
+        usado = p + 2 + largo;
+        posiciones[i] = p + 1;
+        valores[i] = valor;
+        if (++tamanio * 2 > posiciones.length) crecer();
+    }
+
+    private int hueco(CharSequence clave, int h) {
+        int mascara = posiciones.length - 1;
+        int i = h & mascara;
+        while (posiciones[i] != 0 && !igual(posiciones[i] - 1, clave)) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private boolean igual(int p, CharSequence clave) {
+        int largo = largo(p);
+        if (largo != clave.length()) return false;
+        for (int k = 0; k < largo; k++) {
+            if (arena[p + 2 + k] != clave.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private int largo(int p) {
+        return ((arena[p] & 0xFF) << 8) | (arena[p + 1] & 0xFF);
+    }
+
+    private void crecer() {
+        int[] posicionesPrevias = posiciones, valoresPrevios = valores;
+        posiciones = new int[posicionesPrevias.length * 2];
+        valores = new int[posicionesPrevias.length * 2];
+        int mascara = posiciones.length - 1;
+        for (int j = 0; j < posicionesPrevias.length; j++) {
+            if (posicionesPrevias[j] == 0) continue;
+            int p = posicionesPrevias[j] - 1;
+            int i = hashArena(p) & mascara;
+            while (posiciones[i] != 0) i = (i + 1) & mascara;
+            posiciones[i] = posicionesPrevias[j];
+            valores[i] = valoresPrevios[j];
+        }
+    }
+
+    private static int hash(CharSequence clave) {
+        int h = 0;
+        for (int k = 0; k < clave.length(); k++) h = 31 * h + clave.charAt(k);
+        return mezclar(h);
+    }
+
+    private int hashArena(int p) {
+        int h = 0, largo = largo(p);
+        for (int k = 0; k < largo; k++) h = 31 * h + arena[p + 2 + k];
+        return mezclar(h);
+    }
+
+    // finalizador de murmur3: reparte bien claves secuenciales como PED-000123
+    private static int mezclar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
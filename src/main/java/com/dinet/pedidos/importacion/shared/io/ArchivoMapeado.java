@@ -0,0 +1,99 @@
+package com.dinet.pedidos.importacion.shared.io;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archivo local leído a través de {@link FileChannel#map}: cada {@link #getInputStream()} recorre
+ * las mismas regiones mapeadas, sin copiar el archivo al heap ni pasar por {@code read(2)}, así
+ * que las pasadas del handler (hash y parseo) se sirven de la caché de páginas. Un archivo de más
+ * de 2 GB se mapea en varias regiones.
+ */
+public final class ArchivoMapeado implements InputStreamSource, AutoCloseable {
+
+    static final long REGION = 1L << 30;
+
+    private final FileChannel canal;
+    private final MappedByteBuffer[] regiones;
+
+    public ArchivoMapeado(Path archivo) throws IOException {
+        this(archivo, REGION);
+    }
+
+    ArchivoMapeado(Path archivo, long region) throws IOException {
+        this.canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        try {
+            long tamanio = canal.size();
+            this.regiones = new MappedByteBuffer[(int) ((tamanio + region - 1) / region)];
+            for (int i = 0; i < regiones.length; i++) {
+                long desde = i * region;
+                regiones[i] = canal.map(FileChannel.MapMode.READ_ONLY, desde, Math.min(region, tamanio - desde));
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new Lectura();
+    }
+
+    /** Las regiones mapeadas se liberan cuando el GC recoge los buffers, no al cerrar. */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    private final class Lectura extends InputStream {
+        private int region;
+        // duplicado propio: cada lectura tiene su posición
+        private MappedByteBuffer actual = siguiente();
+
+        private MappedByteBuffer siguiente() {
+            return region < regiones.length ? regiones[region++].duplicate() : null;
+        }
+
+        private boolean agotada() {
+            while (actual != null && !actual.hasRemaining()) actual = siguiente();
+            return actual == null;
+        }
+
+        @Override
+        public int read() {
+            return agotada() ? -1 : actual.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) return 0;
+            if (agotada()) return -1;
+            int n = Math.min(len, actual.remaining());
+            actual.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long saltados = 0;
+            while (saltados < n && !agotada()) {
+                int paso = (int) Math.min(n - saltados, actual.remaining());
+                actual.position(actual.position() + paso);
+                saltados += paso;
+            }
+            return saltados;
+        }
+
+        @Override
+        public int available() {
+            return actual == null ? 0 : actual.remaining();
+        }
+    }
+}
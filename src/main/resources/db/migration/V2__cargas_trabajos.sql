@@ -0,0 +1,23 @@
+CREATE TABLE IF NOT EXISTS cargas_trabajos (
+  id                 UUID         PRIMARY KEY,
+  clave_idempotencia VARCHAR(128) NOT NULL,
+  estado             VARCHAR(16)  NOT NULL CHECK (estado IN ('EN_COLA','EN_PROCESO','COMPLETADO','FALLIDO')),
+  filas_procesadas   INT          NOT NULL DEFAULT 0,
+  filas_guardadas    INT          NOT NULL DEFAULT 0,
+  filas_con_error    INT          NOT NULL DEFAULT 0,
+  resultado          JSONB,
+  error              TEXT,
+  creado_en          TIMESTAMP    NOT NULL DEFAULT now(),
+  actualizado_en     TIMESTAMP    NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_cargas_trabajos_estado ON cargas_trabajos (estado);
+
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'trg_cargas_trabajos_touch') THEN
+    CREATE TRIGGER trg_cargas_trabajos_touch
+      BEFORE UPDATE ON cargas_trabajos
+      FOR EACH ROW EXECUTE FUNCTION set_actualizado_en();
+  END IF;
+END $$;
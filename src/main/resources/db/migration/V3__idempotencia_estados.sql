@@ -0,0 +1,16 @@
+ALTER TABLE cargas_idempotencia
+  ADD COLUMN IF NOT EXISTS estado         VARCHAR(16) NOT NULL DEFAULT 'COMPLETED',
+  ADD COLUMN IF NOT EXISTS resultado      JSONB,
+  ADD COLUMN IF NOT EXISTS actualizado_en TIMESTAMP   NOT NULL DEFAULT now();
+
+ALTER TABLE cargas_idempotencia
+  ADD CONSTRAINT ck_cargas_idempotencia_estado CHECK (estado IN ('IN_PROGRESS','COMPLETED','FAILED'));
+
+DO $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = 'trg_cargas_idempotencia_touch') THEN
+    CREATE TRIGGER trg_cargas_idempotencia_touch
+      BEFORE UPDATE ON cargas_idempotencia
+      FOR EACH ROW EXECUTE FUNCTION set_actualizado_en();
+  END IF;
+END $$;
@@ -0,0 +1,6 @@
+-- Punto de control de la carga en curso: última línea confirmada, posición (en caracteres) del
+-- registro siguiente y contadores acumulados hasta ahí.
+ALTER TABLE cargas_idempotencia
+  ADD COLUMN IF NOT EXISTS linea_confirmada    INT,
+  ADD COLUMN IF NOT EXISTS caracter_confirmado BIGINT,
+  ADD COLUMN IF NOT EXISTS avance              JSONB;
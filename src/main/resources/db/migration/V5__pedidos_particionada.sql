@@ -0,0 +1,92 @@
+-- pedidos pasa a particionarse por mes de fecha_entrega: cada partición tiene sus propios índices
+-- y su propio vacuum, y las más viejas se retiran sin DELETE masivo.
+--
+-- PostgreSQL exige que los índices únicos de una tabla particionada incluyan la clave de
+-- partición, así que la unicidad global de numero_pedido pasa a pedidos_claves (número ->
+-- fecha_entrega actual, es decir, en qué partición vive). El upsert la consulta antes de escribir
+-- y, si un pedido cambia de fecha, actualiza antes su fila existente a la fecha nueva: si cambia de
+-- mes, el UPDATE la mueve de partición conservando id y creado_en.
+
+ALTER TABLE pedidos RENAME TO pedidos_v1;
+ALTER INDEX pedidos_pkey              RENAME TO pedidos_v1_pkey;
+ALTER INDEX uk_pedidos_numero_pedido  RENAME TO uk_pedidos_v1_numero_pedido;
+ALTER INDEX idx_pedidos_estado_fecha  RENAME TO idx_pedidos_v1_estado_fecha;
+ALTER INDEX idx_pedidos_cliente_id    RENAME TO idx_pedidos_v1_cliente_id;
+ALTER INDEX idx_pedidos_zona_id       RENAME TO idx_pedidos_v1_zona_id;
+
+CREATE TABLE pedidos (
+  id                      UUID        NOT NULL DEFAULT gen_random_uuid(),
+  numero_pedido           VARCHAR(64) NOT NULL,
+  cliente_id              VARCHAR(64) NOT NULL,
+  zona_id                 VARCHAR(64) NOT NULL,
+  fecha_entrega           DATE        NOT NULL,
+  estado                  VARCHAR(16) NOT NULL CHECK (estado IN ('PENDIENTE','CONFIRMADO','ENTREGADO')),
+  requiere_refrigeracion  BOOLEAN     NOT NULL,
+  creado_en               TIMESTAMP   NOT NULL DEFAULT now(),
+  actualizado_en          TIMESTAMP   NOT NULL DEFAULT now(),
+  PRIMARY KEY (id, fecha_entrega)
+) PARTITION BY RANGE (fecha_entrega);
+
+CREATE UNIQUE INDEX uk_pedidos_numero_fecha ON pedidos (numero_pedido, fecha_entrega);
+CREATE INDEX idx_pedidos_estado_fecha ON pedidos (estado, fecha_entrega);
+CREATE INDEX idx_pedidos_cliente_id   ON pedidos (cliente_id);
+CREATE INDEX idx_pedidos_zona_id      ON pedidos (zona_id);
+
+-- fechas sin partición mensual (muy lejanas o ya retiradas)
+CREATE TABLE pedidos_fuera_de_rango PARTITION OF pedidos DEFAULT;
+
+CREATE TABLE pedidos_claves (
+  numero_pedido VARCHAR(64) PRIMARY KEY,
+  fecha_entrega DATE        NOT NULL
+);
+
+-- Crea la partición del mes de "mes" si no existe. Las filas de ese mes que hayan caído en
+-- pedidos_fuera_de_rango se mueven antes de adjuntarla; el CHECK temporal evita que ATTACH
+-- vuelva a recorrer la tabla nueva.
+CREATE OR REPLACE FUNCTION crear_particion_pedidos(mes DATE) RETURNS BOOLEAN AS $$
+DECLARE
+  desde  DATE := date_trunc('month', mes)::date;
+  hasta  DATE := (date_trunc('month', mes) + interval '1 month')::date;
+  nombre TEXT := 'pedidos_p' || to_char(desde, 'YYYYMM');
+BEGIN
+  PERFORM pg_advisory_xact_lock(hashtext('crear_particion_pedidos'));
+  IF to_regclass(nombre) IS NOT NULL THEN
+    RETURN FALSE;
+  END IF;
+  EXECUTE format('CREATE TABLE %I (LIKE pedidos INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', nombre);
+  EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (fecha_entrega >= %L AND fecha_entrega < %L)',
+                 nombre, nombre || '_rango', desde, hasta);
+  EXECUTE format('WITH movidas AS (DELETE FROM pedidos_fuera_de_rango WHERE fecha_entrega >= %L AND fecha_entrega < %L RETURNING *)
+                  INSERT INTO %I SELECT * FROM movidas', desde, hasta, nombre);
+  EXECUTE format('ALTER TABLE pedidos ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', nombre, desde, hasta);
+  EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', nombre, nombre || '_rango');
+  RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+  mes DATE;
+BEGIN
+  FOR mes IN
+    SELECT DISTINCT date_trunc('month', fecha_entrega)::date FROM pedidos_v1
+    UNION
+    SELECT (date_trunc('month', current_date) + make_interval(months => g))::date FROM generate_series(0, 3) g
+  LOOP
+    PERFORM crear_particion_pedidos(mes);
+  END LOOP;
+END $$;
+
+INSERT INTO pedidos (id, numero_pedido, cliente_id, zona_id, fecha_entrega, estado, requiere_refrigeracion, creado_en, actualizado_en)
+SELECT id, numero_pedido, cliente_id, zona_id, fecha_entrega, estado, requiere_refrigeracion, creado_en, actualizado_en
+  FROM pedidos_v1;
+
+INSERT INTO pedidos_claves (numero_pedido, fecha_entrega)
+SELECT numero_pedido, fecha_entrega FROM pedidos_v1;
+
+DROP TABLE pedidos_v1;
+
+-- un trigger sobre la tabla particionada se replica en cada partición, también en las futuras
+CREATE TRIGGER trg_pedidos_touch
+  BEFORE UPDATE ON pedidos
+  FOR EACH ROW EXECUTE FUNCTION set_actualizado_en();
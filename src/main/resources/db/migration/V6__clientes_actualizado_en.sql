@@ -0,0 +1,3 @@
+-- los refrescos incrementales de catálogos (caché e instantánea) filtran por actualizado_en y
+-- consultan su máximo en cada intervalo
+CREATE INDEX IF NOT EXISTS idx_clientes_actualizado_en ON clientes (actualizado_en);
@@ -0,0 +1,5 @@
+-- Instancia que encoló cada trabajo asíncrono: al reiniciar, cada una retoma solo los suyos (el
+-- archivo está en su disco local). Los trabajos anteriores quedan sin instancia.
+ALTER TABLE cargas_trabajos ADD COLUMN IF NOT EXISTS instancia VARCHAR(128);
+
+CREATE INDEX IF NOT EXISTS idx_cargas_trabajos_instancia_estado ON cargas_trabajos (instancia, estado);
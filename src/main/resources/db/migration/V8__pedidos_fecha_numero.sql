@@ -0,0 +1,5 @@
+-- orden de la paginación y la exportación (fecha_entrega, numero_pedido): sin filtro de estado
+-- uk_pedidos_numero_fecha no sirve (tiene las columnas al revés) y cada página ordenaba todo el
+-- rango. En una tabla particionada no hay CONCURRENTLY: se crea en cada partición bloqueando
+-- escrituras mientras dura.
+CREATE INDEX IF NOT EXISTS idx_pedidos_fecha_numero ON pedidos (fecha_entrega, numero_pedido);
@@ -0,0 +1,3 @@
+-- Principal que encoló cada trabajo asíncrono: la admisión se le aplica al sacarlo de la cola,
+-- también si se retoma tras un reinicio. Los trabajos anteriores quedan como anónimos.
+ALTER TABLE cargas_trabajos ADD COLUMN IF NOT EXISTS principal VARCHAR(255) NOT NULL DEFAULT 'anonimo';
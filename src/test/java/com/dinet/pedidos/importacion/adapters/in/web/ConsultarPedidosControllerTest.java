@@ -0,0 +1,92 @@
+package com.dinet.pedidos.importacion.adapters.in.web;
+
+import com.dinet.pedidos.importacion.application.ConsultaPedidos;
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.shared.api.ApiExceptionHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/** Con la configuración de la aplicación, sobre un Tomcat real. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = ConsultarPedidosControllerTest.Web.class)
+class ConsultarPedidosControllerTest {
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({ PropertyPlaceholderAutoConfiguration.class, ServletWebServerFactoryAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class, WebMvcAutoConfiguration.class, JacksonAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class })
+    @Import({ ConsultarPedidosController.class, ApiExceptionHandler.class })
+    static class Web {
+        // el tiempo por omisión de Tomcat son 30 s; aquí se acorta para no esperarlos
+        @Bean
+        TomcatConnectorCustomizer asyncCorto() {
+            return c -> c.setAsyncTimeout(300);
+        }
+    }
+
+    @MockitoBean
+    ConsultaPedidos consulta;
+
+    @LocalServerPort
+    int puerto;
+
+    @Test
+    void una_exportacion_mas_larga_que_el_timeout_por_omision_llega_completa() throws Exception {
+        doAnswer(inv -> {
+            Consumer<Pedido> destino = inv.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                destino.accept(new Pedido("P" + i, "CLI-1", LocalDate.of(2030, 1, 1), Estado.PENDIENTE, "ZONA1", false));
+                Thread.sleep(400);
+            }
+            return null;
+        }).when(consulta).exportar(any(), any());
+
+        var r = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + "/pedidos/exportar"))
+                        .header("Accept", "text/csv").build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(r.statusCode()).isEqualTo(200);
+        assertThat(r.body().lines()).hasSize(4).last().asString().startsWith("P2,");
+    }
+
+    @Test
+    void un_rango_de_fechas_invertido_responde_400_antes_de_empezar_la_exportacion() throws Exception {
+        var r = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + puerto
+                                + "/pedidos/exportar?fechaDesde=2030-02-01&fechaHasta=2030-01-01"))
+                        .header("Accept", "text/csv").build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(r.statusCode()).isEqualTo(400);
+        assertThat(r.body()).contains("fechaDesde es posterior a fechaHasta");
+        verifyNoInteractions(consulta);
+    }
+}
@@ -0,0 +1,99 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogosConsultaInstantaneaTest {
+
+    private static final LocalDateTime MARCA_1 = LocalDateTime.of(2026, 3, 1, 10, 0);
+    private static final LocalDateTime MARCA_2 = MARCA_1.plusMinutes(5);
+
+    @TempDir
+    Path directorio;
+
+    CatalogosConsultaJdbc origen = Mockito.mock(CatalogosConsultaJdbc.class);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void fusiona_los_cambios_antes_entre_y_despues_de_los_clientes_existentes() throws Exception {
+        when(origen.ultimaActualizacionClientes()).thenReturn(Optional.of(MARCA_1), Optional.of(MARCA_2));
+        when(origen.ultimaActualizacionZonas()).thenReturn(Optional.of(MARCA_1));
+        clientes(null, Map.of("CLI-B", true, "CLI-C", false, "CLI-D", true, "CLI-F", true));
+        // nuevo antes del primero, activado y nuevo inactivo entre medio, desactivado, nuevo al final
+        clientes(MARCA_1, Map.of("CLI-A", true, "CLI-C", true, "CLI-D", false, "CLI-E", false, "CLI-G", true));
+        doAnswer(inv -> {
+            inv.<BiConsumer<String, Boolean>>getArgument(1).accept("ZONA1", true);
+            return null;
+        }).when(origen).zonasActualizadasDesde(any(), any());
+
+        var catalogos = instantanea();
+        catalogos.iniciar();
+        assertThat(catalogos.clientesActivos(List.of("CLI-A", "CLI-B", "CLI-C", "CLI-D", "CLI-F")))
+                .containsExactlyInAnyOrder("CLI-B", "CLI-D", "CLI-F");
+
+        catalogos.actualizar();
+
+        assertThat(catalogos.clientesActivos(List.of("CLI-A", "CLI-B", "CLI-C", "CLI-D", "CLI-E", "CLI-F", "CLI-G", "CLI-H")))
+                .containsExactlyInAnyOrder("CLI-A", "CLI-B", "CLI-C", "CLI-F", "CLI-G");
+        assertThat(catalogos.zonaSoportaRefrigeracion("ZONA1")).contains(true);
+        assertThat(registry.get("catalogo.instantanea.clientes").gauge().value()).isEqualTo(5);
+        verify(origen).clientesOrdenadosDesde(eq(MARCA_1), anyInt(), any());
+        verify(origen, never()).existeCliente(anyString());
+    }
+
+    @Test
+    void al_reiniciar_reutiliza_el_archivo_y_sin_cambios_no_vuelve_a_leer_la_bd() throws Exception {
+        when(origen.ultimaActualizacionClientes()).thenReturn(Optional.of(MARCA_1));
+        when(origen.ultimaActualizacionZonas()).thenReturn(Optional.empty());
+        clientes(null, Map.of("CLI-1", true, "CLI-2", true));
+        instantanea().iniciar();
+
+        var reiniciado = instantanea();
+        Mockito.clearInvocations(origen);
+        reiniciado.iniciar();
+
+        assertThat(reiniciado.existeCliente("CLI-2")).isTrue();
+        assertThat(reiniciado.existeCliente("CLI-3")).isFalse();
+        verify(origen, never()).clientesOrdenadosDesde(any(), anyInt(), any());
+        verify(origen, never()).existeCliente(anyString());
+    }
+
+    private CatalogosConsultaInstantanea instantanea() {
+        return new CatalogosConsultaInstantanea(origen, Mockito.mock(PlatformTransactionManager.class), registry,
+                directorio, 10, 100, Duration.ofDays(1));
+    }
+
+    // entrega los clientes cambiados desde la marca en orden de id, como collate "C"
+    private void clientes(LocalDateTime desde, Map<String, Boolean> cambiados) {
+        var respuesta = doAnswer(inv -> {
+            BiConsumer<String, Boolean> porCliente = inv.getArgument(2);
+            cambiados.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> porCliente.accept(e.getKey(), e.getValue()));
+            return null;
+        }).when(origen);
+        if (desde == null) respuesta.clientesOrdenadosDesde(isNull(), anyInt(), any());
+        else respuesta.clientesOrdenadosDesde(eq(desde), anyInt(), any());
+    }
+}
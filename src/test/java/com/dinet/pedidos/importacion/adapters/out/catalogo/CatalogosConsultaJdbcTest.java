@@ -0,0 +1,52 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import com.dinet.pedidos.importacion.adapters.out.jpa.PostgresPrueba;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogosConsultaJdbcTest {
+
+    JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(PostgresPrueba.limpia());
+        jdbc.update("delete from clientes");
+    }
+
+    @Test
+    void la_marca_queda_un_desfase_por_detras_de_los_cambios_recientes() {
+        var sinDesfase = new CatalogosConsultaJdbc(jdbc, Duration.ZERO);
+        var conDesfase = new CatalogosConsultaJdbc(jdbc, Duration.ofHours(1));
+        assertThat(conDesfase.ultimaActualizacionClientes()).isEmpty();
+
+        jdbc.update("insert into clientes (id, activo) values ('CLI-1', true)");
+        var max = jdbc.queryForObject("select max(actualizado_en) from clientes", LocalDateTime.class);
+
+        assertThat(sinDesfase.ultimaActualizacionClientes()).contains(max);
+        var marca = conDesfase.ultimaActualizacionClientes().orElseThrow();
+        assertThat(marca).isBefore(max.minusMinutes(59));
+
+        // una transacción que empezó antes de leer la marca y confirmó después entra en la siguiente pasada
+        jdbc.update("insert into clientes (id, activo, actualizado_en) values ('CLI-0', true, ?)", max.minusMinutes(1));
+        List<String> cambiados = new ArrayList<>();
+        conDesfase.clientesOrdenadosDesde(marca, 100, (id, activo) -> cambiados.add(id));
+        assertThat(cambiados).containsExactly("CLI-0", "CLI-1");
+    }
+
+    @Test
+    void un_cambio_viejo_es_la_marca_tal_cual() {
+        jdbc.update("insert into clientes (id, activo, actualizado_en) values ('CLI-1', true, localtimestamp - interval '2 hours')");
+        var max = jdbc.queryForObject("select max(actualizado_en) from clientes", LocalDateTime.class);
+
+        assertThat(new CatalogosConsultaJdbc(jdbc, Duration.ofHours(1)).ultimaActualizacionClientes()).contains(max);
+    }
+}
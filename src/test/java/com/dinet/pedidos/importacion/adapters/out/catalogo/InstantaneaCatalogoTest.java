@@ -0,0 +1,78 @@
+package com.dinet.pedidos.importacion.adapters.out.catalogo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstantaneaCatalogoTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void lo_escrito_se_lee_igual_al_abrir_el_archivo() throws IOException {
+        // orden de bytes UTF-8: "CLI-Ñ" (0xC3) va después de "CLI-z"
+        var ids = List.of("CLI-1", "CLI-10", "CLI-2", "CLI-z", "CLI-Ñ");
+        var marcaClientes = LocalDateTime.of(2026, 3, 4, 5, 6, 7, 123_456_000);
+        var completa = Instant.parse("2026-03-04T00:00:00Z");
+        var zonas = new TreeMap<String, Boolean>();
+        zonas.put("ZONA1", false);
+        zonas.put("ZONA2", true);
+
+        Path archivo;
+        try (var escritura = new InstantaneaCatalogo.Escritura(directorio)) {
+            for (String id : ids) escritura.cliente(id.getBytes(StandardCharsets.UTF_8));
+            archivo = escritura.terminar(directorio.resolve("catalogo.snap"), marcaClientes, zonas, null, completa, 10);
+        }
+        var i = InstantaneaCatalogo.abrir(archivo);
+
+        assertThat(i.clientes()).isEqualTo(5);
+        for (String id : ids) assertThat(i.clienteActivo(id)).as(id).isTrue();
+        assertThat(i.clienteActivo("CLI-0")).isFalse();
+        assertThat(i.clienteActivo("CLI-3")).isFalse();
+        assertThat(i.clienteActivo("CLI-ÑÑ")).isFalse();
+        assertThat(i.zonas()).containsExactlyEntriesOf(zonas);
+        assertThat(i.marcaClientes()).isEqualTo(marcaClientes);
+        assertThat(i.marcaZonas()).isNull();
+        assertThat(i.completa()).isEqualTo(completa);
+        assertThat(i.comparar(0, "CLI-1".getBytes(StandardCharsets.UTF_8))).isZero();
+        assertThat(i.comparar(4, "CLI-z".getBytes(StandardCharsets.UTF_8))).isPositive();
+        // los temporales de la escritura no quedan en el directorio
+        try (var archivos = Files.list(directorio)) {
+            assertThat(archivos).containsExactly(archivo);
+        }
+    }
+
+    @Test
+    void una_instantanea_vacia_no_contiene_nada() throws IOException {
+        Path archivo;
+        try (var escritura = new InstantaneaCatalogo.Escritura(directorio)) {
+            archivo = escritura.terminar(directorio.resolve("catalogo.snap"), null, new TreeMap<>(), null, Instant.EPOCH, 10);
+        }
+        var i = InstantaneaCatalogo.abrir(archivo);
+
+        assertThat(i.clientes()).isZero();
+        assertThat(i.clienteActivo("CLI-1")).isFalse();
+        assertThat(i.zonas()).isEmpty();
+    }
+
+    @Test
+    void rechaza_un_archivo_con_otro_formato() throws IOException {
+        Path archivo = Files.write(directorio.resolve("catalogo.snap"), new byte[InstantaneaCatalogo.CABECERA]);
+
+        assertThatThrownBy(() -> InstantaneaCatalogo.abrir(archivo))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("formato desconocido");
+    }
+}
@@ -0,0 +1,79 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PedidosRepositorioJdbcTest {
+
+    private static final LocalDate MES = LocalDate.now().withDayOfMonth(1).plusMonths(1);
+
+    JdbcTemplate jdbc;
+    PedidosRepositorioJdbc repo;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(PostgresPrueba.limpia());
+        repo = new PedidosRepositorioJdbc(jdbc);
+    }
+
+    @Test
+    void un_cambio_de_fecha_conserva_id_y_creado_en_dentro_del_mes_y_entre_particiones() {
+        repo.upsertPorLote(lote("P1", MES.plusDays(4)));
+        var original = fila("P1");
+
+        var mismoMes = repo.upsertPorLote(lote("P1", MES.plusDays(9)));
+        assertThat(mismoMes).isEqualTo(new PedidosRepositorio.ResultadoLote(0, 1, 0));
+        assertThat(fila("P1")).containsEntry("id", original.get("id"))
+                .containsEntry("creado_en", original.get("creado_en"))
+                .containsEntry("particion", original.get("particion"))
+                .containsEntry("fecha_entrega", java.sql.Date.valueOf(MES.plusDays(9)));
+
+        var otroMes = repo.upsertPorLote(lote("P1", MES.plusMonths(1).plusDays(2)));
+        assertThat(otroMes).isEqualTo(new PedidosRepositorio.ResultadoLote(0, 1, 0));
+        assertThat(fila("P1")).containsEntry("id", original.get("id"))
+                .containsEntry("creado_en", original.get("creado_en"))
+                .doesNotContainEntry("particion", original.get("particion"));
+        assertThat(jdbc.queryForObject("select count(*) from pedidos where numero_pedido = 'P1'", Integer.class)).isEqualTo(1);
+        assertThat(jdbc.queryForObject("select fecha_entrega from pedidos_claves where numero_pedido = 'P1'", LocalDate.class))
+                .isEqualTo(MES.plusMonths(1).plusDays(2));
+
+        assertThat(repo.upsertPorLote(lote("P1", MES.plusMonths(1).plusDays(2))))
+                .isEqualTo(new PedidosRepositorio.ResultadoLote(0, 0, 1));
+    }
+
+    @Test
+    void en_modo_copy_tambien_se_actualiza_en_su_lugar() {
+        var copy = new PedidosRepositorioCopy(jdbc, new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())));
+        copy.upsertPorLote(lote("P2", MES.plusDays(1)));
+        var original = fila("P2");
+
+        assertThat(copy.upsertPorLote(lote("P2", MES.plusMonths(1))))
+                .isEqualTo(new PedidosRepositorio.ResultadoLote(0, 1, 0));
+        assertThat(fila("P2")).containsEntry("id", original.get("id"))
+                .containsEntry("creado_en", original.get("creado_en"));
+    }
+
+    private Map<String, Object> fila(String numero) {
+        return jdbc.queryForMap("""
+                select id, creado_en, fecha_entrega, tableoid::regclass::text as particion
+                  from pedidos where numero_pedido = ?
+                """, numero);
+    }
+
+    private static LotePedidos lote(String numero, LocalDate fecha) {
+        var lote = new LotePedidos(1);
+        lote.agregar(2, numero, "CLI-1", "ZONA1", (int) fecha.toEpochDay(), Estado.PENDIENTE, true);
+        return lote;
+    }
+}
@@ -0,0 +1,42 @@
+package com.dinet.pedidos.importacion.adapters.out.jpa;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * PostgreSQL para las pruebas de adaptadores: el de {@code -Dpruebas.postgres.url} (usuario
+ * {@code pruebas.postgres.usuario}, por defecto {@code postgres}) o, si no se indica, uno embebido
+ * compartido por toda la corrida. {@link #limpia()} deja el esquema recién migrado.
+ */
+public final class PostgresPrueba {
+
+    private static DataSource origen;
+
+    private PostgresPrueba() {}
+
+    public static synchronized DataSource limpia() {
+        if (origen == null) origen = arrancar();
+        new JdbcTemplate(origen).execute("drop schema public cascade; create schema public");
+        Flyway.configure().dataSource(origen).load().migrate();
+        return origen;
+    }
+
+    private static DataSource arrancar() {
+        String url = System.getProperty("pruebas.postgres.url");
+        if (url != null) {
+            return new DriverManagerDataSource(url, System.getProperty("pruebas.postgres.usuario", "postgres"),
+                    System.getProperty("pruebas.postgres.clave", ""));
+        }
+        try {
+            return EmbeddedPostgres.start().getPostgresDatabase();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.dinet.pedidos.importacion.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmisionCargasTest {
+
+    private static final long GRANDE = DataSize.ofMegabytes(500).toBytes();
+    private static final long CHICO = DataSize.ofKilobytes(10).toBytes();
+
+    private final ExecutorService hilos = Executors.newCachedThreadPool();
+    private final TamanioLote tamanioLote = TamanioLote.fijo(500);
+
+    @AfterEach
+    void cerrar() {
+        hilos.shutdownNow();
+    }
+
+    private AdmisionCargas admision(int limite, int reservaPequenos, Duration esperaMax) {
+        return new AdmisionCargas(tamanioLote, true, limite, 1, 8, 2, 4, 2, esperaMax,
+                DataSize.ofMegabytes(1), reservaPequenos);
+    }
+
+    /** Ocupa un lugar hasta que se libere el latch devuelto. */
+    private CountDownLatch ocupar(AdmisionCargas admision, String principal, long bytes) throws Exception {
+        var dentro = new CountDownLatch(1);
+        var salir = new CountDownLatch(1);
+        hilos.submit(() -> admision.ejecutar(principal, bytes, () -> {
+            dentro.countDown();
+            try {
+                return salir.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }));
+        assertThat(dentro.await(5, TimeUnit.SECONDS)).isTrue();
+        return salir;
+    }
+
+    @Test
+    void un_archivo_chico_entra_por_la_reserva_y_uno_grande_se_rechaza_con_reintento() throws Exception {
+        var admision = admision(1, 1, Duration.ofMillis(100));
+        var registry = new SimpleMeterRegistry();
+        admision.bindTo(registry);
+        var salir = ocupar(admision, "almacen-a", GRANDE);
+
+        assertThat(admision.ejecutar("almacen-b", CHICO, () -> "ok")).isEqualTo("ok");
+        assertThatThrownBy(() -> admision.ejecutar("almacen-b", GRANDE, () -> "no"))
+                .isInstanceOfSatisfying(CapacidadExcedidaException.class,
+                        e -> assertThat(e.getReintentarEnSegundos()).isPositive());
+        assertThat(registry.get("importacion.admision.rechazos").counter().count()).isEqualTo(1);
+        assertThat(registry.get("importacion.admision.en_curso").gauge().value()).isEqualTo(1);
+        salir.countDown();
+    }
+
+    @Test
+    void cada_principal_tiene_su_tope_y_su_cola() throws Exception {
+        var admision = admision(8, 0, Duration.ofMillis(100));
+        var a1 = ocupar(admision, "almacen-a", CHICO);
+        var a2 = ocupar(admision, "almacen-a", CHICO);
+
+        assertThat(admision.ejecutar("almacen-b", CHICO, () -> "ok")).isEqualTo("ok");
+        assertThatThrownBy(() -> admision.ejecutar("almacen-a", CHICO, () -> "no"))
+                .isInstanceOf(CapacidadExcedidaException.class);
+
+        a1.countDown();
+        a2.countDown();
+    }
+
+    @Test
+    void al_liberarse_un_lugar_pasa_primero_el_archivo_mas_chico() throws Exception {
+        var admision = admision(1, 0, Duration.ofSeconds(5));
+        var salir = ocupar(admision, "almacen-a", GRANDE);
+        List<String> orden = new CopyOnWriteArrayList<>();
+
+        var grande = hilos.submit(() -> admision.ejecutar("almacen-b", GRANDE, () -> orden.add("grande")));
+        esperarCola(admision, 1);
+        var chico = hilos.submit(() -> admision.ejecutar("almacen-c", CHICO, () -> orden.add("chico")));
+        esperarCola(admision, 2);
+
+        salir.countDown();
+        grande.get(5, TimeUnit.SECONDS);
+        chico.get(5, TimeUnit.SECONDS);
+        assertThat(orden).containsExactly("chico", "grande");
+    }
+
+    @Test
+    void el_limite_baja_cuando_la_bd_se_pone_lenta_y_no_crece_sin_uso() {
+        var admision = admision(8, 0, Duration.ofSeconds(1));
+
+        tamanioLote.registrar(tamanioLote.asignar(), 500, Duration.ofMillis(50).toNanos(), false);
+        admision.ajustar();
+        assertThat(admision.limite()).isEqualTo(8);
+
+        for (int i = 0; i < 10; i++) {
+            tamanioLote.registrar(tamanioLote.asignar(), 500, Duration.ofMillis(400).toNanos(), false);
+            admision.ajustar();
+        }
+        int bajo = admision.limite();
+        assertThat(bajo).isLessThan(6);
+
+        // sin escrituras nuevas no hay señal; con latencia normal pero sin cargas en curso tampoco crece
+        admision.ajustar();
+        for (int i = 0; i < 10; i++) {
+            tamanioLote.registrar(tamanioLote.asignar(), 500, Duration.ofMillis(10).toNanos(), false);
+            admision.ajustar();
+        }
+        assertThat(admision.limite()).isEqualTo(bajo);
+    }
+
+    @Test
+    void una_carga_con_varios_hilos_ocupa_un_lugar_por_hilo_hasta_el_tope_por_principal() throws Exception {
+        var admision = admision(2, 1, Duration.ofMillis(100));
+        var registry = new SimpleMeterRegistry();
+        admision.bindTo(registry);
+        var dentro = new CountDownLatch(1);
+        var salir = new CountDownLatch(1);
+        var multiple = hilos.submit(() -> admision.ejecutar("almacen-a", GRANDE, 4, lugares -> {
+            dentro.countDown();
+            try {
+                salir.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return lugares;
+        }));
+        assertThat(dentro.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(registry.get("importacion.admision.en_curso").gauge().value()).isEqualTo(2);
+        assertThatThrownBy(() -> admision.ejecutar("almacen-b", GRANDE, () -> "no"))
+                .isInstanceOf(CapacidadExcedidaException.class);
+        assertThat(admision.ejecutar("almacen-b", CHICO, () -> "ok")).isEqualTo("ok");
+
+        salir.countDown();
+        assertThat(multiple.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+    }
+
+    @Test
+    void con_nada_en_curso_entra_aunque_pese_mas_que_el_limite() {
+        var admision = admision(1, 0, Duration.ofMillis(100));
+        int lugares = admision.ejecutar("almacen-a", GRANDE, 2, n -> n);
+        assertThat(lugares).isEqualTo(2);
+    }
+
+    @Test
+    void deshabilitada_no_limita() {
+        var admision = new AdmisionCargas(tamanioLote, false, 1, 1, 1, 1, 0, 0, Duration.ZERO,
+                DataSize.ofBytes(0), 0);
+        assertThat(admision.ejecutar("almacen-a", GRANDE, () -> admision.ejecutar("almacen-a", GRANDE, () -> "ok")))
+                .isEqualTo("ok");
+    }
+
+    private static void esperarCola(AdmisionCargas admision, int n) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admision.enCola() < n && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+    }
+}
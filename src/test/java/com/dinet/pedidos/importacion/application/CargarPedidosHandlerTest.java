@@ -0,0 +1,133 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import com.dinet.pedidos.importacion.domain.port.IdempotenciaAlmacen;
+import com.dinet.pedidos.importacion.domain.service.ModoValidacion;
+import com.dinet.pedidos.importacion.domain.service.ValidacionPedidoService;
+import com.dinet.pedidos.importacion.domain.service.reglas.ClienteActivo;
+import com.dinet.pedidos.importacion.shared.crypto.Hashes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CargarPedidosHandlerTest {
+
+    private static final String CABECERA = "numero_pedido,cliente_id,fecha_entrega,estado,zona_id,requiere_refrigeracion\n";
+
+    @TempDir
+    Path directorio;
+
+    EscrituraLotes escritura = Mockito.mock(EscrituraLotes.class);
+    IdempotenciaAlmacen idem = Mockito.mock(IdempotenciaAlmacen.class);
+    CargarPedidosHandler handler;
+
+    @AfterEach
+    void cerrar() {
+        if (handler != null) handler.detener();
+    }
+
+    private CargarPedidosHandler handler(int filasPorBloque) throws Exception {
+        return handler(filasPorBloque, Duration.ofMinutes(1));
+    }
+
+    private CargarPedidosHandler handler(int filasPorBloque, Duration latido) throws Exception {
+        var metricas = new MetricasCarga(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+        var validacion = new ValidacionPedidoService(Mockito.mock(CatalogosConsulta.class), Clock.systemUTC(),
+                List.of(new ClienteActivo()), ModoValidacion.PRIMER_ERROR);
+        handler = new CargarPedidosHandler(escritura, idem, new ErroresCarga(directorio, Duration.ofDays(1)),
+                validacion, metricas, new ObjectMapper(), TamanioLote.fijo(filasPorBloque),
+                1, 1, 1, PoliticaDuplicados.ULTIMA, 10, latido);
+        return handler;
+    }
+
+    private static byte[] invalidas(int filas) {
+        var csv = new StringBuilder(CABECERA);
+        for (int i = 0; i < filas; i++) csv.append("P").append(i).append(",CLI-1,10/12/2030,PENDIENTE,ZONA1,true\n");
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void un_archivo_todo_invalido_se_corta_en_bloques_con_punto_de_control() throws Exception {
+        when(idem.reclamar(anyString(), anyString())).thenReturn(Optional.empty());
+        when(idem.avance(anyString(), anyString())).thenReturn(Optional.empty());
+
+        var r = handler(100).ejecutar(invalidas(1000), "clave");
+
+        assertThat(r.totalProcesados()).isEqualTo(1000);
+        assertThat(r.conError()).isEqualTo(1000);
+        assertThat(r.erroresPorFila()).hasSize(10);
+        var avances = ArgumentCaptor.forClass(IdempotenciaAlmacen.Avance.class);
+        // bloques ya recogidos pueden compartir punto de control, pero no esperan al final del archivo
+        verify(idem, atLeast(2)).guardarAvance(eq("clave"), anyString(), avances.capture());
+        assertThat(avances.getAllValues()).extracting(IdempotenciaAlmacen.Avance::linea)
+                .isSorted()
+                .allMatch(linea -> linea % 100 == 1)
+                .contains(1001);
+        verify(escritura, never()).escribir(any());
+    }
+
+    @Test
+    void la_carga_renueva_su_reclamo_mientras_corre_aunque_no_haya_puntos_de_control() throws Exception {
+        when(idem.reclamar(anyString(), anyString())).thenReturn(Optional.empty());
+        when(idem.avance(anyString(), anyString())).thenReturn(Optional.empty());
+        doAnswer(inv -> {
+            Thread.sleep(200);
+            return null;
+        }).when(idem).guardarAvance(anyString(), anyString(), any());
+
+        handler(100, Duration.ofMillis(20)).ejecutar(invalidas(100), "clave");
+
+        verify(idem, atLeast(2)).renovar(eq("clave"), anyString());
+        // terminada la carga no se renueva más
+        verify(idem).marcarCompletado(eq("clave"), anyString(), anyString());
+        clearInvocations(idem);
+        Thread.sleep(100);
+        verify(idem, never()).renovar(anyString(), anyString());
+    }
+
+    @Test
+    void liberar_suelta_el_reclamo_por_hash_del_contenido() throws Exception {
+        byte[] csv = invalidas(3);
+
+        handler(100).liberar(new ByteArrayResource(csv), null);
+
+        String hash = Hashes.sha256Hex(csv);
+        verify(idem).liberar("sha256:" + hash, hash);
+    }
+
+    @Test
+    void un_numero_de_pedido_enorme_es_un_error_de_fila_y_no_corta_la_carga() throws Exception {
+        when(idem.reclamar(anyString(), anyString())).thenReturn(Optional.empty());
+        when(idem.avance(anyString(), anyString())).thenReturn(Optional.empty());
+        String csv = CABECERA + "X".repeat(70_000) + ",CLI-1,2030-12-10,PENDIENTE,ZONA1,true\n";
+
+        var r = handler(100).ejecutar(csv.getBytes(StandardCharsets.UTF_8), "clave");
+
+        assertThat(r.conError()).isEqualTo(1);
+        assertThat(r.erroresAgrupados()).containsEntry("NUMERO_PEDIDO_INVALIDO", 1);
+    }
+}
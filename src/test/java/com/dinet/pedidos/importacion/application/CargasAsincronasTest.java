@@ -0,0 +1,136 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.domain.port.TrabajosCargaAlmacen;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CargasAsincronasTest {
+
+    @TempDir
+    Path directorio;
+
+    CargarPedidosHandler handler = Mockito.mock(CargarPedidosHandler.class);
+    TrabajosCargaAlmacen trabajos = Mockito.mock(TrabajosCargaAlmacen.class);
+    AdmisionCargas sinAdmision = new AdmisionCargas(TamanioLote.fijo(500), false, 1, 1, 1, 1, 0, 0, Duration.ZERO,
+            DataSize.ofBytes(0), 0);
+    ObjectMapper json = new ObjectMapper();
+    CargasAsincronas asincronas;
+
+    @AfterEach
+    void cerrar() {
+        if (asincronas != null) asincronas.detener();
+    }
+
+    @Test
+    void el_id_del_trabajo_lleva_al_carga_id_de_sus_errores_durante_y_despues_de_la_carga() throws Exception {
+        asincronas = new CargasAsincronas(handler, trabajos, sinAdmision, json, 1, 1, directorio, "a");
+        var cargaId = UUID.randomUUID();
+        var resumen = new ResumenCarga(cargaId, 1, 0, 0, 0, 0, 0, 1, List.of(), Map.of());
+        var empezada = new CountDownLatch(1);
+        var seguir = new CountDownLatch(1);
+        when(handler.ejecutar(any(), eq("clave"), any(ProgresoCarga.class))).thenAnswer(inv -> {
+            inv.<ProgresoCarga>getArgument(2).iniciada(cargaId);
+            empezada.countDown();
+            assertThat(seguir.await(5, TimeUnit.SECONDS)).isTrue();
+            return resumen;
+        });
+
+        var trabajo = asincronas.encolar(new ByteArrayResource(new byte[] { 'x' }), "clave", "almacen-a");
+        assertThat(empezada.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(asincronas.cargaId(trabajo)).contains(cargaId);
+
+        seguir.countDown();
+        verify(trabajos, timeout(5000)).marcarCompletado(eq(trabajo), anyInt(), anyInt(), anyInt(), anyString());
+        when(trabajos.buscar(trabajo)).thenReturn(Optional.of(new TrabajosCargaAlmacen.Trabajo(trabajo, "clave",
+                "almacen-a", TrabajosCargaAlmacen.Estado.COMPLETADO, 1, 0, 1, json.writeValueAsString(resumen), null, null, null)));
+        // otra instancia (p. ej. tras reiniciar) lo lee del resumen guardado
+        var otra = new CargasAsincronas(handler, trabajos, sinAdmision, json, 1, 1, directorio, "a");
+        try {
+            assertThat(otra.cargaId(trabajo)).contains(cargaId);
+            assertThat(otra.cargaId(UUID.randomUUID())).isEmpty();
+        } finally {
+            otra.detener();
+        }
+    }
+
+    @Test
+    void al_reiniciar_reanuda_solo_sus_trabajos_con_archivo_y_suelta_su_reclamo() throws Exception {
+        var conArchivo = UUID.randomUUID();
+        var sinArchivo = UUID.randomUUID();
+        Files.writeString(directorio.resolve(conArchivo + ".csv"), "x");
+        var huerfano = Files.writeString(directorio.resolve(UUID.randomUUID() + ".csv"), "huérfano");
+        when(trabajos.pendientes("a")).thenReturn(List.of(pendiente(conArchivo), pendiente(sinArchivo)));
+        when(handler.ejecutar(any(), eq("clave"), any(ProgresoCarga.class))).thenReturn(ResumenCarga.vacio());
+        asincronas = new CargasAsincronas(handler, trabajos, sinAdmision, json, 1, 1, directorio, "a");
+
+        asincronas.recuperarInterrumpidos();
+
+        assertThat(huerfano).doesNotExist();
+        verify(handler).liberar(any(), eq("clave"));
+        verify(trabajos).marcarFallido(sinArchivo, "INTERRUMPIDO_POR_REINICIO");
+        verify(trabajos, timeout(5000)).marcarCompletado(eq(conArchivo), anyInt(), anyInt(), anyInt(), anyString());
+        verify(trabajos, never()).marcarFallido(eq(conArchivo), any());
+    }
+
+    @Test
+    void espera_lugar_en_la_admision_con_su_principal_y_reintenta_si_la_rechaza() throws Exception {
+        // un lugar por cliente y sin cola: mientras almacen-a tiene una carga síncrona, la suya se rechaza
+        var admision = new AdmisionCargas(TamanioLote.fijo(500), true, 4, 1, 8, 1, 4, 0, Duration.ofMillis(50),
+                DataSize.ofBytes(0), 0);
+        var ocupada = new CountDownLatch(1);
+        var soltar = new CountDownLatch(1);
+        var sincrona = new Thread(() -> admision.ejecutar("almacen-a", 1, () -> {
+            ocupada.countDown();
+            try {
+                return soltar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        sincrona.start();
+        assertThat(ocupada.await(5, TimeUnit.SECONDS)).isTrue();
+        when(handler.ejecutar(any(), eq("clave"), any(ProgresoCarga.class))).thenReturn(ResumenCarga.vacio());
+        asincronas = new CargasAsincronas(handler, trabajos, admision, json, 1, 1, directorio, "a");
+
+        var trabajo = asincronas.encolar(new ByteArrayResource(new byte[] { 'x' }), "clave", "almacen-a");
+
+        verify(trabajos).crear(trabajo, "clave", "almacen-a", "a");
+        Thread.sleep(300);
+        verify(trabajos, never()).marcarEnProceso(trabajo);
+        soltar.countDown();
+        sincrona.join();
+        verify(trabajos, timeout(5000)).marcarCompletado(eq(trabajo), anyInt(), anyInt(), anyInt(), anyString());
+        verify(trabajos, never()).marcarFallido(eq(trabajo), any());
+    }
+
+    private static TrabajosCargaAlmacen.Trabajo pendiente(UUID id) {
+        return new TrabajosCargaAlmacen.Trabajo(id, "clave", "almacen-a", TrabajosCargaAlmacen.Estado.EN_PROCESO, 0, 0, 0,
+                null, null, null, null);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ResumenCarga;
+import com.dinet.pedidos.importacion.application.dto.ResumenCargaMultiple;
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CargasMultiplesTest {
+
+    @TempDir
+    Path directorio;
+
+    CargarPedidosHandler handler = Mockito.mock(CargarPedidosHandler.class);
+    CargasMultiples multiples;
+
+    @AfterEach
+    void cerrar() {
+        if (multiples != null) multiples.detener();
+    }
+
+    private CargasMultiples multiples(int maxArchivos) {
+        // por-cliente 2: una petición ocupa como mucho dos lugares
+        var admision = new AdmisionCargas(TamanioLote.fijo(500), true, 4, 1, 8, 2, 4, 2, Duration.ofSeconds(1),
+                DataSize.ofMegabytes(1), 0);
+        multiples = new CargasMultiples(handler, Mockito.mock(CatalogosConsulta.class), admision, 4, maxArchivos, directorio);
+        return multiples;
+    }
+
+    @Test
+    void importa_partes_sueltas_y_entradas_de_zip_con_idempotencia_por_contenido_y_un_total() throws IOException {
+        when(handler.ejecutar(any(InputStreamSource.class), isNull(), isNull(), any(), any())).thenAnswer(inv -> {
+            String csv = new String(inv.<InputStreamSource>getArgument(0).getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            return switch (csv) {
+                case "a" -> new ResumenCarga(null, 10, 8, 8, 0, 0, 0, 2, List.of(), Map.of("CLIENTE_NO_ENCONTRADO", 2));
+                case "b" -> new ResumenCarga(null, 5, 5, 0, 3, 2, 1, 0, List.of(), Map.of());
+                case "c" -> throw new CargaEnProcesoException();
+                default -> new ResumenCarga(null, 1, 0, 0, 0, 0, 0, 1, List.of(), Map.of("CLIENTE_NO_ENCONTRADO", 1));
+            };
+        });
+
+        var r = multiples(10).ejecutar("almacen-a", 0, List.of(
+                new CargasMultiples.Entrada("suelto.csv", recurso("a")),
+                new CargasMultiples.Entrada("dia.zip", new ByteArrayResource(zip(Map.of("b.csv", "b", "c.csv", "c", "d.csv", "d"))))));
+
+        assertThat(r.archivos()).extracting(ResumenCargaMultiple.Archivo::nombre)
+                .containsExactlyInAnyOrder("suelto.csv", "dia.zip/b.csv", "dia.zip/c.csv", "dia.zip/d.csv");
+        assertThat(r.archivos()).filteredOn(a -> a.nombre().endsWith("c.csv"))
+                .singleElement().satisfies(a -> {
+                    assertThat(a.error()).isEqualTo("CARGA_EN_PROCESO");
+                    assertThat(a.resumen()).isNull();
+                });
+        var total = r.total();
+        assertThat(total.totalProcesados()).isEqualTo(16);
+        assertThat(total.guardados()).isEqualTo(13);
+        assertThat(total.actualizados()).isEqualTo(3);
+        assertThat(total.duplicadosDescartados()).isEqualTo(1);
+        assertThat(total.conError()).isEqualTo(3);
+        assertThat(total.erroresAgrupados()).containsExactly(Map.entry("CLIENTE_NO_ENCONTRADO", 3));
+        // sin Idempotency-Key: cada archivo queda identificado por su hash
+        verify(handler, Mockito.times(4)).ejecutar(any(InputStreamSource.class), isNull(), isNull(), any(), any());
+        try (var copias = Files.list(directorio)) {
+            assertThat(copias).isEmpty();
+        }
+    }
+
+    @Test
+    void rechaza_peticiones_sin_archivos_o_con_demasiados() throws IOException {
+        var multiples = multiples(2);
+        var zip = new ByteArrayResource(zip(Map.of("a.csv", "a", "b.csv", "b", "c.csv", "c")));
+
+        assertThatThrownBy(() -> multiples.ejecutar("almacen-a", 0, List.of(new CargasMultiples.Entrada("x.zip", zip))))
+                .isInstanceOf(SubidaInvalidaException.class);
+        assertThatThrownBy(() -> multiples.ejecutar("almacen-a", 0, List.of()))
+                .isInstanceOf(SubidaInvalidaException.class);
+    }
+
+    @Test
+    void usa_solo_tantos_hilos_como_lugares_de_admision_obtuvo() {
+        var enCurso = new AtomicInteger();
+        var maximo = new AtomicInteger();
+        when(handler.ejecutar(any(InputStreamSource.class), isNull(), isNull(), any(), any())).thenAnswer(inv -> {
+            maximo.accumulateAndGet(enCurso.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            enCurso.decrementAndGet();
+            return ResumenCarga.vacio();
+        });
+        var entradas = IntStream.range(0, 8)
+                .mapToObj(i -> new CargasMultiples.Entrada(i + ".csv", recurso(String.valueOf(i))))
+                .toList();
+
+        var r = multiples(10).ejecutar("almacen-a", 0, entradas);
+
+        assertThat(r.archivos()).extracting(ResumenCargaMultiple.Archivo::nombre)
+                .containsExactly("0.csv", "1.csv", "2.csv", "3.csv", "4.csv", "5.csv", "6.csv", "7.csv");
+        assertThat(maximo.get()).isEqualTo(2);
+    }
+
+    private static ByteArrayResource recurso(String contenido) {
+        return new ByteArrayResource(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] zip(Map<String, String> entradas) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("carpeta/"));
+            for (var e : entradas.entrySet()) {
+                zip.putNextEntry(new ZipEntry(e.getKey()));
+                zip.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,52 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class CatalogoCompartidoTest {
+
+    CatalogosConsulta catalogos = Mockito.mock(CatalogosConsulta.class);
+    CatalogoCompartido compartido = new CatalogoCompartido(catalogos);
+
+    @Test
+    void cada_cliente_y_cada_zona_se_consultan_una_sola_vez() {
+        when(catalogos.clientesActivos(any())).thenReturn(Set.of("C1"));
+        when(catalogos.soporteRefrigeracionPorZona(any())).thenReturn(Map.of("Z1", true));
+
+        var primero = compartido.resolver(lote("C1", "Z1", "C2", "Z2"));
+        assertThat(primero.clientesActivos()).containsExactly("C1");
+        assertThat(primero.soporteRefrigeracionPorZona()).containsExactly(Map.entry("Z1", true));
+
+        when(catalogos.clientesActivos(any())).thenReturn(Set.of("C3"));
+        var segundo = compartido.resolver(lote("C2", "Z2", "C3", "Z1"));
+        assertThat(segundo.clientesActivos()).containsExactly("C3");
+        assertThat(segundo.soporteRefrigeracionPorZona()).containsExactly(Map.entry("Z1", true));
+
+        verify(catalogos).clientesActivos(List.of("C1", "C2"));
+        verify(catalogos).clientesActivos(List.of("C3"));
+        verify(catalogos).soporteRefrigeracionPorZona(List.of("Z1", "Z2"));
+        verifyNoMoreInteractions(catalogos);
+    }
+
+    private static LotePedidos lote(String cliente1, String zona1, String cliente2, String zona2) {
+        var lote = new LotePedidos(2);
+        lote.agregar(1, new Pedido("P1", cliente1, LocalDate.of(2030, 1, 1), Estado.PENDIENTE, zona1, false));
+        lote.agregar(2, new Pedido("P2", cliente2, LocalDate.of(2030, 1, 1), Estado.PENDIENTE, zona2, false));
+        return lote;
+    }
+}
@@ -0,0 +1,63 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import com.dinet.pedidos.importacion.domain.port.PedidosConsulta;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConsultaPedidosTest {
+
+    private static final PedidosConsulta.Filtro TODOS = new PedidosConsulta.Filtro(null, null, null, null, null);
+
+    PedidosConsulta puerto = Mockito.mock(PedidosConsulta.class);
+    ConsultaPedidos consulta = new ConsultaPedidos(puerto);
+
+    @Test
+    void el_cursor_de_la_pagina_apunta_a_su_ultima_fila() {
+        when(puerto.pagina(eq(TODOS), isNull(), eq(3))).thenReturn(pedidos(3));
+
+        var primera = consulta.pagina(TODOS, null, 2);
+
+        assertThat(primera.pedidos()).extracting(Pedido::numeroPedido).containsExactly("P0", "P1");
+        assertThat(primera.siguiente()).isNotNull();
+
+        consulta.pagina(TODOS, primera.siguiente(), 2);
+        verify(puerto).pagina(TODOS, new PedidosConsulta.Posicion(LocalDate.of(2025, 12, 2), "P1"), 3);
+    }
+
+    @Test
+    void la_ultima_pagina_no_trae_cursor() {
+        when(puerto.pagina(any(), any(), eq(3))).thenReturn(pedidos(2));
+
+        assertThat(consulta.pagina(TODOS, null, 2).siguiente()).isNull();
+    }
+
+    @Test
+    void rechaza_cursores_manipulados_y_rangos_invertidos() {
+        assertThatThrownBy(() -> consulta.pagina(TODOS, "no-es-un-cursor", 10))
+                .isInstanceOf(ConsultaInvalidaException.class);
+
+        var invertido = new PedidosConsulta.Filtro(Estado.PENDIENTE, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 1, 1), null, null);
+        assertThatThrownBy(() -> consulta.exportar(invertido, p -> {}))
+                .isInstanceOf(ConsultaInvalidaException.class);
+    }
+
+    private static List<Pedido> pedidos(int n) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> new Pedido("P" + i, "CLI-1", LocalDate.of(2025, 12, 1 + i), Estado.PENDIENTE, "ZONA1", false))
+                .toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErroresCargaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void pagina_por_linea_y_conserva_el_detalle() throws Exception {
+        var errores = new ErroresCarga(directorio, Duration.ofDays(1));
+        var id = UUID.randomUUID();
+        try (var w = errores.abrir(id, 0)) {
+            w.escribir(new ErrorFila(1, CodigoError.CABECERA_INVALIDA, "falta 'estado'"));
+            w.escribir(new ErrorFila(4, CodigoError.ESTADO_INVALIDO));
+            w.escribir(new ErrorFila(9, CodigoError.ZONA_INVALIDA));
+        }
+
+        assertThat(leer(errores, id, 1, 10)).containsExactly(
+                new ErrorFila(1, "CABECERA_INVALIDA: falta 'estado'"),
+                new ErrorFila(4, "ESTADO_INVALIDO"),
+                new ErrorFila(9, "ZONA_INVALIDA"));
+        assertThat(leer(errores, id, 2, 1)).containsExactly(new ErrorFila(4, "ESTADO_INVALIDO"));
+    }
+
+    @Test
+    void al_reanudar_descarta_lo_escrito_despues_del_punto_de_control() throws Exception {
+        var errores = new ErroresCarga(directorio, Duration.ofDays(1));
+        var id = UUID.randomUUID();
+        try (var w = errores.abrir(id, 0)) {
+            w.escribir(new ErrorFila(3, CodigoError.FECHA_INVALIDA));
+            w.escribir(new ErrorFila(7, CodigoError.CABECERA_INVALIDA, "x"));
+            w.escribir(new ErrorFila(12, CodigoError.FECHA_INVALIDA));
+        }
+
+        try (var w = errores.abrir(id, 10)) {
+            w.escribir(new ErrorFila(11, CodigoError.ERROR_PERSISTENCIA));
+        }
+
+        assertThat(leer(errores, id, 1, 10)).extracting(ErrorFila::linea).containsExactly(3, 7, 11);
+    }
+
+    @Test
+    void con_muchos_errores_pagina_desde_el_indice_tambien_tras_reanudar() throws Exception {
+        var errores = new ErroresCarga(directorio, Duration.ofDays(1));
+        var id = UUID.randomUUID();
+        String detalle = "x".repeat(100);
+        // dos errores por línea, así una página puede empezar en medio de un par
+        try (var w = errores.abrir(id, 0)) {
+            for (int linea = 2; linea <= 20_000; linea++) {
+                w.escribir(new ErrorFila(linea, CodigoError.CABECERA_INVALIDA, detalle));
+                w.escribir(new ErrorFila(linea, CodigoError.ESTADO_INVALIDO));
+            }
+        }
+        assertThat(Files.size(directorio.resolve(id + ".idx"))).isGreaterThan(12L * 20);
+
+        assertThat(leer(errores, id, 15_000, 3)).extracting(ErrorFila::linea).containsExactly(15_000, 15_000, 15_001);
+        assertThat(leer(errores, id, 20_000, 10)).hasSize(2);
+        assertThat(leer(errores, id, 1, 1)).extracting(ErrorFila::linea).containsExactly(2);
+
+        try (var w = errores.abrir(id, 10_000)) {
+            w.escribir(new ErrorFila(10_001, CodigoError.ERROR_PERSISTENCIA));
+        }
+        assertThat(leer(errores, id, 9_999, 10)).extracting(ErrorFila::linea)
+                .containsExactly(9_999, 9_999, 10_000, 10_000, 10_001);
+        assertThat(leer(errores, id, 10_001, 10)).containsExactly(new ErrorFila(10_001, "ERROR_PERSISTENCIA"));
+    }
+
+    private static List<ErrorFila> leer(ErroresCarga errores, UUID id, int desde, int limite) throws Exception {
+        List<ErrorFila> leidos = new ArrayList<>();
+        errores.leer(id, desde, limite, leidos::add);
+        return leidos;
+    }
+}
@@ -0,0 +1,92 @@
+package com.dinet.pedidos.importacion.application;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
+import com.dinet.pedidos.importacion.domain.port.PedidosRepositorio;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EscrituraLotesTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricasCarga metricas = new MetricasCarga(registry, ObservationRegistry.NOOP);
+
+    @Test
+    void parte_el_lote_hasta_aislar_las_filas_rechazadas_y_guarda_el_resto() {
+        Set<String> rechazados = Set.of("P2", "P5");
+        List<String> guardados = new ArrayList<>();
+        PedidosRepositorio repo = lote -> {
+            for (int i = 0; i < lote.tamanio(); i++) {
+                if (rechazados.contains(lote.numeroPedido(i))) throw new DataIntegrityViolationException("rechazado");
+            }
+            for (int i = 0; i < lote.tamanio(); i++) guardados.add(lote.numeroPedido(i));
+            return new PedidosRepositorio.ResultadoLote(lote.tamanio(), 0, 0);
+        };
+
+        var r = escritura(repo, 3).escribir(lote(8));
+
+        assertThat(r.errores()).containsExactly(
+                new ErrorFila(4, CodigoError.ERROR_PERSISTENCIA),
+                new ErrorFila(7, CodigoError.ERROR_PERSISTENCIA));
+        assertThat(r.escritura()).isEqualTo(new PedidosRepositorio.ResultadoLote(6, 0, 0));
+        assertThat(guardados).containsExactly("P0", "P1", "P3", "P4", "P6", "P7");
+        assertThat(r.reintentos()).isZero();
+    }
+
+    @Test
+    void reintenta_los_fallos_transitorios_y_los_cuenta() {
+        var llamadas = new AtomicInteger();
+        PedidosRepositorio repo = lote -> {
+            if (llamadas.incrementAndGet() <= 2) throw new CannotAcquireLockException("deadlock");
+            return new PedidosRepositorio.ResultadoLote(lote.tamanio(), 0, 0);
+        };
+
+        var r = escritura(repo, 3).escribir(lote(4));
+
+        assertThat(r.escritura().insertados()).isEqualTo(4);
+        assertThat(r.errores()).isEmpty();
+        assertThat(r.reintentos()).isEqualTo(2);
+        assertThat(registry.get("importacion.persistencia.reintentos").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void pasado_el_limite_de_reintentos_propaga_el_fallo_transitorio() {
+        var llamadas = new AtomicInteger();
+        PedidosRepositorio repo = lote -> {
+            llamadas.incrementAndGet();
+            throw new CannotAcquireLockException("deadlock");
+        };
+
+        assertThatThrownBy(() -> escritura(repo, 3).escribir(lote(4)))
+                .isInstanceOf(CannotAcquireLockException.class);
+        assertThat(llamadas).hasValue(4);
+    }
+
+    private EscrituraLotes escritura(PedidosRepositorio repo, int reintentos) {
+        return new EscrituraLotes(repo, TransactionOperations.withoutTransaction(), metricas, reintentos, Duration.ZERO);
+    }
+
+    // la fila i es la línea i + 2 (la 1 es la cabecera)
+    private static LotePedidos lote(int filas) {
+        var lote = new LotePedidos(filas);
+        for (int i = 0; i < filas; i++) {
+            lote.agregar(i + 2, "P" + i, "CLI-1", "ZONA1", 20_000 + i, Estado.PENDIENTE, false);
+        }
+        return lote;
+    }
+}
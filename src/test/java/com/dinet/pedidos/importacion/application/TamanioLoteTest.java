@@ -0,0 +1,65 @@
+package com.dinet.pedidos.importacion.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TamanioLoteTest {
+
+    private static final long RAPIDO = Duration.ofMillis(50).toNanos();
+    private static final long LENTO = Duration.ofMillis(400).toNanos();
+
+    private final TamanioLote tamanio = new TamanioLote(500, true, 100, 1000, 50, Duration.ofMillis(200));
+
+    @Test
+    void crece_de_a_poco_mientras_los_lotes_llenos_quedan_bajo_el_objetivo_y_no_pasa_del_maximo() {
+        var a = tamanio.asignar();
+        tamanio.registrar(a, 500, RAPIDO, false);
+        assertThat(tamanio.actual()).isEqualTo(550);
+
+        // un lote a medio llenar no cuenta
+        tamanio.registrar(tamanio.asignar(), 100, RAPIDO, false);
+        assertThat(tamanio.actual()).isEqualTo(550);
+
+        for (int i = 0; i < 20; i++) tamanio.registrar(tamanio.asignar(), 1000, RAPIDO, false);
+        assertThat(tamanio.actual()).isEqualTo(1000);
+    }
+
+    @Test
+    void se_reduce_en_proporcion_al_exceso_una_vez_por_tanda() {
+        var tanda = tamanio.asignar();
+        var otroDeLaTanda = tamanio.asignar();
+
+        // 400 ms contra un objetivo de 200 ms: a la mitad
+        tamanio.registrar(tanda, 500, LENTO, false);
+        assertThat(tamanio.actual()).isEqualTo(250);
+        tamanio.registrar(otroDeLaTanda, 500, LENTO, false);
+        assertThat(tamanio.actual()).isEqualTo(250);
+
+        tamanio.registrar(tamanio.asignar(), 250, Duration.ofMillis(250).toNanos(), false);
+        assertThat(tamanio.actual()).isEqualTo(200);
+    }
+
+    @Test
+    void los_reintentos_lo_reducen_a_la_mitad_sin_bajar_del_minimo() {
+        for (int i = 0; i < 5; i++) tamanio.registrar(tamanio.asignar(), 10, RAPIDO, true);
+        assertThat(tamanio.actual()).isEqualTo(100);
+    }
+
+    @Test
+    void fijo_no_se_mueve_pero_publica_la_latencia() {
+        var fijo = TamanioLote.fijo(500);
+        var registry = new SimpleMeterRegistry();
+        fijo.bindTo(registry);
+
+        fijo.registrar(fijo.asignar(), 500, LENTO, true);
+        fijo.registrar(fijo.asignar(), 500, RAPIDO, false);
+
+        assertThat(fijo.actual()).isEqualTo(500);
+        assertThat(registry.get("importacion.lote.tamanio").gauge().value()).isEqualTo(500);
+        assertThat(registry.get("importacion.lote.latencia").gauge().value()).isBetween(0.05, 0.4);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dinet.pedidos.importacion.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LotePedidosTest {
+
+    @Test
+    void codifica_cliente_y_zona_contra_un_diccionario_del_lote() {
+        var lote = new LotePedidos(1);
+        for (int i = 0; i < 100; i++) {
+            lote.agregar(i + 2, "P" + i, CharBuffer.wrap("CLI-" + (i % 7)), "ZONA" + (i % 2),
+                    (int) LocalDate.of(2025, 12, 10).toEpochDay(), Estado.values()[i % 3], i % 4 == 0);
+        }
+
+        assertThat(lote.tamanio()).isEqualTo(100);
+        assertThat(lote.clientesDistintos()).hasSize(7);
+        assertThat(lote.zonasDistintas()).containsExactly("ZONA0", "ZONA1");
+        assertThat(lote.cliente(8)).isEqualTo(lote.cliente(1));
+        assertThat(lote.pedido(9)).isEqualTo(new Pedido("P9", "CLI-2", LocalDate.of(2025, 12, 10),
+                Estado.PENDIENTE, "ZONA1", false));
+        assertThat(lote.linea(9)).isEqualTo(11);
+    }
+
+    @Test
+    void seleccion_y_rango_conservan_los_valores_de_cada_fila() {
+        var lote = new LotePedidos(4);
+        for (int i = 0; i < 4; i++) {
+            lote.agregar(i + 2, "P" + i, "CLI-" + i, "ZONA1", 20_000 + i, Estado.CONFIRMADO, i % 2 == 1);
+        }
+
+        var seleccion = lote.seleccion(new int[] { 3, 0 });
+        assertThat(seleccion.pedido(0)).isEqualTo(lote.pedido(3));
+        assertThat(seleccion.pedido(1)).isEqualTo(lote.pedido(0));
+        assertThat(seleccion.requiereRefrigeracion(0)).isTrue();
+
+        var rango = lote.rango(1, 3);
+        assertThat(rango.tamanio()).isEqualTo(2);
+        assertThat(rango.linea(0)).isEqualTo(3);
+        assertThat(rango.numeroPedido(1)).isEqualTo("P2");
+    }
+}
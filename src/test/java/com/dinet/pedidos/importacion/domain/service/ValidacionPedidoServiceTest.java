@@ -1,8 +1,15 @@
 package com.dinet.pedidos.importacion.domain.service;
 
+import com.dinet.pedidos.importacion.domain.model.CatalogoResuelto;
+import com.dinet.pedidos.importacion.domain.model.CodigoError;
 import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.LotePedidos;
 import com.dinet.pedidos.importacion.domain.model.Pedido;
 import com.dinet.pedidos.importacion.domain.port.CatalogosConsulta;
+import com.dinet.pedidos.importacion.domain.service.reglas.CadenaFrioSoportada;
+import com.dinet.pedidos.importacion.domain.service.reglas.ClienteActivo;
+import com.dinet.pedidos.importacion.domain.service.reglas.FechaEntregaNoPasada;
+import com.dinet.pedidos.importacion.domain.service.reglas.ZonaExistente;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -11,9 +18,13 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ValidacionPedidoServiceTest {
@@ -27,7 +38,13 @@ class ValidacionPedidoServiceTest {
         catalogos = Mockito.mock(CatalogosConsulta.class);
         // “hoy” fijo: 2025-09-19 en America/Lima
         clock = Clock.fixed(Instant.parse("2025-09-19T05:00:00Z"), ZoneId.of("America/Lima"));
-        svc = new ValidacionPedidoService(catalogos, clock);
+        svc = servicio(ModoValidacion.PRIMER_ERROR);
+    }
+
+    private ValidacionPedidoService servicio(ModoValidacion modo) {
+        return new ValidacionPedidoService(catalogos, clock,
+                List.of(new ClienteActivo(), new ZonaExistente(), new CadenaFrioSoportada(), new FechaEntregaNoPasada()),
+                modo);
     }
 
     private Pedido pedidoOk() {
@@ -81,4 +98,100 @@ class ValidacionPedidoServiceTest {
 
         assertThat(svc.validar(p)).containsExactly("FECHA_INVALIDA");
     }
+
+    @Test
+    void resuelve_catalogos_con_ids_distintos() {
+        var otro = new Pedido("P002", "CLI-123",
+                java.time.LocalDate.of(2025, 12, 10), Estado.PENDIENTE, "ZONA5", false);
+        when(catalogos.clientesActivos(anyCollection())).thenReturn(Set.of("CLI-123"));
+        when(catalogos.soporteRefrigeracionPorZona(anyCollection())).thenReturn(Map.of("ZONA1", true));
+
+        var resuelto = svc.resolverCatalogos(List.of(pedidoOk(), pedidoOk(), otro));
+
+        verify(catalogos).clientesActivos(Set.of("CLI-123"));
+        verify(catalogos).soporteRefrigeracionPorZona(Set.of("ZONA1", "ZONA5"));
+        assertThat(resuelto.existeCliente("CLI-123")).isTrue();
+        assertThat(resuelto.zonaSoportaRefrigeracion("ZONA5")).isEmpty();
+    }
+
+    @Test
+    void valida_contra_catalogo_resuelto() {
+        var catalogo = new CatalogoResuelto(Set.of(), Map.of("ZONA1", false));
+
+        assertThat(svc.validar(pedidoOk(), catalogo))
+                .containsExactly("CLIENTE_NO_ENCONTRADO", "CADENA_FRIO_NO_SOPORTADA");
+    }
+
+    @Test
+    void valida_un_lote_con_el_primer_error_de_cada_fila() {
+        var lote = loteMixto();
+
+        var r = svc.validar(lote, new CatalogoResuelto(Set.of("CLI-123"), Map.of("ZONA1", false, "ZONA2", true)));
+
+        assertThat(r.tamanio()).isEqualTo(lote.tamanio());
+        assertThat(r.primerError(0)).isEqualTo(CodigoError.CADENA_FRIO_NO_SOPORTADA);
+        assertThat(r.errores(1)).containsExactly(CodigoError.FECHA_INVALIDA);   // las reglas locales van primero
+        assertThat(r.valida(2)).isTrue();
+        assertThat(r.primerError(2)).isNull();
+        assertThat(r.errores(3)).containsExactly(CodigoError.FECHA_INVALIDA);
+    }
+
+    @Test
+    void en_modo_todos_reporta_cada_regla_incumplida_en_orden_de_costo() {
+        var lote = loteMixto();
+
+        var r = servicio(ModoValidacion.TODOS)
+                .validar(lote, new CatalogoResuelto(Set.of("CLI-123"), Map.of("ZONA1", false, "ZONA2", true)));
+
+        assertThat(r.errores(1)).containsExactly(
+                CodigoError.FECHA_INVALIDA, CodigoError.CLIENTE_NO_ENCONTRADO, CodigoError.CADENA_FRIO_NO_SOPORTADA);
+        assertThat(r.errores(3)).containsExactly(CodigoError.FECHA_INVALIDA, CodigoError.ZONA_INVALIDA);
+    }
+
+    @Test
+    void solo_consulta_el_catalogo_para_filas_que_pasan_las_reglas_locales() {
+        when(catalogos.clientesActivos(anyCollection())).thenReturn(Set.of("CLI-123"));
+        when(catalogos.soporteRefrigeracionPorZona(anyCollection())).thenReturn(Map.of("ZONA1", false, "ZONA2", true));
+
+        var r = svc.validar(loteMixto());
+
+        verify(catalogos).clientesActivos(Set.of("CLI-123"));
+        verify(catalogos).soporteRefrigeracionPorZona(Set.of("ZONA1", "ZONA2"));
+        assertThat(r.primerError(3)).isEqualTo(CodigoError.FECHA_INVALIDA);
+
+        var fecha = svc.estadisticas().get(0);
+        assertThat(fecha.regla()).isInstanceOf(FechaEntregaNoPasada.class);
+        assertThat(fecha.evaluadas()).isEqualTo(4);
+        assertThat(fecha.rechazadas()).isEqualTo(2);
+        assertThat(fecha.nanos()).isPositive();
+        assertThat(svc.estadisticas().get(1).evaluadas()).isEqualTo(2);
+        assertThat(svc.estadisticas()).extracting(e -> e.regla().nombre())
+                .containsExactly("fecha_entrega", "cliente", "zona", "cadena_frio");
+    }
+
+    private LotePedidos loteMixto() {
+        var lote = new LotePedidos(4);
+        lote.agregar(2, pedidoOk());                                            // ZONA1 sin frío
+        lote.agregar(3, new Pedido("P002", "CLI-9", java.time.LocalDate.of(2025, 1, 1),
+                Estado.PENDIENTE, "ZONA1", true));
+        lote.agregar(4, new Pedido("P003", "CLI-123", java.time.LocalDate.of(2025, 12, 10),
+                Estado.CONFIRMADO, "ZONA2", true));
+        lote.agregar(5, new Pedido("P004", "CLI-123", java.time.LocalDate.of(2025, 9, 18),
+                Estado.ENTREGADO, "ZONA3", false));
+        return lote;
+    }
+
+    @Test
+    void resuelve_catalogos_de_un_lote_por_valores_distintos() {
+        var lote = new LotePedidos(3);
+        lote.agregar(2, pedidoOk());
+        lote.agregar(3, pedidoOk());
+        lote.agregar(4, new Pedido("P002", "CLI-7", java.time.LocalDate.of(2025, 12, 10),
+                Estado.PENDIENTE, "ZONA1", false));
+
+        svc.resolverCatalogos(lote);
+
+        verify(catalogos).clientesActivos(Set.of("CLI-123", "CLI-7"));
+        verify(catalogos).soporteRefrigeracionPorZona(Set.of("ZONA1"));
+    }
 }
@@ -0,0 +1,71 @@
+package com.dinet.pedidos.importacion.shared.compresion;
+
+import com.github.luben.zstd.Zstd;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompresionTest {
+
+    private static final byte[] CSV = """
+            numero_pedido,cliente_id,fecha_entrega,estado,zona_id,requiere_refrigeracion
+            P001,CLI-123,2025-12-10,PENDIENTE,ZONA1,true
+            """.getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void reconoce_cada_formato_por_sus_primeros_bytes() throws IOException {
+        assertThat(detectar(CSV)).isEqualTo(Compresion.NINGUNA);
+        assertThat(detectar(gzip(CSV))).isEqualTo(Compresion.GZIP);
+        assertThat(detectar(deflate(CSV))).isEqualTo(Compresion.DEFLATE);
+        assertThat(detectar(Zstd.compress(CSV))).isEqualTo(Compresion.ZSTD);
+        assertThat(detectar(new byte[0])).isEqualTo(Compresion.NINGUNA);
+    }
+
+    @Test
+    void descomprime_al_vuelo_al_mismo_contenido() throws IOException {
+        for (byte[] enviado : new byte[][] { CSV, gzip(CSV), deflate(CSV), Zstd.compress(CSV) }) {
+            try (var in = Compresion.descomprimir(new ByteArrayInputStream(enviado))) {
+                assertThat(in.readAllBytes()).isEqualTo(CSV);
+            }
+        }
+    }
+
+    @Test
+    void gzip_concatenado_se_lee_completo() throws IOException {
+        var partes = new ByteArrayOutputStream();
+        partes.write(gzip("ab".getBytes(StandardCharsets.UTF_8)));
+        partes.write(gzip("cd".getBytes(StandardCharsets.UTF_8)));
+
+        try (var in = Compresion.descomprimir(new ByteArrayInputStream(partes.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("abcd");
+        }
+    }
+
+    private static Compresion detectar(byte[] datos) throws IOException {
+        return Compresion.detectar(new BufferedInputStream(new ByteArrayInputStream(datos)));
+    }
+
+    private static byte[] gzip(byte[] datos) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gz = new GZIPOutputStream(out)) {
+            gz.write(datos);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] datos) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var df = new DeflaterOutputStream(out)) {
+            df.write(datos);
+        }
+        return out.toByteArray();
+    }
+}
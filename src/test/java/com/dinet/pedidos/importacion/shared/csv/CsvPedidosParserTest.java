@@ -0,0 +1,143 @@
+package com.dinet.pedidos.importacion.shared.csv;
+
+import com.dinet.pedidos.importacion.application.dto.ErrorFila;
+import com.dinet.pedidos.importacion.domain.model.Estado;
+import com.dinet.pedidos.importacion.domain.model.Pedido;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvPedidosParserTest {
+
+    private static final String CABECERA = "numero_pedido,cliente_id,fecha_entrega,estado,zona_id,requiere_refrigeracion\n";
+
+    private static CsvPedidosParser.Result parse(String csv) throws IOException {
+        return CsvPedidosParser.parse(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void parsea_fila_valida_con_espacios_y_comillas() throws IOException {
+        var r = parse(CABECERA + " P-001 ,\"CLI,123\",2024-02-29,PENDIENTE,ZONA1,TRUE\n");
+
+        assertThat(r.errores()).isEmpty();
+        assertThat(r.filasValidas()).containsExactly(new CsvPedidosParser.FilaValida(2,
+                new Pedido("P-001", "CLI,123", LocalDate.of(2024, 2, 29), Estado.PENDIENTE, "ZONA1", true)));
+    }
+
+    @Test
+    void resuelve_columnas_en_cualquier_orden() throws IOException {
+        var r = parse("estado,zona_id,numero_pedido,requiere_refrigeracion,fecha_entrega,cliente_id\r\n"
+                + "ENTREGADO,ZONA5,P2,false,2025-12-10,CLI-9\r\n");
+
+        assertThat(r.filasValidas()).extracting(CsvPedidosParser.FilaValida::pedido)
+                .containsExactly(new Pedido("P2", "CLI-9", LocalDate.of(2025, 12, 10), Estado.ENTREGADO, "ZONA5", false));
+    }
+
+    @Test
+    void reporta_los_mismos_codigos_de_error() throws IOException {
+        var r = parse(CABECERA
+                + ",CLI-123,2025-08-10,PENDIENTE,ZONA1,true\n"
+                + "P002,CLI-123,2025-08-10,OTRO,ZONA1,true\n"
+                + "P003,CLI-123,2025-02-29,PENDIENTE,ZONA1,true\n"
+                + "P004,CLI-123,2025-08-10,PENDIENTE,ZONA1,maybe\n"
+                + "P_005,CLI-123,2025-08-10,PENDIENTE,ZONA1,true\n"
+                + "P006,CLI-123,2025-08-10\n");
+
+        assertThat(r.filasValidas()).isEmpty();
+        assertThat(r.errores()).containsExactly(
+                new ErrorFila(2, "CAMPO_OBLIGATORIO_FALTA_numero_pedido"),
+                new ErrorFila(3, "ESTADO_INVALIDO"),
+                new ErrorFila(4, "FECHA_INVALIDA_FORMATO"),
+                new ErrorFila(5, "BOOLEANO_INVALIDO_requiere_refrigeracion"),
+                new ErrorFila(6, "NUMERO_PEDIDO_INVALIDO"),
+                new ErrorFila(7, "ERROR_DESCONOCIDO"));
+    }
+
+    @Test
+    void rechaza_numeros_de_pedido_mas_largos_que_la_columna() throws IOException {
+        String largo = "P".repeat(CsvPedidosParser.LARGO_MAXIMO_NUMERO);
+        var r = parse(CABECERA
+                + largo + ",CLI-1,2025-12-10,PENDIENTE,Z,false\n"
+                + largo + "1,CLI-1,2025-12-10,PENDIENTE,Z,false\n"
+                + "X".repeat(70_000) + ",CLI-1,2025-12-10,PENDIENTE,Z,false\n");
+
+        assertThat(r.filasValidas()).extracting(CsvPedidosParser.FilaValida::linea).containsExactly(2);
+        assertThat(r.errores()).containsExactly(
+                new ErrorFila(3, "NUMERO_PEDIDO_INVALIDO"),
+                new ErrorFila(4, "NUMERO_PEDIDO_INVALIDO"));
+    }
+
+    @Test
+    void ignora_lineas_vacias_al_numerar() throws IOException {
+        var r = parse(CABECERA + "\nP1,CLI-1,2025-12-10,PENDIENTE,Z,false\n\n\nP2,CLI-1,fecha,PENDIENTE,Z,false");
+
+        assertThat(r.filasValidas()).extracting(CsvPedidosParser.FilaValida::linea).containsExactly(2);
+        assertThat(r.errores()).containsExactly(new ErrorFila(3, "FECHA_INVALIDA_FORMATO"));
+    }
+
+    @Test
+    void cabecera_invalida() throws IOException {
+        assertThat(parse("").cabeceraError()).isEqualTo("CABECERA_INVALIDA");
+        assertThat(parse("a,b,c\n").cabeceraError()).isEqualTo("CABECERA_INVALIDA");
+        assertThat(parse(CABECERA.replace("estado", "status")).cabeceraError())
+                .isEqualTo("CABECERA_INVALIDA: falta 'estado'");
+    }
+
+    @Test
+    void comillas_sin_cerrar_es_csv_ilegible() {
+        assertThatThrownBy(() -> parse(CABECERA + "\"P1,CLI-1,2025-12-10,PENDIENTE,Z,false\n"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void numeros_pedido_informa_solo_filas_validas_para_el_parser() throws IOException {
+        var csv = CABECERA
+                + "P-1,CLI-1,2025-01-01,PENDIENTE,Z1,true\n"
+                + "P-2,CLI-1,fecha,PENDIENTE,Z1,true\n"
+                + "\"P-1\",CLI-1,2025-01-02,ENTREGADO,Z1,false\n";
+        var vistos = new ArrayList<String>();
+
+        CsvPedidosParser.numerosPedido(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                (linea, numero) -> vistos.add(linea + ":" + numero));
+
+        assertThat(vistos).containsExactly("2:P-1", "4:P-1");
+    }
+
+    @Test
+    void reanuda_desde_la_posicion_de_un_registro() throws IOException {
+        var csv = CABECERA
+                + "P-1,\"CLI\n1\",2025-01-01,PENDIENTE,Z1,true\r\n"
+                + "\n"
+                + "P-2,CLIÑ,2025-01-02,PENDIENTE,Z1,true\n"
+                + "P-3,CLI-3,mal,PENDIENTE,Z1,true\n"
+                + "P-4,CLI-4,2025-01-04,ENTREGADO,Z1,false\n";
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        var posiciones = new ArrayList<CsvPedidosParser.Posicion>();
+        var completas = new ArrayList<String>();
+        CsvPedidosParser.parse(new ByteArrayInputStream(bytes), destino(completas, posiciones), null);
+
+        var tras2 = posiciones.get(1);
+        var reanudadas = new ArrayList<String>();
+        CsvPedidosParser.parse(new ByteArrayInputStream(bytes), destino(reanudadas, new ArrayList<>()), tras2);
+
+        assertThat(tras2.linea()).isEqualTo(3);
+        assertThat(reanudadas).containsExactlyElementsOf(completas.subList(2, completas.size()));
+        assertThat(reanudadas).containsExactly("4:FECHA_INVALIDA_FORMATO", "5:P-4");
+    }
+
+    private static CsvPedidosParser.Destino destino(List<String> eventos, List<CsvPedidosParser.Posicion> posiciones) {
+        return new CsvPedidosParser.Destino() {
+            @Override public void filaValida(int linea, CsvPedidosParser.Fila fila) { eventos.add(linea + ":" + fila.numeroPedido()); }
+            @Override public void error(ErrorFila error) { eventos.add(error.linea() + ":" + error.motivo()); }
+            @Override public void finRegistro(int linea, long caracter) { posiciones.add(new CsvPedidosParser.Posicion(linea, caracter)); }
+        };
+    }
+}
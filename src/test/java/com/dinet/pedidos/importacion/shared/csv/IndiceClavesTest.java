@@ -0,0 +1,49 @@
+package com.dinet.pedidos.importacion.shared.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndiceClavesTest {
+
+    @Test
+    void poner_reemplaza_y_agregar_conserva_el_primer_valor() {
+        var indice = new IndiceClaves();
+
+        assertThat(indice.poner("P-001", 2)).isEqualTo(IndiceClaves.AUSENTE);
+        assertThat(indice.poner("P-001", 5)).isEqualTo(2);
+        assertThat(indice.agregar("P-001", 9)).isEqualTo(5);
+        assertThat(indice.valor("P-001")).isEqualTo(5);
+        assertThat(indice.valor("P-002")).isEqualTo(IndiceClaves.AUSENTE);
+        assertThat(indice.tamanio()).isEqualTo(1);
+    }
+
+    @Test
+    void compara_por_contenido_sin_importar_el_tipo_de_secuencia() {
+        var indice = new IndiceClaves();
+        indice.poner("PED-42", 7);
+
+        char[] buffer = "xxPED-42yy".toCharArray();
+        assertThat(indice.valor(CharBuffer.wrap(buffer, 2, 6))).isEqualTo(7);
+    }
+
+    @Test
+    void conserva_todas_las_claves_al_crecer() {
+        var indice = new IndiceClaves();
+        int n = 200_000;
+        for (int i = 0; i < n; i++) indice.poner("PED-" + i, i);
+
+        assertThat(indice.tamanio()).isEqualTo(n);
+        for (int i = 0; i < n; i++) assertThat(indice.valor("PED-" + i)).isEqualTo(i);
+        assertThat(indice.valor("PED-" + n)).isEqualTo(IndiceClaves.AUSENTE);
+    }
+
+    @Test
+    void rechaza_claves_no_ascii() {
+        assertThatThrownBy(() -> new IndiceClaves().poner("PEDÑ", 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
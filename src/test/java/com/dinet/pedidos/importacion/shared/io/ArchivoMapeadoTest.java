@@ -0,0 +1,46 @@
+package com.dinet.pedidos.importacion.shared.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArchivoMapeadoTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void cada_lectura_recorre_el_archivo_entero_a_traves_de_varias_regiones() throws IOException {
+        byte[] contenido = "P001,CLI-123,2025-12-10,PENDIENTE,ZONA1,true\n".repeat(10).getBytes(StandardCharsets.UTF_8);
+        Path archivo = Files.write(dir.resolve("pedidos.csv"), contenido);
+
+        try (var mapeado = new ArchivoMapeado(archivo, 64)) {
+            try (var in = mapeado.getInputStream()) {
+                assertThat(in.read()).isEqualTo('P');
+                assertThat(in.skip(100)).isEqualTo(100);
+                assertThat(in.available()).isEqualTo(64 - 101 % 64);
+                byte[] resto = in.readAllBytes();
+                assertThat(resto).hasSize(contenido.length - 101);
+                assertThat(in.read()).isEqualTo(-1);
+                assertThat(in.read(new byte[4], 0, 4)).isEqualTo(-1);
+                assertThat(in.available()).isZero();
+            }
+            try (var in = mapeado.getInputStream()) {
+                assertThat(in.readAllBytes()).isEqualTo(contenido);
+            }
+        }
+    }
+
+    @Test
+    void archivo_vacio() throws IOException {
+        try (var mapeado = new ArchivoMapeado(Files.createFile(dir.resolve("vacio.csv")))) {
+            assertThat(mapeado.getInputStream().readAllBytes()).isEmpty();
+        }
+    }
+}